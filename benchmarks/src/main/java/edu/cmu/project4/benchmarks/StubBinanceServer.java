@@ -0,0 +1,273 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Offline stand-in for Binance serving {@value #TICKER_PATH}. Benchmarks start it on a loopback port with
+ * fixed prices, so they measure our code rather than the network. Run on its own it serves random-walk
+ * prices and also the combined {@code /stream?streams=...@miniTicker} feed over a minimal WebSocket:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar edu.cmu.project4.benchmarks.StubBinanceServer 18080 18081
+ * BINANCE_API_BASE=http://localhost:18080/api/v3/ticker/price
+ * BINANCE_STREAM_URL=ws://localhost:18081/stream
+ * </pre>
+ */
+public final class StubBinanceServer implements AutoCloseable {
+    public static final String TICKER_PATH = "/api/v3/ticker/price";
+
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final long TICK_INTERVAL_MS = 1000;
+
+    static {
+        // Without TCP_NODELAY the JDK server's small responses stall on delayed ACKs (~40 ms per call).
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final Map<String, BigDecimal> prices = new ConcurrentHashMap<>();
+    private final boolean randomWalk;
+    private final HttpServer server;
+
+    /**
+     * Loopback stub on an ephemeral port whose prices never move.
+     */
+    public StubBinanceServer() throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), false);
+    }
+
+    private StubBinanceServer(InetSocketAddress address, boolean randomWalk) throws IOException {
+        this.randomWalk = randomWalk;
+        prices.put("BTCUSD", new BigDecimal("64123.45678900"));
+        prices.put("BTCUSDT", new BigDecimal("64124.10000000"));
+        prices.put("ETHUSD", new BigDecimal("3120.25000000"));
+        prices.put("ETHUSDT", new BigDecimal("3120.40000000"));
+        prices.put("SOLUSD", new BigDecimal("145.12000000"));
+        this.server = HttpServer.create(address, 0);
+        server.createContext(TICKER_PATH, this::handleTicker);
+        server.setExecutor(Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "stub-binance");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int httpPort = args.length > 0 ? Integer.parseInt(args[0]) : 18080;
+        int wsPort = args.length > 1 ? Integer.parseInt(args[1]) : 18081;
+        StubBinanceServer stub = new StubBinanceServer(new InetSocketAddress(httpPort), true);
+        stub.startWebSocket(wsPort);
+        System.out.println("Stub Binance REST on http://localhost:" + httpPort + TICKER_PATH);
+        System.out.println("Stub Binance stream on ws://localhost:" + wsPort + "/stream");
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + TICKER_PATH;
+    }
+
+    private void handleTicker(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String symbol = queryParam(query, "symbol");
+        String symbolList = queryParam(query, "symbols");
+        String body;
+        int status = 200;
+        if (symbol != null) {
+            BigDecimal price = tick(symbol);
+            if (price == null) {
+                status = 400;
+                body = "{\"code\":-1121,\"msg\":\"Invalid symbol.\"}";
+            } else {
+                body = tickerJson(symbol, price);
+            }
+        } else {
+            List<String> requested = new ArrayList<>();
+            if (symbolList != null) {
+                for (String item : symbolList.replaceAll("[\\[\\]\"]", "").split(",")) {
+                    requested.add(item.trim().toUpperCase(Locale.ROOT));
+                }
+            } else {
+                requested.addAll(prices.keySet());
+            }
+            StringBuilder builder = new StringBuilder("[");
+            for (String item : requested) {
+                BigDecimal price = tick(item);
+                if (price == null) {
+                    continue;
+                }
+                if (builder.length() > 1) {
+                    builder.append(',');
+                }
+                builder.append(tickerJson(item, price));
+            }
+            body = builder.append(']').toString();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("X-MBX-USED-WEIGHT-1M", "1");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void startWebSocket(int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket(port);
+        Thread acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    Thread session = new Thread(() -> serveWebSocket(socket), "stub-ws-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "stub-ws-acceptor");
+        acceptor.start();
+    }
+
+    private void serveWebSocket(Socket socket) {
+        try (Socket client = socket) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.ISO_8859_1));
+            String requestLine = reader.readLine();
+            String key = null;
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                    key = line.substring(colon + 1).trim();
+                }
+            }
+            if (requestLine == null || key == null) {
+                return;
+            }
+            List<String> symbols = new ArrayList<>();
+            String target = requestLine.split(" ")[1];
+            String streams = queryParam(target.contains("?") ? target.substring(target.indexOf('?') + 1) : "", "streams");
+            if (streams != null) {
+                for (String stream : streams.split("/")) {
+                    symbols.add(stream.substring(0, stream.indexOf('@')).toUpperCase(Locale.ROOT));
+                }
+            }
+
+            OutputStream out = client.getOutputStream();
+            String handshake = "HTTP/1.1 101 Switching Protocols\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n";
+            out.write(handshake.getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+
+            while (!client.isClosed()) {
+                for (String symbol : symbols) {
+                    BigDecimal price = tick(symbol);
+                    if (price == null) {
+                        continue;
+                    }
+                    String message = "{\"stream\":\"" + symbol.toLowerCase(Locale.ROOT) + "@miniTicker\",\"data\":{"
+                            + "\"e\":\"24hrMiniTicker\",\"E\":" + System.currentTimeMillis()
+                            + ",\"s\":\"" + symbol + "\",\"c\":\"" + price.toPlainString() + "\"}}";
+                    writeTextFrame(out, message.getBytes(StandardCharsets.UTF_8));
+                }
+                out.flush();
+                Thread.sleep(TICK_INTERVAL_MS);
+            }
+        } catch (IOException e) {
+            // Client went away.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void writeTextFrame(OutputStream out, byte[] payload) throws IOException {
+        out.write(0x81);
+        if (payload.length < 126) {
+            out.write(payload.length);
+        } else if (payload.length < 65536) {
+            out.write(126);
+            out.write((payload.length >>> 8) & 0xFF);
+            out.write(payload.length & 0xFF);
+        } else {
+            out.write(127);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (((long) payload.length >>> shift) & 0xFF));
+            }
+        }
+        out.write(payload);
+    }
+
+    /**
+     * @return the symbol's next price, or {@code null} for symbols the stub does not list
+     */
+    private BigDecimal tick(String symbol) {
+        String key = symbol.toUpperCase(Locale.ROOT);
+        if (!randomWalk) {
+            return prices.get(key);
+        }
+        return prices.computeIfPresent(key, (ignored, price) -> {
+            double drift = ThreadLocalRandom.current().nextGaussian() * 0.0005;
+            return price.multiply(BigDecimal.valueOf(1.0 + drift)).setScale(8, RoundingMode.HALF_UP);
+        });
+    }
+
+    private static String tickerJson(String symbol, BigDecimal price) {
+        return "{\"symbol\":\"" + symbol.toUpperCase(Locale.ROOT) + "\",\"price\":\"" + price.toPlainString() + "\"}";
+    }
+
+    private static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] digest = sha1.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String queryParam(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Minimal in-process stand-ins for the servlet container and MongoDB. Only the methods the benchmarked code
+ * calls are implemented; anything else fails loudly so a benchmark never silently measures a no-op.
+ */
+public final class Stubs {
+    private Stubs() {
+    }
+
+    /**
+     * A MongoClient whose collections accept every write and discard it.
+     */
+    public static MongoClient mongoClient() {
+        MongoCollection<?> collection = proxy(MongoCollection.class, (self, method, args) -> {
+            switch (method.getName()) {
+                case "withCodecRegistry":
+                case "withDocumentClass":
+                    return self;
+                case "insertOne":
+                case "insertMany":
+                    return null;
+                case "countDocuments":
+                    return 0L;
+                default:
+                    throw unsupported(method.getName());
+            }
+        });
+        MongoDatabase database = proxy(MongoDatabase.class, (self, method, args) -> {
+            if ("getCollection".equals(method.getName())) {
+                return collection;
+            }
+            throw unsupported(method.getName());
+        });
+        return proxy(MongoClient.class, (self, method, args) -> {
+            switch (method.getName()) {
+                case "getDatabase":
+                    return database;
+                case "close":
+                    return null;
+                default:
+                    throw unsupported(method.getName());
+            }
+        });
+    }
+
+    public static ServletConfig servletConfig(Map<String, Object> attributes) {
+        ServletContext context = proxy(ServletContext.class, (self, method, args) -> {
+            switch (method.getName()) {
+                case "getAttribute":
+                    return attributes.get((String) args[0]);
+                case "log":
+                    return null;
+                default:
+                    throw unsupported(method.getName());
+            }
+        });
+        return proxy(ServletConfig.class, (self, method, args) -> {
+            switch (method.getName()) {
+                case "getServletContext":
+                    return context;
+                case "getServletName":
+                    return "benchmark";
+                case "getInitParameterNames":
+                    return Collections.emptyEnumeration();
+                case "getInitParameter":
+                    return null;
+                default:
+                    throw unsupported(method.getName());
+            }
+        });
+    }
+
+    public static HttpServletRequest getRequest(Map<String, String> parameters) {
+        return getRequest(parameters, Map.of());
+    }
+
+    /**
+     * @param headers read on every call, so a benchmark can change them between requests
+     */
+    public static HttpServletRequest getRequest(Map<String, String> parameters, Map<String, String> headers) {
+        return proxy(HttpServletRequest.class, (self, method, args) -> {
+            switch (method.getName()) {
+                case "getMethod":
+                    return "GET";
+                case "getParameter":
+                    return parameters.get((String) args[0]);
+                case "getRemoteAddr":
+                    return "127.0.0.1";
+                case "getProtocol":
+                    return "HTTP/1.1";
+                case "getHeader":
+                    return headers.get((String) args[0]);
+                case "getAttribute":
+                    return null;
+                case "getDateHeader":
+                    return -1L;
+                default:
+                    throw unsupported(method.getName());
+            }
+        });
+    }
+
+    public static HttpServletResponse response(CountingOutputStream body) {
+        Map<String, String> headers = new HashMap<>();
+        int[] status = {HttpServletResponse.SC_OK};
+        return proxy(HttpServletResponse.class, (self, method, args) -> {
+            switch (method.getName()) {
+                case "getOutputStream":
+                    return body;
+                case "setHeader":
+                case "addHeader":
+                    headers.put((String) args[0], (String) args[1]);
+                    return null;
+                case "setDateHeader":
+                    headers.put((String) args[0], Long.toString((Long) args[1]));
+                    return null;
+                case "getHeader":
+                    return headers.get((String) args[0]);
+                case "setStatus":
+                    status[0] = (Integer) args[0];
+                    return null;
+                case "getStatus":
+                    return status[0];
+                case "setContentType":
+                case "setCharacterEncoding":
+                case "setContentLength":
+                case "setContentLengthLong":
+                case "flushBuffer":
+                    return null;
+                case "isCommitted":
+                    return false;
+                default:
+                    throw unsupported(method.getName());
+            }
+        });
+    }
+
+    /**
+     * Servlet output stream that only counts bytes, so serialization cost is measured without I/O.
+     */
+    public static final class CountingOutputStream extends ServletOutputStream {
+        private long count;
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("setWriteListener");
+        }
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<?> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return "stub " + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "equals":
+                    return self == args[0];
+                default:
+                    return handler.invoke(self, method, args);
+            }
+        });
+    }
+
+    private static UnsupportedOperationException unsupported(String method) {
+        return new UnsupportedOperationException("Not stubbed: " + method);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+
+/**
+ * Parsing of a single-symbol ticker body, as done by {@link BinanceClient#fetchPrice(String)} after the
+ * HTTP round trip. Lives in the {@code biz} package to reach the package-private parser.
+ * {@code parseQuoteTree} keeps the former String plus {@code JsonNode} approach as a baseline; run with
+ * {@code -prof gc} to compare {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinanceParseBenchmark {
+    private BinanceClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        client = new BinanceClient("http://localhost/unused");
+        body = "{\"symbol\":\"BTCUSD\",\"price\":\"64123.45678900\"}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public PriceQuote parseQuote() throws Exception {
+        return client.parseQuote("BTCUSD", body, 200, 12);
+    }
+
+    @Benchmark
+    public PriceQuote parseQuoteTree() throws Exception {
+        JsonNode root = mapper.readTree(new String(body, StandardCharsets.UTF_8));
+        return new PriceQuote("BTCUSD", FixedPrice.parse(root.get("price").asText()), Instant.now());
+    }
+}
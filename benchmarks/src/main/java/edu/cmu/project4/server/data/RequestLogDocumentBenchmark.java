@@ -0,0 +1,129 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.Decimal128;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.cmu.project4.server.biz.FixedPrice;
+
+/**
+ * {@link RequestLog} to and from BSON. {@code encode}/{@code decode} measure {@link RequestLogCodec}, which the
+ * driver runs on insert and find. The {@code Document} benchmarks keep the former {@code toDocument} /
+ * {@code fromDocument} mapping with long field names as a baseline; {@code toBson}/{@code fromBson} add the
+ * {@code DocumentCodec} pass the driver performed on top of it. Compare {@code gc.alloc.rate.norm} with
+ * {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestLogDocumentBenchmark {
+    private final DocumentCodec codec = new DocumentCodec();
+    private RequestLog log;
+    private Document document;
+    private RawBsonDocument bson;
+    private RawBsonDocument compact;
+
+    @Setup
+    public void setUp() {
+        Instant received = Instant.parse("2026-01-15T10:15:30.123456Z");
+        log = new RequestLog(UUID.randomUUID().toString(), received, received.plusMillis(42), "203.0.113.7",
+                "client-123", "BTCUSD", true, null, FixedPrice.parse("64123.45678900"), 200, 35, 42,
+                "https://api.binance.com/api/v3/ticker/price");
+        document = toDocument(log);
+        bson = new RawBsonDocument(document, codec);
+        compact = new RawBsonDocument(log, RequestLogCodec.INSTANCE);
+    }
+
+    @Benchmark
+    public BsonDocument encode() {
+        return new RawBsonDocument(log, RequestLogCodec.INSTANCE);
+    }
+
+    @Benchmark
+    public RequestLog decode() {
+        return compact.decode(RequestLogCodec.INSTANCE);
+    }
+
+    @Benchmark
+    public Document toDocument() {
+        return toDocument(log);
+    }
+
+    @Benchmark
+    public RequestLog fromDocument() {
+        return fromDocument(document);
+    }
+
+    @Benchmark
+    public BsonDocument toBson() {
+        return new RawBsonDocument(toDocument(log), codec);
+    }
+
+    @Benchmark
+    public RequestLog fromBson() {
+        return fromDocument(bson.decode(codec));
+    }
+
+    private static Document toDocument(RequestLog log) {
+        Document document = new Document()
+                .append("requestId", log.getRequestId())
+                .append("requestReceivedAt", Date.from(log.getRequestReceivedAt()))
+                .append("responseSentAt", Date.from(log.getResponseSentAt()))
+                .append("clientIp", log.getClientIp())
+                .append("clientId", log.getClientId())
+                .append("symbol", log.getSymbol())
+                .append("success", log.isSuccess())
+                .append("errorMessage", log.getErrorMessage())
+                .append("binanceStatus", log.getBinanceStatus())
+                .append("binanceLatencyMs", log.getBinanceLatencyMs())
+                .append("totalLatencyMs", log.getTotalLatencyMs())
+                .append("binanceEndpoint", log.getBinanceEndpoint());
+        if (log.hasPrice()) {
+            document.append("price", new Decimal128(log.getPrice()));
+        }
+        return document;
+    }
+
+    private static RequestLog fromDocument(Document document) {
+        Decimal128 price = document.get("price", Decimal128.class);
+        Long binanceLatencyMs = document.getLong("binanceLatencyMs");
+        Long totalLatencyMs = document.getLong("totalLatencyMs");
+        return new RequestLog(document.getString("requestId"),
+                document.getDate("requestReceivedAt").toInstant(),
+                document.getDate("responseSentAt").toInstant(),
+                document.getString("clientIp"),
+                document.getString("clientId"),
+                document.getString("symbol"),
+                Boolean.TRUE.equals(document.getBoolean("success")),
+                document.getString("errorMessage"),
+                price != null ? FixedPrice.fromBigDecimal(price.bigDecimalValue()) : FixedPrice.NONE,
+                document.getInteger("binanceStatus", 0),
+                binanceLatencyMs == null ? 0 : binanceLatencyMs,
+                totalLatencyMs == null ? 0 : totalLatencyMs,
+                document.getString("binanceEndpoint"));
+    }
+}
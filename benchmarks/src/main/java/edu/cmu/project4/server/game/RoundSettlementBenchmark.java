@@ -0,0 +1,92 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.game;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Settling one round of {@code bets} bets. {@code settle} is the {@link BetBook} pass {@link RoundEngine} runs at
+ * the closing boundary; {@code settleObjects} keeps a one-object-per-bet book with {@code BigDecimal} stakes
+ * and a price comparison per bet as a baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoundSettlementBenchmark {
+    private static final BigDecimal START_PRICE = new BigDecimal("64123.45");
+    private static final BigDecimal END_PRICE = new BigDecimal("64123.91");
+
+    @Param({"100000"})
+    public int bets;
+
+    private BetBook book;
+    private List<ObjectBet> objectBets;
+
+    @Setup
+    public void setUp() {
+        book = new BetBook(1, BetBook.MAX_BETS);
+        objectBets = new ArrayList<>(bets);
+        for (int i = 0; i < bets; i++) {
+            String clientId = "client-" + (i % 5000);
+            Bet.Direction direction = i % 3 == 0 ? Bet.Direction.DOWN : Bet.Direction.UP;
+            long stakeCents = 100 + i % 997;
+            book.add(clientId, direction, stakeCents);
+            objectBets.add(new ObjectBet(clientId, direction, BigDecimal.valueOf(stakeCents, 2)));
+        }
+        book.seal();
+    }
+
+    @Benchmark
+    public long settle() {
+        book.settle(RoundOutcome.of(START_PRICE, END_PRICE));
+        return book.getPaidOutCents();
+    }
+
+    @Benchmark
+    public BigDecimal settleObjects() {
+        BigDecimal paidOut = BigDecimal.ZERO;
+        for (ObjectBet bet : objectBets) {
+            boolean rose = END_PRICE.compareTo(START_PRICE) > 0;
+            boolean fell = END_PRICE.compareTo(START_PRICE) < 0;
+            boolean win = bet.direction == Bet.Direction.UP ? rose : fell;
+            bet.payout = win ? bet.stake.multiply(BigDecimal.valueOf(2)) : BigDecimal.ZERO;
+            bet.settled = true;
+            paidOut = paidOut.add(bet.payout);
+        }
+        return paidOut;
+    }
+
+    private static final class ObjectBet {
+        private final String clientId;
+        private final Bet.Direction direction;
+        private final BigDecimal stake;
+        private BigDecimal payout;
+        private boolean settled;
+
+        private ObjectBet(String clientId, Bet.Direction direction, BigDecimal stake) {
+            this.clientId = clientId;
+            this.direction = direction;
+            this.stake = stake;
+        }
+    }
+}
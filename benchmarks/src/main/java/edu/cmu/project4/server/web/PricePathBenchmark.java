@@ -0,0 +1,95 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.Decimal128;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import edu.cmu.project4.benchmarks.Stubs.CountingOutputStream;
+import edu.cmu.project4.server.biz.FixedPrice;
+import edu.cmu.project4.server.data.RequestLogCodec;
+
+/**
+ * One price through the request path: read from a Binance ticker body, written to the JSON response and
+ * round-tripped through the {@code Decimal128} stored in the request log. {@code fixedPoint} carries it as a
+ * {@link FixedPrice}; {@code bigDecimal} keeps the former {@code BigDecimal} path as a baseline. Run with
+ * {@code -prof gc} to compare {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PricePathBenchmark {
+    private final JsonFactory factory = new JsonFactory();
+    private final byte[] ticker = "{\"symbol\":\"BTCUSD\",\"price\":\"64123.45678900\"}".getBytes(StandardCharsets.UTF_8);
+    private JsonGenerator generator;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Values are appended to one open generator so that only the price itself is measured on output.
+        generator = factory.createGenerator(new CountingOutputStream());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        generator.close();
+    }
+
+    @Benchmark
+    public void fixedPoint(Blackhole blackhole) throws IOException {
+        long price;
+        try (JsonParser parser = priceToken()) {
+            price = FixedPrice.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        QuoteJson.writePrice(generator, price);
+        blackhole.consume(RequestLogCodec.fromDecimal128(RequestLogCodec.toDecimal128(price)));
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) throws IOException {
+        BigDecimal price;
+        try (JsonParser parser = priceToken()) {
+            price = new BigDecimal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        generator.writeNumber(price);
+        blackhole.consume(new Decimal128(price).bigDecimalValue());
+    }
+
+    private JsonParser priceToken() throws IOException {
+        JsonParser parser = factory.createParser(ticker);
+        parser.nextToken();
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            if ("price".equals(field)) {
+                return parser;
+            }
+            parser.skipChildren();
+        }
+        throw new IllegalStateException("Ticker has no price");
+    }
+}
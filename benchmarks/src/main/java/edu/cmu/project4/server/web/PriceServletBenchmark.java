@@ -0,0 +1,120 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.project4.benchmarks.StubBinanceServer;
+import edu.cmu.project4.benchmarks.Stubs;
+import edu.cmu.project4.benchmarks.Stubs.CountingOutputStream;
+import edu.cmu.project4.server.biz.BinanceClient;
+import edu.cmu.project4.server.biz.QuoteCache;
+import edu.cmu.project4.server.config.AppAttributes;
+import edu.cmu.project4.server.data.AsyncLogWriter;
+import edu.cmu.project4.server.data.MongoLogRepository;
+import edu.cmu.project4.server.metrics.LatencyMetrics;
+import edu.cmu.project4.server.metrics.MetricsRegistry;
+import edu.cmu.project4.server.metrics.ServiceMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Full {@code GET /api/price} through {@link PriceServlet#service}, wired like {@code AppContextListener}
+ * but against a loopback Binance stub and a MongoDB stub that discards writes. {@code cacheTtlMs=0} makes
+ * every request an upstream call; a positive TTL measures the cache-hit path.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class PriceServletBenchmark {
+    @Param({"0", "1000"})
+    public long cacheTtlMs;
+
+    private StubBinanceServer binance;
+    private AsyncLogWriter logWriter;
+    private PriceServlet servlet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        binance = new StubBinanceServer();
+        MongoLogRepository repository = new MongoLogRepository(Stubs.mongoClient(), "benchmark", "requestLogs");
+        logWriter = new AsyncLogWriter(repository, 10000, 500, 1000, AsyncLogWriter.OverflowPolicy.DROP_OLDEST);
+        LatencyMetrics latencyMetrics = new LatencyMetrics(100);
+        ServiceMetrics serviceMetrics = new ServiceMetrics(new MetricsRegistry(), 100);
+        BinanceClient client = new BinanceClient(binance.getBaseUrl(), latencyMetrics, serviceMetrics);
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(AppAttributes.BINANCE_CLIENT, client);
+        attributes.put(AppAttributes.QUOTE_CACHE, new QuoteCache(client, cacheTtlMs));
+        attributes.put(AppAttributes.LOG_WRITER, logWriter);
+        attributes.put(AppAttributes.OBJECT_MAPPER, new ObjectMapper());
+        attributes.put(AppAttributes.LATENCY_METRICS, latencyMetrics);
+        attributes.put(AppAttributes.SERVICE_METRICS, serviceMetrics);
+        servlet = new PriceServlet();
+        servlet.init(Stubs.servletConfig(attributes));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        logWriter.close(5000);
+        binance.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Exchange {
+        CountingOutputStream body;
+        Map<String, String> headers;
+        HttpServletRequest request;
+        HttpServletResponse response;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            body = new CountingOutputStream();
+            headers = new HashMap<>();
+            request = Stubs.getRequest(Map.of("symbol", "BTCUSD", "clientId", "benchmark"), headers);
+            response = Stubs.response(body);
+        }
+    }
+
+    @Benchmark
+    public long getPrice(Exchange exchange) throws Exception {
+        servlet.service(exchange.request, exchange.response);
+        return exchange.body.getCount();
+    }
+
+    /**
+     * A polling client that revalidates with the last {@code ETag} it saw: with {@code cacheTtlMs=1000} most
+     * requests are answered {@code 304} without a body.
+     */
+    @Benchmark
+    public long revalidate(Exchange exchange) throws Exception {
+        servlet.service(exchange.request, exchange.response);
+        exchange.headers.put("If-None-Match", exchange.response.getHeader("ETag"));
+        return exchange.body.getCount();
+    }
+}
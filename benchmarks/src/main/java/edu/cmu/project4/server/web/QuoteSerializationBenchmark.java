@@ -0,0 +1,76 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.project4.benchmarks.Stubs;
+import edu.cmu.project4.benchmarks.Stubs.CountingOutputStream;
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+import edu.cmu.project4.server.biz.FixedPrice;
+import edu.cmu.project4.server.config.AppAttributes;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * JSON response body written by {@link PriceServlet} for a successful quote. {@code respondWithMap} keeps
+ * the former map plus {@code ObjectMapper} approach as a baseline; run with {@code -prof gc} to compare.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QuoteSerializationBenchmark {
+    private PriceServlet servlet;
+    private PriceQuote quote;
+    private CountingOutputStream body;
+    private HttpServletResponse response;
+
+    private ObjectMapper mapper;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = new ObjectMapper();
+        servlet = new PriceServlet();
+        servlet.init(Stubs.servletConfig(Map.of(AppAttributes.OBJECT_MAPPER, mapper)));
+        quote = new PriceQuote("BTCUSD", FixedPrice.parse("64123.45678900"), Instant.parse("2026-01-15T10:15:30.123456Z"));
+        body = new CountingOutputStream();
+        response = Stubs.response(body);
+    }
+
+    @Benchmark
+    public long respondWithQuote() throws Exception {
+        servlet.respondWithQuote(response, quote);
+        return body.getCount();
+    }
+
+    @Benchmark
+    public long respondWithMap() throws Exception {
+        response.setContentType("application/json");
+        Map<String, Object> map = new HashMap<>();
+        map.put("symbol", quote.getSymbol());
+        map.put("price", quote.getPrice());
+        map.put("fetchedAt", quote.getFetchedAt().toString());
+        mapper.writeValue(response.getOutputStream(), map);
+        return body.getCount();
+    }
+}
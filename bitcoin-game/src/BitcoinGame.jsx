@@ -46,6 +46,16 @@ const FallCandles = ({ className }) => (
   </svg>
 );
 
+// Stable per-install id sent as `clientId`, so the server rate-limits this player rather than everyone sharing its address.
+const getClientId = () => {
+  let id = localStorage.getItem('cryptoClientId');
+  if (!id) {
+    id = window.crypto?.randomUUID ? window.crypto.randomUUID() : `${Date.now().toString(36)}${Math.random().toString(36).slice(2)}`;
+    localStorage.setItem('cryptoClientId', id);
+  }
+  return id;
+};
+
 const BitcoinGame = ({ onBack }) => {
   // --- Game State ---
   const [balance, setBalance] = useState(12345);
@@ -118,22 +128,52 @@ const BitcoinGame = ({ onBack }) => {
   // --- Price Fetcher (backend) ---
   useEffect(() => {
     if (!baseUrl) return;
+    const applyPrice = (data) => {
+      const price = parseFloat(data.price);
+      if (!Number.isNaN(price)) {
+        currentPriceRef.current = price;
+        setCurrentPrice(price);
+      }
+    };
+    const clientId = encodeURIComponent(getClientId());
     const fetchPrice = async () => {
       try {
-        const res = await fetch(`${baseUrl}api/price?symbol=BTCUSD`);
-        const data = await res.json();
-        const price = parseFloat(data.price);
-        if (!Number.isNaN(price)) {
-          currentPriceRef.current = price;
-          setCurrentPrice(price);
-        }
+        const res = await fetch(`${baseUrl}api/price?symbol=BTCUSD&clientId=${clientId}`);
+        applyPrice(await res.json());
       } catch (err) {
         console.error('Failed to fetch price', err);
       }
     };
-    fetchPrice();
-    priceUpdateRef.current = setInterval(fetchPrice, 1000);
-    return () => clearInterval(priceUpdateRef.current);
+    const startPolling = () => {
+      if (priceUpdateRef.current) return;
+      fetchPrice();
+      priceUpdateRef.current = setInterval(fetchPrice, 1000);
+    };
+
+    // Prefer the server push stream; fall back to 1s polling if EventSource is unavailable or the stream fails.
+    let source = null;
+    if (typeof window.EventSource !== 'undefined') {
+      source = new EventSource(`${baseUrl}api/price/stream?symbols=BTCUSD&clientId=${clientId}`);
+      source.addEventListener('price', (event) => {
+        try {
+          applyPrice(JSON.parse(event.data));
+        } catch (err) {
+          console.error('Bad price event', err);
+        }
+      });
+      source.onerror = () => {
+        if (source.readyState === EventSource.CLOSED) {
+          startPolling();
+        }
+      };
+    } else {
+      startPolling();
+    }
+    return () => {
+      if (source) source.close();
+      clearInterval(priceUpdateRef.current);
+      priceUpdateRef.current = null;
+    };
   }, [baseUrl]);
 
   // --- History Management ---
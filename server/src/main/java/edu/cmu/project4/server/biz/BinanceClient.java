@@ -4,8 +4,11 @@
 
 package edu.cmu.project4.server.biz;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import edu.cmu.project4.server.metrics.LatencyMetrics;
+import edu.cmu.project4.server.metrics.ServiceMetrics;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -17,23 +20,53 @@ import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simple HTTP client around the Binance ticker endpoint.
  */
-public class BinanceClient {
+public class BinanceClient implements QuoteSource {
+    // Request weights of the ticker price endpoint: one symbol, or a symbols list / every symbol.
+    private static final int SINGLE_TICKER_WEIGHT = 2;
+    private static final int BATCH_TICKER_WEIGHT = 4;
+
     private final HttpClient httpClient;
-    private final ObjectMapper mapper;
+    private final JsonFactory jsonFactory;
     private final String baseUrl;
+    private final WeightGovernor governor;
+    private final LatencyMetrics latencyMetrics;
+    private final ServiceMetrics serviceMetrics;
 
     public BinanceClient(String baseUrl) {
+        this(baseUrl, null, null, null);
+    }
+
+    public BinanceClient(String baseUrl, LatencyMetrics latencyMetrics, ServiceMetrics serviceMetrics) {
+        this(baseUrl, null, latencyMetrics, serviceMetrics);
+    }
+
+    /**
+     * @param governor request-weight governor for this endpoint, or {@code null} to send without limit
+     */
+    public BinanceClient(String baseUrl, WeightGovernor governor, LatencyMetrics latencyMetrics, ServiceMetrics serviceMetrics) {
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(5))
                 .build();
-        this.mapper = new ObjectMapper();
+        this.jsonFactory = new JsonFactory();
         this.baseUrl = baseUrl;
+        this.governor = governor;
+        this.latencyMetrics = latencyMetrics;
+        this.serviceMetrics = serviceMetrics;
     }
 
+    @Override
     public PriceResult fetchPrice(String symbol) throws IOException, InterruptedException, BinanceClientException {
         String normalizedSymbol = symbol.toUpperCase();
         String url = baseUrl + "?symbol=" + URLEncoder.encode(normalizedSymbol, StandardCharsets.UTF_8);
@@ -42,27 +75,254 @@ public class BinanceClient {
                 .timeout(Duration.ofSeconds(10))
                 .GET()
                 .build();
+        throttle(normalizedSymbol, SINGLE_TICKER_WEIGHT);
+        Instant start = Instant.now();
+        HttpResponse<byte[]> response = send(request, normalizedSymbol, start);
+        return toPriceResult(normalizedSymbol, url, response, start);
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchPrice(String)}. No thread waits on Binance; the future fails with
+     * the same {@link IOException} or {@link BinanceClientException} the blocking call would throw, wrapped
+     * in a {@link CompletionException}. A call held back by the governor waits on a timer, not a thread.
+     */
+    @Override
+    public CompletableFuture<PriceResult> fetchPriceAsync(String symbol) {
+        String normalizedSymbol = symbol.toUpperCase();
+        String url = baseUrl + "?symbol=" + URLEncoder.encode(normalizedSymbol, StandardCharsets.UTF_8);
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .timeout(Duration.ofSeconds(10))
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long waitMs;
+        try {
+            waitMs = governor == null ? 0 : governor.acquire(normalizedSymbol, SINGLE_TICKER_WEIGHT);
+        } catch (BinanceClientException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (waitMs > 0) {
+            return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(waitMs, TimeUnit.MILLISECONDS))
+                    .thenCompose(ignored -> sendAsync(normalizedSymbol, url, request));
+        }
+        return sendAsync(normalizedSymbol, url, request);
+    }
+
+    private CompletableFuture<PriceResult> sendAsync(String symbol, String url, HttpRequest request) {
         Instant start = Instant.now();
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> {
+                    if (error != null && unwrap(error) instanceof IOException) {
+                        recordIoError(symbol, start);
+                    }
+                })
+                .thenApply(response -> {
+                    try {
+                        return toPriceResult(symbol, url, response, start);
+                    } catch (IOException | BinanceClientException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    /**
+     * Strips the {@link CompletionException} layer added by {@link CompletableFuture} pipelines.
+     */
+    public static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    private PriceResult toPriceResult(String symbol, String url, HttpResponse<byte[]> response, Instant start)
+            throws IOException, BinanceClientException {
         long latencyMs = Duration.between(start, Instant.now()).toMillis();
+        recordUpstream(symbol, latencyMs, response);
         if (response.statusCode() != 200) {
-            throw new BinanceClientException("Unexpected Binance status", response.statusCode(), latencyMs, response.body());
+            throw new BinanceClientException("Unexpected Binance status", response.statusCode(), latencyMs, text(response.body()));
         }
-        JsonNode root = mapper.readTree(response.body());
-        JsonNode priceNode = root.get("price");
-        if (priceNode == null) {
-            throw new BinanceClientException("Response missing price field", response.statusCode(), latencyMs, response.body());
-        }
-        BigDecimal price = new BigDecimal(priceNode.asText());
-        Instant fetchedAt = Instant.now();
-        PriceQuote quote = new PriceQuote(normalizedSymbol, price, fetchedAt);
+        PriceQuote quote = parseQuote(symbol, response.body(), response.statusCode(), latencyMs);
         return new PriceResult(quote, response.statusCode(), latencyMs, url);
     }
 
+    /**
+     * Parses a single-symbol ticker body such as {@code {"symbol":"BTCUSD","price":"64000.01"}} with a
+     * streaming parser: no tree and no intermediate strings, the price is read straight into a {@link FixedPrice}.
+     */
+    PriceQuote parseQuote(String symbol, byte[] body, int statusCode, long latencyMs)
+            throws IOException, BinanceClientException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new BinanceClientException("Response is not a ticker object", statusCode, latencyMs, text(body));
+            }
+            long price = FixedPrice.NONE;
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                parser.nextToken();
+                if ("price".equals(field)) {
+                    price = readPrice(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (price == FixedPrice.NONE) {
+                throw new BinanceClientException("Response missing price field", statusCode, latencyMs, text(body));
+            }
+            return new PriceQuote(symbol, price, Instant.now());
+        }
+    }
+
+    /**
+     * Fetches several symbols with one request using the {@code symbols=[...]} form of the ticker endpoint.
+     * Binance rejects the whole batch if any symbol is invalid.
+     */
+    @Override
+    public BatchPriceResult fetchPrices(Collection<String> symbols) throws IOException, InterruptedException, BinanceClientException {
+        Set<String> normalizedSymbols = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            normalizedSymbols.add(symbol.toUpperCase());
+        }
+        String url = batchUrl(normalizedSymbols);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        throttle(null, BATCH_TICKER_WEIGHT);
+        Instant start = Instant.now();
+        HttpResponse<byte[]> response = send(request, null, start);
+        long latencyMs = Duration.between(start, Instant.now()).toMillis();
+        recordUpstream(null, latencyMs, response);
+        if (response.statusCode() != 200) {
+            throw new BinanceClientException("Unexpected Binance status", response.statusCode(), latencyMs, text(response.body()));
+        }
+        List<PriceQuote> quotes = parseQuotes(response.body(), response.statusCode(), latencyMs);
+        return new BatchPriceResult(quotes, response.statusCode(), latencyMs, url);
+    }
+
+    /**
+     * Parses a ticker array such as {@code [{"symbol":"BTCUSD","price":"64000.01"}, ...]}.
+     */
+    List<PriceQuote> parseQuotes(byte[] body, int statusCode, long latencyMs) throws IOException, BinanceClientException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BinanceClientException("Response is not a ticker array", statusCode, latencyMs, text(body));
+            }
+            Instant fetchedAt = Instant.now();
+            List<PriceQuote> quotes = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String symbol = null;
+                long price = FixedPrice.NONE;
+                String field;
+                while ((field = parser.nextFieldName()) != null) {
+                    parser.nextToken();
+                    if ("symbol".equals(field)) {
+                        symbol = parser.getValueAsString();
+                    } else if ("price".equals(field)) {
+                        price = readPrice(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (symbol == null || price == FixedPrice.NONE) {
+                    throw new BinanceClientException("Ticker missing symbol or price field", statusCode, latencyMs, text(body));
+                }
+                quotes.add(new PriceQuote(symbol, price, fetchedAt));
+            }
+            return quotes;
+        }
+    }
+
+    /**
+     * Binance quotes prices as strings; scale them straight from the parser's character buffer.
+     */
+    private static long readPrice(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return FixedPrice.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        return FixedPrice.fromBigDecimal(parser.getDecimalValue());
+    }
+
+    private static String text(byte[] body) {
+        return body == null ? null : new String(body, StandardCharsets.UTF_8);
+    }
+
+    private void throttle(String symbol, int weight) throws InterruptedException, BinanceClientException {
+        long waitMs = governor == null ? 0 : governor.acquire(symbol, weight);
+        if (waitMs > 0) {
+            Thread.sleep(waitMs);
+        }
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request, String symbol, Instant start)
+            throws IOException, InterruptedException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            recordIoError(symbol, start);
+            throw e;
+        }
+    }
+
+    /**
+     * Timeouts and resets are the tail we most want to see, so they are recorded too.
+     */
+    private void recordIoError(String symbol, Instant start) {
+        if (latencyMetrics != null) {
+            latencyMetrics.recordUpstream(symbol, Duration.between(start, Instant.now()).toMillis());
+        }
+        if (serviceMetrics != null) {
+            serviceMetrics.upstreamIoError();
+        }
+    }
+
+    private void recordUpstream(String symbol, long latencyMs, HttpResponse<?> response) {
+        if (governor != null) {
+            governor.onResponse(response.statusCode(),
+                    response.headers().firstValueAsLong(WeightGovernor.USED_WEIGHT_HEADER).orElse(-1),
+                    response.headers().firstValueAsLong("Retry-After").orElse(-1));
+        }
+        if (latencyMetrics != null) {
+            latencyMetrics.recordUpstream(symbol, latencyMs);
+        }
+        if (serviceMetrics != null) {
+            serviceMetrics.upstreamResponse(response.statusCode());
+        }
+    }
+
+    private String batchUrl(Set<String> symbols) {
+        if (symbols.isEmpty()) {
+            // No filter returns every ticker on the exchange.
+            return baseUrl;
+        }
+        StringBuilder array = new StringBuilder("[");
+        for (String symbol : symbols) {
+            if (array.length() > 1) {
+                array.append(',');
+            }
+            array.append('"').append(symbol).append('"');
+        }
+        array.append(']');
+        return baseUrl + "?symbols=" + URLEncoder.encode(array.toString(), StandardCharsets.UTF_8);
+    }
+
     public String getBaseUrl() {
         return baseUrl;
     }
 
+    /**
+     * @return this endpoint's governor, or {@code null} when calls are not limited
+     */
+    public WeightGovernor getGovernor() {
+        return governor;
+    }
+
     public static final class PriceResult {
         private final PriceQuote quote;
         private final int statusCode;
@@ -93,16 +353,52 @@ public class BinanceClient {
         }
     }
 
+    public static final class BatchPriceResult {
+        private final List<PriceQuote> quotes;
+        private final int statusCode;
+        private final long latencyMs;
+        private final String endpoint;
+
+        public BatchPriceResult(List<PriceQuote> quotes, int statusCode, long latencyMs, String endpoint) {
+            this.quotes = quotes;
+            this.statusCode = statusCode;
+            this.latencyMs = latencyMs;
+            this.endpoint = endpoint;
+        }
+
+        public List<PriceQuote> getQuotes() {
+            return quotes;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public long getLatencyMs() {
+            return latencyMs;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+    }
+
     public static final class BinanceClientException extends Exception {
         private final int statusCode;
         private final long latencyMs;
         private final String responseBody;
+        private final boolean throttled;
 
         public BinanceClientException(String message, int statusCode, long latencyMs, String responseBody) {
+            this(message, statusCode, latencyMs, responseBody, false);
+        }
+
+        public BinanceClientException(String message, int statusCode, long latencyMs, String responseBody, boolean throttled) {
             super(message);
             this.statusCode = statusCode;
             this.latencyMs = latencyMs;
             this.responseBody = responseBody;
+            this.throttled = throttled;
         }
 
         public int getStatusCode() {
@@ -116,29 +412,67 @@ public class BinanceClient {
         public String getResponseBody() {
             return responseBody;
         }
+
+        /**
+         * True when the call was held back by the {@link WeightGovernor} and never sent to Binance.
+         */
+        public boolean isThrottled() {
+            return throttled;
+        }
+
+        /**
+         * True for 4xx answers other than rate limiting (429, and 418 once Binance has banned the IP): Binance
+         * is healthy but refuses this request, for example an unknown symbol, and will keep refusing it.
+         */
+        public boolean isRejected() {
+            return statusCode >= 400 && statusCode < 500 && statusCode != 418 && statusCode != 429;
+        }
     }
 
     public static final class PriceQuote {
         private final String symbol;
-        private final BigDecimal price;
+        private final long price;
         private final Instant fetchedAt;
+        private final boolean lastGood;
+
+        /**
+         * @param price scaled as a {@link FixedPrice}
+         */
+        public PriceQuote(String symbol, long price, Instant fetchedAt) {
+            this(symbol, price, fetchedAt, false);
+        }
 
-        public PriceQuote(String symbol, BigDecimal price, Instant fetchedAt) {
+        public PriceQuote(String symbol, long price, Instant fetchedAt, boolean lastGood) {
             this.symbol = symbol;
             this.price = price;
             this.fetchedAt = fetchedAt;
+            this.lastGood = lastGood;
         }
 
         public String getSymbol() {
             return symbol;
         }
 
-        public BigDecimal getPrice() {
+        /**
+         * @return the price scaled as a {@link FixedPrice}
+         */
+        public long getScaledPrice() {
             return price;
         }
 
+        public BigDecimal getPrice() {
+            return FixedPrice.toBigDecimal(price);
+        }
+
         public Instant getFetchedAt() {
             return fetchedAt;
         }
+
+        /**
+         * True when Binance could not be reached and this is the last quote that was, served as a fallback.
+         */
+        public boolean isLastGood() {
+            return lastGood;
+        }
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+/**
+ * Candle widths kept by {@link TickHistory}.
+ */
+public enum CandleInterval {
+    SECOND("1s", 1_000L),
+    MINUTE("1m", 60_000L),
+    FIVE_MINUTES("5m", 300_000L);
+
+    private final String label;
+    private final long widthMs;
+
+    CandleInterval(String label, long widthMs) {
+        this.label = label;
+        this.widthMs = widthMs;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getWidthMs() {
+        return widthMs;
+    }
+
+    /**
+     * Start of the candle containing {@code epochMs}.
+     */
+    public long truncate(long epochMs) {
+        return epochMs - Math.floorMod(epochMs, widthMs);
+    }
+
+    /**
+     * Parses a label such as {@code 1m}; returns {@code null} for anything else.
+     */
+    public static CandleInterval parse(String label) {
+        for (CandleInterval interval : values()) {
+            if (interval.label.equalsIgnoreCase(label)) {
+                return interval;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count-based circuit breaker for one upstream endpoint. The last {@code windowSize} calls are kept in a
+ * ring; once at least {@code minCalls} are recorded and the share of failed or slow calls reaches the
+ * threshold, the breaker opens and rejects calls for {@code openMs}. After that a single probe call is let
+ * through: success closes the breaker with a fresh window, failure opens it again.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED(0),
+        OPEN(1),
+        HALF_OPEN(2);
+
+        private final int code;
+
+        State(int code) {
+            this.code = code;
+        }
+
+        /**
+         * Numeric form for gauges: 0 closed, 1 open, 2 half-open.
+         */
+        public int getCode() {
+            return code;
+        }
+    }
+
+    private final String name;
+    private final boolean[] outcomes;
+    private final int minCalls;
+    private final int failureRatePercent;
+    private final long slowCallMs;
+    private final long openMs;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    private State state = State.CLOSED;
+    private int next;
+    private int recorded;
+    private int failures;
+    private long openedAtMs;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, int windowSize, int minCalls, int failureRatePercent, long slowCallMs, long openMs) {
+        this.name = name;
+        this.outcomes = new boolean[Math.max(1, windowSize)];
+        this.minCalls = Math.max(1, Math.min(minCalls, outcomes.length));
+        this.failureRatePercent = failureRatePercent;
+        this.slowCallMs = slowCallMs;
+        this.openMs = openMs;
+    }
+
+    /**
+     * Returns whether a call may go ahead. Every permitted call must be followed by {@link #record} or
+     * {@link #release}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAtMs < openMs) {
+                rejected.increment();
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                rejected.increment();
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * Records the result of a permitted call. A call slower than the slow-call threshold counts as failed
+     * even if it returned a quote, so a degraded upstream trips the breaker before it times out.
+     */
+    public synchronized void record(boolean failed, long latencyMs) {
+        boolean bad = failed || latencyMs >= slowCallMs;
+        switch (state) {
+            case HALF_OPEN:
+                probeInFlight = false;
+                if (bad) {
+                    open();
+                } else {
+                    state = State.CLOSED;
+                    resetWindow();
+                }
+                return;
+            case OPEN:
+                // A call started before the breaker opened; the window is already decided.
+                return;
+            default:
+                break;
+        }
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = bad;
+        if (bad) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+        if (recorded >= minCalls && failures * 100 >= failureRatePercent * recorded) {
+            open();
+        }
+    }
+
+    /**
+     * Returns a permit without an outcome, for a call that was never sent. A half-open breaker lets the
+     * next call probe instead.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAtMs >= openMs) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getOpenedCount() {
+        return opened.sum();
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtMs = System.currentTimeMillis();
+        opened.increment();
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket per API client: each holds up to {@code burst} requests and refills at {@code ratePerSecond}.
+ * Buckets are created on a client's first request and swept out once idle long enough to have refilled, so
+ * forgetting them loses nothing. At most {@code maxClients} are kept; clients beyond that share one overflow
+ * bucket, so a flood of made-up client ids cannot grow the map or crowd out the clients already tracked.
+ * <p>
+ * Buckets are guarded by a fixed set of striped locks rather than one lock each or one for the map, so
+ * concurrent clients rarely contend and the lock count does not grow with them.
+ */
+public class ClientRateLimiter {
+    public static final String OVERFLOW_CLIENT = "(other)";
+
+    private static final int STRIPES = 64;
+    private static final long SWEEP_INTERVAL_MS = 10000;
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[STRIPES];
+    private final double capacity;
+    private final double tokensPerNano;
+    private final int maxClients;
+    private final long idleNanos;
+    private final Bucket overflow;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private volatile long sweepAtNanos;
+
+    /**
+     * @param idleMs how long a client must be quiet before its bucket is dropped; raised to the time a bucket
+     *               takes to refill completely
+     */
+    public ClientRateLimiter(long ratePerSecond, long burst, int maxClients, long idleMs) {
+        this.capacity = Math.max(1, burst);
+        this.tokensPerNano = Math.max(1, ratePerSecond) / (double) TimeUnit.SECONDS.toNanos(1);
+        this.maxClients = maxClients;
+        this.idleNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(idleMs), (long) Math.ceil(capacity / tokensPerNano));
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        long now = System.nanoTime();
+        this.overflow = new Bucket(capacity, now);
+        this.sweepAtNanos = now + TimeUnit.MILLISECONDS.toNanos(SWEEP_INTERVAL_MS);
+    }
+
+    /**
+     * Takes one token from {@code client}'s bucket.
+     *
+     * @return 0 when the request may proceed, otherwise the milliseconds until the client has a token again
+     */
+    public long acquire(String client) {
+        long now = System.nanoTime();
+        sweepIfDue(now);
+        String key = client;
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxClients) {
+                key = OVERFLOW_CLIENT;
+                bucket = overflow;
+            } else {
+                bucket = buckets.computeIfAbsent(key, ignored -> new Bucket(capacity, now));
+            }
+        }
+        long waitNanos;
+        synchronized (lockFor(key)) {
+            waitNanos = bucket.take(now, capacity, tokensPerNano);
+        }
+        if (waitNanos == 0) {
+            return 0;
+        }
+        rejected.increment();
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    public int getClientCount() {
+        return buckets.size();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getEvictedCount() {
+        return evicted.sum();
+    }
+
+    private void sweepIfDue(long now) {
+        if (now - sweepAtNanos < 0) {
+            return;
+        }
+        synchronized (this) {
+            if (now - sweepAtNanos < 0) {
+                return;
+            }
+            sweepAtNanos = now + TimeUnit.MILLISECONDS.toNanos(SWEEP_INTERVAL_MS);
+        }
+        for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+            synchronized (lockFor(entry.getKey())) {
+                if (now - entry.getValue().usedAtNanos >= idleNanos && buckets.remove(entry.getKey(), entry.getValue())) {
+                    evicted.increment();
+                }
+            }
+        }
+    }
+
+    private Object lockFor(String key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Mutated only under the stripe lock of its client.
+     */
+    private static final class Bucket {
+        private double tokens;
+        private long refilledAtNanos;
+        private long usedAtNanos;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAtNanos = now;
+            this.usedAtNanos = now;
+        }
+
+        /**
+         * @return 0 when a token was taken, otherwise nanoseconds until one is available
+         */
+        private long take(long now, double capacity, double tokensPerNano) {
+            tokens = Math.min(capacity, tokens + Math.max(0, now - refilledAtNanos) * tokensPerNano);
+            refilledAtNanos = now;
+            usedAtNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Prices as {@code long}s scaled by 10^{@value #SCALE}, the precision Binance quotes in. Quotes, request logs
+ * and the tick history carry prices in this form: parsing, comparing and formatting them allocates nothing,
+ * and {@link BigDecimal} is only built where an API needs one.
+ * <p>
+ * Formatting always writes all {@value #SCALE} decimal places, as Binance does, so {@code "64000.01000000"}
+ * parses and formats back to the same text.
+ */
+public final class FixedPrice {
+    public static final int SCALE = 8;
+    public static final long ONE = 100_000_000L;
+
+    /**
+     * Marks an absent price in a {@code long} field.
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * Longest formatted price: sign, 11 integer digits, point and {@value #SCALE} decimal places.
+     */
+    public static final int MAX_CHARS = 21;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+
+    private FixedPrice() {
+    }
+
+    /**
+     * Parses a plain decimal such as {@code 64000.01}, as found in Binance price strings. Decimal places beyond
+     * {@value #SCALE} must be zeros.
+     *
+     * @throws NumberFormatException if the text is not a plain decimal or does not fit
+     */
+    public static long parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        boolean negative = i < end && chars[i] == '-';
+        if (negative || i < end && chars[i] == '+') {
+            i++;
+        }
+        long value = 0;
+        int decimals = -1;
+        boolean digits = false;
+        try {
+            for (; i < end; i++) {
+                char c = chars[i];
+                if (c == '.' && decimals < 0) {
+                    decimals = 0;
+                    continue;
+                }
+                if (c < '0' || c > '9') {
+                    throw new NumberFormatException("Not a plain decimal: " + new String(chars, offset, length));
+                }
+                digits = true;
+                if (decimals == SCALE) {
+                    if (c != '0') {
+                        throw new NumberFormatException("More than " + SCALE + " decimal places: "
+                                + new String(chars, offset, length));
+                    }
+                    continue;
+                }
+                if (decimals >= 0) {
+                    decimals++;
+                }
+                value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+            }
+            value = Math.multiplyExact(value, POWERS_OF_TEN[SCALE - Math.max(decimals, 0)]);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Price out of range: " + new String(chars, offset, length));
+        }
+        if (!digits) {
+            throw new NumberFormatException("Not a plain decimal: " + new String(chars, offset, length));
+        }
+        return negative ? -value : value;
+    }
+
+    public static long parse(String text) {
+        return parse(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * Writes {@code scaled} with {@value #SCALE} decimal places into {@code buffer}, which needs
+     * {@link #MAX_CHARS} free chars from {@code offset}.
+     *
+     * @return the index after the last char written
+     */
+    public static int format(long scaled, char[] buffer, int offset) {
+        int position = offset;
+        long magnitude = scaled;
+        if (scaled < 0) {
+            buffer[position++] = '-';
+            magnitude = -scaled;
+        }
+        long integer = magnitude / ONE;
+        long fraction = magnitude % ONE;
+        int integerDigits = 1;
+        for (long rest = integer / 10; rest > 0; rest /= 10) {
+            integerDigits++;
+        }
+        int end = position + integerDigits + 1 + SCALE;
+        int i = end;
+        for (int d = 0; d < SCALE; d++) {
+            buffer[--i] = (char) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        buffer[--i] = '.';
+        do {
+            buffer[--i] = (char) ('0' + integer % 10);
+            integer /= 10;
+        } while (integer > 0);
+        return end;
+    }
+
+    public static StringBuilder append(StringBuilder builder, long scaled) {
+        long magnitude = scaled;
+        if (scaled < 0) {
+            builder.append('-');
+            magnitude = -scaled;
+        }
+        builder.append(magnitude / ONE).append('.');
+        long fraction = magnitude % ONE;
+        for (long unit = ONE / 10; unit > 0; unit /= 10) {
+            builder.append((char) ('0' + fraction / unit % 10));
+        }
+        return builder;
+    }
+
+    public static String toString(long scaled) {
+        return append(new StringBuilder(MAX_CHARS), scaled).toString();
+    }
+
+    /**
+     * @return {@code null} for {@link #NONE}
+     */
+    public static BigDecimal toBigDecimal(long scaled) {
+        return scaled == NONE ? null : BigDecimal.valueOf(scaled, SCALE);
+    }
+
+    /**
+     * Rounds half up to {@value #SCALE} decimal places.
+     *
+     * @throws ArithmeticException if the price does not fit
+     */
+    public static long fromBigDecimal(BigDecimal price) {
+        return price.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
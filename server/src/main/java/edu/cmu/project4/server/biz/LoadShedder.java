@@ -0,0 +1,72 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import edu.cmu.project4.server.metrics.HistogramSnapshot;
+import edu.cmu.project4.server.metrics.LatencyMetrics;
+import edu.cmu.project4.server.metrics.TimeWindow;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when the price endpoint is too busy to take another request. Requests are shed once
+ * {@code maxInFlight} are already being served; while the recent upstream p95 is at or above
+ * {@code slowUpstreamMs} the limit drops to {@code slowMaxInFlight}, because each admitted request then holds
+ * its thread or socket for longer and queues build up behind Binance. Requests keep flowing under the lower
+ * limit, so fresh latency samples lift it again once Binance recovers.
+ */
+public class LoadShedder {
+    // Below this many samples the p95 is noise and the upstream counts as healthy.
+    private static final long MIN_SAMPLES = 20;
+    private static final long P95_REFRESH_MS = 1000;
+
+    private final LatencyMetrics latencyMetrics;
+    private final long maxInFlight;
+    private final long slowUpstreamMs;
+    private final long slowMaxInFlight;
+    private final LongAdder shed = new LongAdder();
+    private volatile boolean upstreamSlow;
+    private volatile long checkedAtMs;
+
+    public LoadShedder(LatencyMetrics latencyMetrics, long maxInFlight, long slowUpstreamMs, long slowMaxInFlight) {
+        this.latencyMetrics = latencyMetrics;
+        this.maxInFlight = maxInFlight;
+        this.slowUpstreamMs = slowUpstreamMs;
+        this.slowMaxInFlight = Math.min(maxInFlight, slowMaxInFlight);
+    }
+
+    /**
+     * @param inFlight requests being served, not counting the one asking
+     * @return whether to turn the request away
+     */
+    public boolean shouldShed(long inFlight) {
+        if (inFlight < slowMaxInFlight) {
+            return false;
+        }
+        if (inFlight < (isUpstreamSlow() ? slowMaxInFlight : maxInFlight)) {
+            return false;
+        }
+        shed.increment();
+        return true;
+    }
+
+    /**
+     * True when the upstream p95 over the last minute is at or above the threshold, recomputed at most once a
+     * second.
+     */
+    public boolean isUpstreamSlow() {
+        long now = System.currentTimeMillis();
+        if (now - checkedAtMs >= P95_REFRESH_MS) {
+            HistogramSnapshot snapshot = latencyMetrics.getUpstream().snapshot(TimeWindow.ONE_MINUTE);
+            upstreamSlow = snapshot.getCount() >= MIN_SAMPLES && snapshot.getP95() >= slowUpstreamMs;
+            checkedAtMs = now;
+        }
+        return upstreamSlow;
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps {@link QuoteTable} current from Binance's combined-stream WebSocket. While the socket is down or
+ * silent for longer than the staleness window, {@link BinanceClient#fetchPrices} is polled instead, and the socket
+ * is reconnected with exponential backoff.
+ */
+public class PriceStreamer {
+    private static final Logger LOGGER = Logger.getLogger(PriceStreamer.class.getName());
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long WATCHDOG_INTERVAL_MS = 1000;
+
+    private final QuoteTable table;
+    private final Set<String> symbols;
+    private final String streamUrl;
+    private final BinanceClient client;
+    private final long fallbackPollMs;
+    private final long maxBackoffMs;
+    private final HttpClient httpClient;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong lastMessageNanos = new AtomicLong();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder fallbackPolls = new LongAdder();
+    private volatile WebSocket webSocket;
+    private volatile boolean connecting;
+    private volatile boolean running;
+    private volatile long backoffMs = INITIAL_BACKOFF_MS;
+    private volatile long lastPollNanos;
+
+    public PriceStreamer(QuoteTable table, List<String> symbols, String streamUrl, BinanceClient client,
+                         long fallbackPollMs, long maxBackoffMs) {
+        this.table = table;
+        this.symbols = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            if (!symbol.isBlank()) {
+                this.symbols.add(symbol.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        this.streamUrl = streamUrl;
+        this.client = client;
+        this.fallbackPollMs = fallbackPollMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-streamer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        running = true;
+        scheduler.execute(this::connect);
+        scheduler.scheduleWithFixedDelay(this::watchdog, WATCHDOG_INTERVAL_MS, WATCHDOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        running = false;
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            socket.abort();
+        }
+        scheduler.shutdownNow();
+    }
+
+    public boolean isConnected() {
+        WebSocket socket = webSocket;
+        return socket != null && !socket.isInputClosed();
+    }
+
+    public Set<String> getSymbols() {
+        return symbols;
+    }
+
+    public long getMessageCount() {
+        return messages.sum();
+    }
+
+    public long getReconnectCount() {
+        return reconnects.sum();
+    }
+
+    public long getFallbackPollCount() {
+        return fallbackPolls.sum();
+    }
+
+    private void connect() {
+        if (!running || connecting) {
+            return;
+        }
+        connecting = true;
+        URI uri = URI.create(streamUrl + "?streams=" + streamNames());
+        httpClient.newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .buildAsync(uri, new StreamListener())
+                .whenComplete((socket, error) -> {
+                    connecting = false;
+                    if (error != null) {
+                        LOGGER.log(Level.WARNING, "Price stream connect failed: " + error.getMessage());
+                        scheduleReconnect();
+                        return;
+                    }
+                    webSocket = socket;
+                    lastMessageNanos.set(System.nanoTime());
+                    backoffMs = INITIAL_BACKOFF_MS;
+                });
+    }
+
+    private void scheduleReconnect() {
+        webSocket = null;
+        if (!running) {
+            return;
+        }
+        long delay = backoffMs;
+        backoffMs = Math.min(maxBackoffMs, backoffMs * 2);
+        // Jitter keeps a fleet of servers from reconnecting in lockstep after a Binance-side drop.
+        long jittered = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        reconnects.increment();
+        scheduler.schedule(this::connect, jittered, TimeUnit.MILLISECONDS);
+    }
+
+    private void watchdog() {
+        try {
+            long silentMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastMessageNanos.get());
+            WebSocket socket = webSocket;
+            if (socket != null && silentMs > table.getStaleAfterMs()) {
+                LOGGER.warning("Price stream silent for " + silentMs + " ms; reconnecting");
+                webSocket = null;
+                socket.abort();
+                scheduleReconnect();
+            }
+            boolean streaming = socket != null && silentMs <= table.getStaleAfterMs();
+            long sinceLastPollMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastPollNanos);
+            if (!streaming && sinceLastPollMs >= fallbackPollMs) {
+                pollTickers();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Price stream watchdog failed", e);
+        }
+    }
+
+    private void pollTickers() {
+        lastPollNanos = System.nanoTime();
+        fallbackPolls.increment();
+        try {
+            for (PriceQuote quote : client.fetchPrices(symbols).getQuotes()) {
+                table.update(quote);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Fallback ticker poll failed: " + e.getMessage());
+        }
+    }
+
+    private void handleMessage(String text) {
+        lastMessageNanos.set(System.nanoTime());
+        messages.increment();
+        try {
+            // Combined stream envelope: {"stream":"btcusdt@miniTicker","data":{"s":"BTCUSDT","c":"64000.01",...}}
+            JsonNode data = mapper.readTree(text).path("data");
+            String symbol = data.path("s").asText(null);
+            JsonNode close = data.get("c");
+            if (symbol != null && close != null && symbols.contains(symbol)) {
+                table.update(new PriceQuote(symbol, FixedPrice.parse(close.asText()), Instant.now()));
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Ignoring malformed stream message", e);
+        }
+    }
+
+    private String streamNames() {
+        List<String> names = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            names.add(symbol.toLowerCase(Locale.ROOT) + "@miniTicker");
+        }
+        return String.join("/", names);
+    }
+
+    private final class StreamListener implements WebSocket.Listener {
+        private final StringBuilder partial = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket socket, CharSequence data, boolean last) {
+            partial.append(data);
+            if (last) {
+                String message = partial.toString();
+                partial.setLength(0);
+                handleMessage(message);
+            }
+            socket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket socket, ByteBuffer data, boolean last) {
+            socket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket socket, int statusCode, String reason) {
+            LOGGER.info("Price stream closed (" + statusCode + " " + reason + ")");
+            if (webSocket == socket) {
+                scheduleReconnect();
+            }
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket socket, Throwable error) {
+            LOGGER.log(Level.WARNING, "Price stream error: " + error.getMessage());
+            if (webSocket == socket) {
+                scheduleReconnect();
+            }
+        }
+    }
+}
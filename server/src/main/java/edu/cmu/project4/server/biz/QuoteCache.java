@@ -0,0 +1,346 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import edu.cmu.project4.server.biz.BinanceClient.BatchPriceResult;
+import edu.cmu.project4.server.biz.BinanceClient.BinanceClientException;
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+import edu.cmu.project4.server.biz.BinanceClient.PriceResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Per-symbol quote cache in front of a {@link QuoteSource}. Fresh quotes are served from memory and
+ * concurrent misses for the same symbol share a single upstream call. When a {@link QuoteTable} is attached,
+ * streamed quotes for tracked symbols are answered first without any upstream call.
+ */
+public class QuoteCache {
+    public static final String STREAM_ENDPOINT = "stream";
+
+    private final QuoteSource client;
+    private final QuoteTable streamTable;
+    private final long ttlNanos;
+    private final ConcurrentMap<String, CachedQuote> quotes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<PriceResult>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder streamHits = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final List<Consumer<String>> demandListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<PriceQuote>> quoteListeners = new CopyOnWriteArrayList<>();
+
+    public QuoteCache(QuoteSource client, long ttlMs) {
+        this(client, null, ttlMs);
+    }
+
+    public QuoteCache(QuoteSource client, QuoteTable streamTable, long ttlMs) {
+        this.client = client;
+        this.streamTable = streamTable;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMs));
+    }
+
+    /**
+     * Registers a callback invoked with every symbol requested, whether or not it is then served from memory.
+     */
+    public void addDemandListener(Consumer<String> listener) {
+        demandListeners.add(listener);
+    }
+
+    /**
+     * Registers a callback invoked with every quote fetched from the {@link QuoteSource}; quotes served from
+     * memory are not repeated.
+     */
+    public void addQuoteListener(Consumer<PriceQuote> listener) {
+        quoteListeners.add(listener);
+    }
+
+    public PriceResult fetchPrice(String symbol) throws IOException, InterruptedException, BinanceClientException {
+        String normalizedSymbol = symbol.toUpperCase();
+        notifyDemand(normalizedSymbol);
+        PriceResult cached = lookup(normalizedSymbol);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<PriceResult> pending = new CompletableFuture<>();
+        CompletableFuture<PriceResult> existing = inFlight.putIfAbsent(normalizedSymbol, pending);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            // Another caller may have filled the cache between our first lookup and claiming the slot.
+            cached = freshResult(normalizedSymbol);
+            if (cached != null) {
+                hits.increment();
+                pending.complete(cached);
+                return cached;
+            }
+            misses.increment();
+            PriceResult result = client.fetchPrice(normalizedSymbol);
+            quotes.put(normalizedSymbol, new CachedQuote(result, System.nanoTime()));
+            pending.complete(result);
+            notifyQuote(result.getQuote());
+            return result;
+        } catch (IOException | InterruptedException | BinanceClientException | RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(normalizedSymbol, pending);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchPrice(String)} sharing the same cache and in-flight table, so
+     * blocking and non-blocking callers coalesce onto one upstream call.
+     */
+    public CompletableFuture<PriceResult> fetchPriceAsync(String symbol) {
+        String normalizedSymbol = symbol.toUpperCase();
+        notifyDemand(normalizedSymbol);
+        PriceResult cached = lookup(normalizedSymbol);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<PriceResult> pending = new CompletableFuture<>();
+        CompletableFuture<PriceResult> existing = inFlight.putIfAbsent(normalizedSymbol, pending);
+        if (existing != null) {
+            coalesced.increment();
+            // A copy, so one caller cannot cancel or complete the future other callers share.
+            return existing.copy();
+        }
+
+        cached = freshResult(normalizedSymbol);
+        if (cached != null) {
+            hits.increment();
+            pending.complete(cached);
+            inFlight.remove(normalizedSymbol, pending);
+            return pending.copy();
+        }
+        misses.increment();
+        client.fetchPriceAsync(normalizedSymbol).whenComplete((result, error) -> {
+            if (error == null) {
+                quotes.put(normalizedSymbol, new CachedQuote(result, System.nanoTime()));
+                pending.complete(result);
+            } else {
+                pending.completeExceptionally(BinanceClient.unwrap(error));
+            }
+            inFlight.remove(normalizedSymbol, pending);
+            if (error == null) {
+                notifyQuote(result.getQuote());
+            }
+        });
+        return pending.copy();
+    }
+
+    /**
+     * Resolves several symbols, answering fresh ones from memory and fetching all remaining misses with a
+     * single {@link QuoteSource#fetchPrices} call. Misses already being fetched by another caller are
+     * awaited instead of refetched. The returned status and latency describe the upstream call, if any.
+     */
+    public BatchPriceResult fetchPrices(Collection<String> symbols)
+            throws IOException, InterruptedException, BinanceClientException {
+        Set<String> normalizedSymbols = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            normalizedSymbols.add(symbol.toUpperCase());
+        }
+        Map<String, PriceQuote> resolved = new HashMap<>();
+        Map<String, CompletableFuture<PriceResult>> waiting = new HashMap<>();
+        Map<String, CompletableFuture<PriceResult>> claimed = new LinkedHashMap<>();
+        for (String symbol : normalizedSymbols) {
+            notifyDemand(symbol);
+            PriceResult cached = lookup(symbol);
+            if (cached != null) {
+                resolved.put(symbol, cached.getQuote());
+                continue;
+            }
+            CompletableFuture<PriceResult> pending = new CompletableFuture<>();
+            CompletableFuture<PriceResult> existing = inFlight.putIfAbsent(symbol, pending);
+            if (existing != null) {
+                coalesced.increment();
+                waiting.put(symbol, existing);
+            } else {
+                claimed.put(symbol, pending);
+            }
+        }
+
+        int statusCode = 200;
+        long latencyMs = 0;
+        String endpoint = null;
+        if (!claimed.isEmpty()) {
+            misses.add(claimed.size());
+            try {
+                BatchPriceResult batch = client.fetchPrices(claimed.keySet());
+                statusCode = batch.getStatusCode();
+                latencyMs = batch.getLatencyMs();
+                endpoint = batch.getEndpoint();
+                long storedAt = System.nanoTime();
+                for (PriceQuote quote : batch.getQuotes()) {
+                    PriceResult result = new PriceResult(quote, statusCode, latencyMs, endpoint);
+                    quotes.put(quote.getSymbol(), new CachedQuote(result, storedAt));
+                    resolved.put(quote.getSymbol(), quote);
+                    CompletableFuture<PriceResult> pending = claimed.get(quote.getSymbol());
+                    if (pending != null) {
+                        pending.complete(result);
+                    }
+                    notifyQuote(quote);
+                }
+                for (CompletableFuture<PriceResult> pending : claimed.values()) {
+                    pending.completeExceptionally(new BinanceClientException(
+                            "Symbol missing from batch response", statusCode, latencyMs, null));
+                }
+            } catch (IOException | InterruptedException | BinanceClientException | RuntimeException e) {
+                for (CompletableFuture<PriceResult> pending : claimed.values()) {
+                    pending.completeExceptionally(e);
+                }
+                throw e;
+            } finally {
+                for (Map.Entry<String, CompletableFuture<PriceResult>> entry : claimed.entrySet()) {
+                    inFlight.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        for (Map.Entry<String, CompletableFuture<PriceResult>> entry : waiting.entrySet()) {
+            resolved.put(entry.getKey(), await(entry.getValue()).getQuote());
+        }
+
+        List<PriceQuote> ordered = new ArrayList<>(resolved.size());
+        for (String symbol : normalizedSymbols) {
+            PriceQuote quote = resolved.get(symbol);
+            if (quote != null) {
+                ordered.add(quote);
+            }
+        }
+        return new BatchPriceResult(ordered, statusCode, latencyMs, endpoint);
+    }
+
+    public long getTtlMs() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    /**
+     * How long a quote in {@code result} stays fresh from its fetch time at its source: the stream table's
+     * staleness window for streamed quotes, otherwise the cache TTL.
+     */
+    public long getFreshForMs(PriceResult result) {
+        if (streamTable != null && STREAM_ENDPOINT.equals(result.getEndpoint())) {
+            return streamTable.getStaleAfterMs();
+        }
+        return getTtlMs();
+    }
+
+    public boolean isStreaming() {
+        return streamTable != null;
+    }
+
+    public long getStreamHitCount() {
+        return streamHits.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int size() {
+        return quotes.size();
+    }
+
+    private void notifyDemand(String symbol) {
+        for (Consumer<String> listener : demandListeners) {
+            listener.accept(symbol);
+        }
+    }
+
+    private void notifyQuote(PriceQuote quote) {
+        for (Consumer<PriceQuote> listener : quoteListeners) {
+            listener.accept(quote);
+        }
+    }
+
+    /**
+     * Answers from the stream table or the cache, counting the hit; returns {@code null} on a miss.
+     */
+    private PriceResult lookup(String symbol) {
+        if (streamTable != null) {
+            PriceQuote streamed = streamTable.freshQuote(symbol);
+            if (streamed != null) {
+                streamHits.increment();
+                return new PriceResult(streamed, 200, 0, STREAM_ENDPOINT);
+            }
+        }
+        PriceResult cached = freshResult(symbol);
+        if (cached != null) {
+            hits.increment();
+        }
+        return cached;
+    }
+
+    private PriceResult freshResult(String symbol) {
+        CachedQuote cached = quotes.get(symbol);
+        if (cached == null || System.nanoTime() - cached.storedAtNanos >= ttlNanos) {
+            return null;
+        }
+        // Cache hits did not touch Binance, so report zero upstream latency for them.
+        PriceResult result = cached.result;
+        return new PriceResult(result.getQuote(), result.getStatusCode(), 0, result.getEndpoint());
+    }
+
+    private static PriceResult await(CompletableFuture<PriceResult> future)
+            throws IOException, InterruptedException, BinanceClientException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BinanceClientException) {
+                throw (BinanceClientException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw new IOException("Shared Binance request was interrupted", cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static final class CachedQuote {
+        private final PriceResult result;
+        private final long storedAtNanos;
+
+        private CachedQuote(PriceResult result, long storedAtNanos) {
+            this.result = result;
+            this.storedAtNanos = storedAtNanos;
+        }
+    }
+}
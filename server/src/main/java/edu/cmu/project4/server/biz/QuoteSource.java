@@ -0,0 +1,25 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import edu.cmu.project4.server.biz.BinanceClient.BatchPriceResult;
+import edu.cmu.project4.server.biz.BinanceClient.BinanceClientException;
+import edu.cmu.project4.server.biz.BinanceClient.PriceResult;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where {@link QuoteCache} gets quotes on a miss: a single {@link BinanceClient} or the
+ * {@link ResilientQuoteSource} wrapped around one or two of them.
+ */
+public interface QuoteSource {
+    PriceResult fetchPrice(String symbol) throws IOException, InterruptedException, BinanceClientException;
+
+    CompletableFuture<PriceResult> fetchPriceAsync(String symbol);
+
+    BatchPriceResult fetchPrices(Collection<String> symbols) throws IOException, InterruptedException, BinanceClientException;
+}
@@ -0,0 +1,77 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process table holding the latest quote per tracked symbol, fed by {@link PriceStreamer}.
+ */
+public class QuoteTable {
+    private final ConcurrentMap<String, PriceQuote> quotes = new ConcurrentHashMap<>();
+    private final List<Consumer<PriceQuote>> listeners = new CopyOnWriteArrayList<>();
+    private final long staleAfterMs;
+
+    public QuoteTable(long staleAfterMs) {
+        this.staleAfterMs = staleAfterMs;
+    }
+
+    public void update(PriceQuote quote) {
+        quotes.put(quote.getSymbol(), quote);
+        for (Consumer<PriceQuote> listener : listeners) {
+            listener.accept(quote);
+        }
+    }
+
+    /**
+     * Returns the latest quote for the symbol, or {@code null} if none was received within the staleness window.
+     */
+    public PriceQuote freshQuote(String symbol) {
+        PriceQuote quote = quotes.get(symbol);
+        if (quote == null || isStale(quote, Instant.now())) {
+            return null;
+        }
+        return quote;
+    }
+
+    public boolean isStale(PriceQuote quote, Instant now) {
+        return Duration.between(quote.getFetchedAt(), now).toMillis() > staleAfterMs;
+    }
+
+    /**
+     * Returns the instant of the most recent update across all symbols, or {@code null} if nothing arrived yet.
+     */
+    public Instant lastUpdateAt() {
+        Instant latest = null;
+        for (PriceQuote quote : quotes.values()) {
+            if (latest == null || quote.getFetchedAt().isAfter(latest)) {
+                latest = quote.getFetchedAt();
+            }
+        }
+        return latest;
+    }
+
+    public void addListener(Consumer<PriceQuote> listener) {
+        listeners.add(listener);
+    }
+
+    public Map<String, PriceQuote> snapshot() {
+        return Collections.unmodifiableMap(quotes);
+    }
+
+    public long getStaleAfterMs() {
+        return staleAfterMs;
+    }
+}
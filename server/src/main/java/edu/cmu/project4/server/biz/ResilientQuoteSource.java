@@ -0,0 +1,396 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import edu.cmu.project4.server.biz.BinanceClient.BatchPriceResult;
+import edu.cmu.project4.server.biz.BinanceClient.BinanceClientException;
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+import edu.cmu.project4.server.biz.BinanceClient.PriceResult;
+import edu.cmu.project4.server.metrics.HistogramSnapshot;
+import edu.cmu.project4.server.metrics.LatencyMetrics;
+import edu.cmu.project4.server.metrics.TimeWindow;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resilience layer in front of one or two {@link BinanceClient}s, each guarded by its own
+ * {@link CircuitBreaker}:
+ * <ul>
+ *     <li>When a secondary endpoint is configured, a single-symbol call still unanswered after the recent
+ *     upstream p95 is hedged to it, and the first quote wins.</li>
+ *     <li>When both circuits are open, a call fails upstream, or a call runs past the slow-call threshold,
+ *     the last good quote for the symbol is served instead, flagged with {@link PriceQuote#isLastGood()}.</li>
+ * </ul>
+ * Client errors such as an unknown symbol are passed through untouched and do not count against a circuit.
+ */
+public class ResilientQuoteSource implements QuoteSource {
+    public static final String LAST_GOOD_ENDPOINT = "last-good";
+
+    // Below this many samples the p95 is noise; use the default delay instead.
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final long DEFAULT_HEDGE_DELAY_MS = 250;
+    private static final long MIN_HEDGE_DELAY_MS = 50;
+    private static final long HEDGE_DELAY_REFRESH_MS = 1000;
+
+    private final Endpoint primary;
+    private final Endpoint secondary;
+    private final LatencyMetrics latencyMetrics;
+    private final long deadlineMs;
+    private final long lastGoodMaxAgeMs;
+    private final ConcurrentMap<String, PriceQuote> lastGood = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timers;
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder lastGoodServed = new LongAdder();
+    private volatile long hedgeDelayMs = DEFAULT_HEDGE_DELAY_MS;
+    private volatile long hedgeDelayComputedAtMs;
+
+    /**
+     * @param secondaryClient optional second endpoint, or {@code null} to disable hedging
+     * @param deadlineMs      how long a single-symbol call may run before a last good quote is served instead
+     */
+    public ResilientQuoteSource(BinanceClient primaryClient, CircuitBreaker primaryBreaker,
+                                BinanceClient secondaryClient, CircuitBreaker secondaryBreaker,
+                                LatencyMetrics latencyMetrics, long deadlineMs, long lastGoodMaxAgeMs) {
+        this.primary = new Endpoint(primaryClient, primaryBreaker);
+        this.secondary = secondaryClient == null ? null : new Endpoint(secondaryClient, secondaryBreaker);
+        this.latencyMetrics = latencyMetrics;
+        this.deadlineMs = deadlineMs;
+        this.lastGoodMaxAgeMs = lastGoodMaxAgeMs;
+        this.timers = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quote-source-timers");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public PriceResult fetchPrice(String symbol) throws IOException, InterruptedException, BinanceClientException {
+        try {
+            return fetchPriceAsync(symbol).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BinanceClientException) {
+                throw (BinanceClientException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @Override
+    public CompletableFuture<PriceResult> fetchPriceAsync(String symbol) {
+        CompletableFuture<PriceResult> result = new CompletableFuture<>();
+        new Call(symbol.toUpperCase(), result).start();
+        return result;
+    }
+
+    /**
+     * Batches are not hedged: the primary is tried, then the secondary, then last good quotes for whichever
+     * requested symbols have one.
+     */
+    @Override
+    public BatchPriceResult fetchPrices(Collection<String> symbols) throws IOException, InterruptedException, BinanceClientException {
+        Exception failure = null;
+        for (Endpoint endpoint : endpoints()) {
+            if (!endpoint.breaker.tryAcquire()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                BatchPriceResult batch = endpoint.client.fetchPrices(symbols);
+                endpoint.breaker.record(false, elapsedMs(start));
+                for (PriceQuote quote : batch.getQuotes()) {
+                    lastGood.put(quote.getSymbol(), quote);
+                }
+                return batch;
+            } catch (BinanceClientException e) {
+                recordOutcome(endpoint, e, start);
+                if (!isUnhealthy(e)) {
+                    throw e;
+                }
+                failure = e;
+            } catch (IOException e) {
+                endpoint.breaker.record(true, elapsedMs(start));
+                failure = e;
+            } catch (InterruptedException | RuntimeException e) {
+                endpoint.breaker.record(true, elapsedMs(start));
+                throw e;
+            }
+        }
+
+        Set<String> normalizedSymbols = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            normalizedSymbols.add(symbol.toUpperCase());
+        }
+        List<PriceQuote> quotes = new ArrayList<>();
+        for (String symbol : normalizedSymbols.isEmpty() ? lastGood.keySet() : normalizedSymbols) {
+            PriceQuote quote = freshLastGood(symbol);
+            if (quote != null) {
+                quotes.add(quote);
+            }
+        }
+        if (quotes.isEmpty()) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            throw failure != null ? (BinanceClientException) failure : circuitOpen();
+        }
+        lastGoodServed.add(quotes.size());
+        return new BatchPriceResult(quotes, statusOf(failure), 0, LAST_GOOD_ENDPOINT);
+    }
+
+    /**
+     * Stops the hedge and deadline timers.
+     */
+    public void close() {
+        timers.shutdownNow();
+    }
+
+    public CircuitBreaker getPrimaryBreaker() {
+        return primary.breaker;
+    }
+
+    /**
+     * @return the secondary breaker, or {@code null} when no secondary endpoint is configured
+     */
+    public CircuitBreaker getSecondaryBreaker() {
+        return secondary == null ? null : secondary.breaker;
+    }
+
+    public boolean isHedging() {
+        return secondary != null;
+    }
+
+    public long getHedgeDelayMs() {
+        return hedgeDelay();
+    }
+
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    public long getLastGoodServedCount() {
+        return lastGoodServed.sum();
+    }
+
+    /**
+     * One single-symbol request. Two slots are pending until settled: the primary attempt and the hedge
+     * slot (settled at once when there is no secondary). When both have failed, the last good quote is served.
+     */
+    private final class Call {
+        private final String symbol;
+        private final CompletableFuture<PriceResult> result;
+        private final AtomicInteger pending;
+        private final AtomicBoolean hedgeClaimed = new AtomicBoolean();
+        private volatile Throwable failure;
+
+        private Call(String symbol, CompletableFuture<PriceResult> result) {
+            this.symbol = symbol;
+            this.result = result;
+            this.pending = new AtomicInteger(secondary == null ? 1 : 2);
+        }
+
+        private void start() {
+            if (!launch(primary, false)) {
+                settle(null);
+                hedge();
+            } else if (secondary != null) {
+                schedule(this::hedge, hedgeDelay());
+            }
+            schedule(this::deadline, deadlineMs);
+        }
+
+        private void schedule(Runnable task, long delayMs) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                ScheduledFuture<?> timer = timers.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+                result.whenComplete((value, error) -> timer.cancel(false));
+            } catch (RejectedExecutionException e) {
+                // Timers are gone after close(); the attempts still complete the call on their own.
+            }
+        }
+
+        private void hedge() {
+            if (secondary == null || !hedgeClaimed.compareAndSet(false, true)) {
+                return;
+            }
+            if (result.isDone()) {
+                pending.decrementAndGet();
+                return;
+            }
+            if (!launch(secondary, true)) {
+                settle(null);
+            }
+        }
+
+        /**
+         * The attempts have run too long; answer with the last good quote if there is one and keep waiting
+         * otherwise. The attempts still finish and feed their circuit breakers.
+         */
+        private void deadline() {
+            PriceQuote quote = freshLastGood(symbol);
+            if (quote != null && result.complete(new PriceResult(quote, statusOf(failure), deadlineMs, LAST_GOOD_ENDPOINT))) {
+                lastGoodServed.increment();
+            }
+        }
+
+        private boolean launch(Endpoint endpoint, boolean isHedge) {
+            if (!endpoint.breaker.tryAcquire()) {
+                return false;
+            }
+            if (isHedge) {
+                hedges.increment();
+            }
+            long start = System.nanoTime();
+            CompletableFuture<PriceResult> attempt;
+            try {
+                attempt = endpoint.client.fetchPriceAsync(symbol);
+            } catch (RuntimeException e) {
+                attempt = CompletableFuture.failedFuture(e);
+            }
+            attempt.whenComplete((value, error) -> {
+                Throwable cause = BinanceClient.unwrap(error);
+                boolean unhealthy = cause != null && isUnhealthy(cause);
+                recordOutcome(endpoint, cause, start);
+                if (cause == null) {
+                    lastGood.put(symbol, value.getQuote());
+                    if (result.complete(value) && isHedge) {
+                        hedgeWins.increment();
+                    }
+                    settle(null);
+                } else if (!unhealthy && !isHedge) {
+                    // The primary rejected the request itself; a hedge would not change the answer.
+                    result.completeExceptionally(cause);
+                } else {
+                    if (!isHedge) {
+                        hedge();
+                    }
+                    settle(cause);
+                }
+            });
+            return true;
+        }
+
+        /**
+         * Settles one slot; {@code error} is {@code null} for a success or a call its circuit rejected.
+         */
+        private void settle(Throwable error) {
+            if (error != null) {
+                failure = error;
+            }
+            if (pending.decrementAndGet() > 0 || result.isDone()) {
+                return;
+            }
+            Throwable cause = failure;
+            PriceQuote quote = freshLastGood(symbol);
+            if (quote != null && (cause == null || isUnhealthy(cause))) {
+                if (result.complete(new PriceResult(quote, statusOf(cause), 0, LAST_GOOD_ENDPOINT))) {
+                    lastGoodServed.increment();
+                }
+            } else {
+                result.completeExceptionally(cause != null ? cause : circuitOpen());
+            }
+        }
+    }
+
+    /**
+     * Calls the endpoint's own governor held back never reached Binance and say nothing about its health.
+     */
+    private static void recordOutcome(Endpoint endpoint, Throwable error, long startNanos) {
+        if (error instanceof BinanceClientException && ((BinanceClientException) error).isThrottled()) {
+            endpoint.breaker.release();
+        } else {
+            endpoint.breaker.record(error != null && isUnhealthy(error), elapsedMs(startNanos));
+        }
+    }
+
+    private List<Endpoint> endpoints() {
+        return secondary == null ? List.of(primary) : List.of(primary, secondary);
+    }
+
+    /**
+     * Hedging at the recent p95 sends at most about one extra request in twenty while cutting the tail.
+     * The snapshot is recomputed at most once a second, and the delay never exceeds the deadline, since a
+     * hung upstream inflates the p95 exactly when the hedge is needed most.
+     */
+    private long hedgeDelay() {
+        long now = System.currentTimeMillis();
+        if (latencyMetrics != null && now - hedgeDelayComputedAtMs >= HEDGE_DELAY_REFRESH_MS) {
+            HistogramSnapshot snapshot = latencyMetrics.getUpstream().snapshot(TimeWindow.ONE_MINUTE);
+            hedgeDelayMs = snapshot.getCount() < MIN_HEDGE_SAMPLES
+                    ? DEFAULT_HEDGE_DELAY_MS
+                    : Math.min(deadlineMs, Math.max(MIN_HEDGE_DELAY_MS, snapshot.getP95()));
+            hedgeDelayComputedAtMs = now;
+        }
+        return hedgeDelayMs;
+    }
+
+    private PriceQuote freshLastGood(String symbol) {
+        PriceQuote quote = lastGood.get(symbol);
+        if (quote == null || System.currentTimeMillis() - quote.getFetchedAt().toEpochMilli() > lastGoodMaxAgeMs) {
+            return null;
+        }
+        return new PriceQuote(quote.getSymbol(), quote.getScaledPrice(), quote.getFetchedAt(), true);
+    }
+
+    /**
+     * Transport failures, rate limiting (429, and 418 once Binance has banned the IP) and server errors count
+     * against a circuit; other 4xx answers mean the upstream is healthy and the request was wrong.
+     */
+    private static boolean isUnhealthy(Throwable error) {
+        return !(error instanceof BinanceClientException) || !((BinanceClientException) error).isRejected();
+    }
+
+    private static int statusOf(Throwable error) {
+        return error instanceof BinanceClientException ? ((BinanceClientException) error).getStatusCode() : 0;
+    }
+
+    private static BinanceClientException circuitOpen() {
+        return new BinanceClientException("Circuit open", 503, 0, null);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static final class Endpoint {
+        private final BinanceClient client;
+        private final CircuitBreaker breaker;
+
+        private Endpoint(BinanceClient client, CircuitBreaker breaker) {
+            this.client = client;
+            this.breaker = breaker;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Requests per symbol over roughly the last one to two minutes, used to decide which symbols keep calling
+ * Binance when the request-weight budget runs low. Counts rotate every minute; symbols with no requests in
+ * two consecutive minutes are forgotten, and at most {@code maxSymbols} are tracked at once. A symbol is only
+ * tracked once Binance has quoted it, so requests for made-up symbols cannot fill the table and crowd out
+ * real ones.
+ */
+public class SymbolDemand {
+    private static final long ROTATE_MS = 60000;
+    private static final long RANK_REFRESH_MS = 1000;
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final int maxSymbols;
+    private final int prioritySymbols;
+    private volatile long rotateAtMs;
+    private volatile long priorityThreshold;
+    private volatile long rankedAtMs;
+
+    /**
+     * @param prioritySymbols how many of the most requested symbols count as priority
+     */
+    public SymbolDemand(int maxSymbols, int prioritySymbols) {
+        this.maxSymbols = maxSymbols;
+        this.prioritySymbols = prioritySymbols;
+        this.rotateAtMs = System.currentTimeMillis() + ROTATE_MS;
+    }
+
+    /**
+     * Counts a request for {@code symbol} if it is tracked; an untracked one is counted by
+     * {@link #accepted(String)} once Binance quotes it.
+     */
+    public void record(String symbol) {
+        rotateIfDue(System.currentTimeMillis());
+        Counter counter = counters.get(symbol);
+        if (counter != null) {
+            counter.current.increment();
+        }
+    }
+
+    /**
+     * Starts tracking {@code symbol}, which Binance has just quoted, counting the request that fetched it.
+     * Does nothing for a symbol already tracked, whose request {@link #record(String)} counted.
+     */
+    public void accepted(String symbol) {
+        if (counters.containsKey(symbol) || counters.size() >= maxSymbols) {
+            return;
+        }
+        Counter counter = new Counter();
+        if (counters.putIfAbsent(symbol, counter) == null) {
+            counter.current.increment();
+        }
+    }
+
+    /**
+     * True when {@code symbol} is among the {@code prioritySymbols} most requested symbols. Ties at the
+     * cut-off are all included; multi-symbol calls ({@code null}) are never priority.
+     */
+    public boolean isPriority(String symbol) {
+        if (symbol == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        rotateIfDue(now);
+        Counter counter = counters.get(symbol);
+        if (counter == null) {
+            return false;
+        }
+        if (now - rankedAtMs >= RANK_REFRESH_MS) {
+            rank(now);
+        }
+        return counter.score() >= priorityThreshold;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    private synchronized void rank(long now) {
+        if (now - rankedAtMs < RANK_REFRESH_MS) {
+            return;
+        }
+        long[] scores = counters.values().stream().mapToLong(Counter::score).toArray();
+        if (scores.length <= prioritySymbols) {
+            priorityThreshold = 1;
+        } else {
+            Arrays.sort(scores);
+            priorityThreshold = Math.max(1, scores[scores.length - prioritySymbols]);
+        }
+        rankedAtMs = now;
+    }
+
+    private void rotateIfDue(long now) {
+        if (now < rotateAtMs) {
+            return;
+        }
+        synchronized (this) {
+            if (now < rotateAtMs) {
+                return;
+            }
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                Counter counter = entry.getValue();
+                long lastMinute = counter.current.sumThenReset();
+                if (lastMinute == 0 && counter.previous == 0) {
+                    counters.remove(entry.getKey(), counter);
+                } else {
+                    counter.previous = lastMinute;
+                }
+            }
+            rotateAtMs = now + ROTATE_MS;
+            rankedAtMs = 0;
+        }
+    }
+
+    private static final class Counter {
+        private final LongAdder current = new LongAdder();
+        private volatile long previous;
+
+        private long score() {
+            return previous + current.sum();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recent price history per symbol: the last ticks, and OHLC candles per {@link CandleInterval} updated as each
+ * tick arrives. Everything lives in fixed-capacity ring buffers of primitives, with timestamps as epoch
+ * milliseconds and prices as {@link FixedPrice}s, allocated in full on a
+ * symbol's first tick. Memory is therefore fixed per symbol, and at most {@code maxSymbols} symbols are
+ * tracked; ticks for further symbols are dropped.
+ * <p>
+ * Intervals without ticks have no candle. Ticks older than the newest one kept are dropped from the tick
+ * history but still update their candle while it is in the ring.
+ */
+public class TickHistory {
+    private final ConcurrentMap<String, SymbolHistory> symbols = new ConcurrentHashMap<>();
+    private final int maxSymbols;
+    private final int tickCapacity;
+    private final int[] candleCapacities;
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param candleCapacities candles kept per symbol, indexed by {@link CandleInterval#ordinal()}
+     */
+    public TickHistory(int maxSymbols, int tickCapacity, int... candleCapacities) {
+        if (candleCapacities.length != CandleInterval.values().length) {
+            throw new IllegalArgumentException("One candle capacity per interval is required");
+        }
+        this.maxSymbols = maxSymbols;
+        this.tickCapacity = tickCapacity;
+        this.candleCapacities = candleCapacities.clone();
+    }
+
+    /**
+     * Records a quote as a tick. Last-good fallbacks repeat an old price and are ignored.
+     */
+    public void record(PriceQuote quote) {
+        if (quote.isLastGood()) {
+            return;
+        }
+        SymbolHistory history = symbols.get(quote.getSymbol());
+        if (history == null) {
+            if (symbols.size() >= maxSymbols) {
+                dropped.increment();
+                return;
+            }
+            history = symbols.computeIfAbsent(quote.getSymbol(), symbol -> new SymbolHistory(tickCapacity, candleCapacities));
+        }
+        history.add(quote.getFetchedAt().toEpochMilli(), quote.getScaledPrice());
+        recorded.increment();
+    }
+
+    /**
+     * @return up to {@code limit} of the latest ticks, oldest first; empty for an unknown symbol
+     */
+    public Ticks ticks(String symbol, int limit) {
+        SymbolHistory history = symbols.get(symbol);
+        return history == null ? new Ticks(new long[0], new long[0]) : history.ticks(limit);
+    }
+
+    /**
+     * @return up to {@code limit} of the latest candles, oldest first, the last one possibly still open;
+     * empty for an unknown symbol
+     */
+    public Candles candles(String symbol, CandleInterval interval, int limit) {
+        SymbolHistory history = symbols.get(symbol);
+        return history == null ? CandleRing.EMPTY : history.candles(interval, limit);
+    }
+
+    public int getSymbolCount() {
+        return symbols.size();
+    }
+
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Ticks copied out of the ring, oldest first.
+     */
+    public static final class Ticks {
+        private final long[] times;
+        private final long[] prices;
+
+        Ticks(long[] times, long[] prices) {
+            this.times = times;
+            this.prices = prices;
+        }
+
+        public int size() {
+            return times.length;
+        }
+
+        public long getTime(int index) {
+            return times[index];
+        }
+
+        public long getScaledPrice(int index) {
+            return prices[index];
+        }
+    }
+
+    /**
+     * Candles copied out of the ring, oldest first; prices are scaled.
+     */
+    public static final class Candles {
+        private final long[] starts;
+        private final long[] opens;
+        private final long[] highs;
+        private final long[] lows;
+        private final long[] closes;
+        private final int[] counts;
+
+        Candles(long[] starts, long[] opens, long[] highs, long[] lows, long[] closes, int[] counts) {
+            this.starts = starts;
+            this.opens = opens;
+            this.highs = highs;
+            this.lows = lows;
+            this.closes = closes;
+            this.counts = counts;
+        }
+
+        public int size() {
+            return starts.length;
+        }
+
+        public long getStart(int index) {
+            return starts[index];
+        }
+
+        public long getOpen(int index) {
+            return opens[index];
+        }
+
+        public long getHigh(int index) {
+            return highs[index];
+        }
+
+        public long getLow(int index) {
+            return lows[index];
+        }
+
+        public long getClose(int index) {
+            return closes[index];
+        }
+
+        public int getTickCount(int index) {
+            return counts[index];
+        }
+    }
+
+    private static final class SymbolHistory {
+        private final long[] times;
+        private final long[] prices;
+        private final CandleRing[] candles;
+        private int last = -1;
+        private int size;
+
+        SymbolHistory(int tickCapacity, int[] candleCapacities) {
+            this.times = new long[tickCapacity];
+            this.prices = new long[tickCapacity];
+            this.candles = new CandleRing[candleCapacities.length];
+            for (CandleInterval interval : CandleInterval.values()) {
+                candles[interval.ordinal()] = new CandleRing(interval, candleCapacities[interval.ordinal()]);
+            }
+        }
+
+        synchronized void add(long time, long price) {
+            for (CandleRing ring : candles) {
+                ring.add(time, price);
+            }
+            if (times.length == 0 || (size > 0 && time < times[last])) {
+                return;
+            }
+            last = (last + 1) % times.length;
+            times[last] = time;
+            prices[last] = price;
+            size = Math.min(size + 1, times.length);
+        }
+
+        synchronized Ticks ticks(int limit) {
+            int count = Math.min(limit, size);
+            long[] tickTimes = new long[count];
+            long[] tickPrices = new long[count];
+            int first = Math.floorMod(last - count + 1, times.length);
+            for (int i = 0; i < count; i++) {
+                int slot = (first + i) % times.length;
+                tickTimes[i] = times[slot];
+                tickPrices[i] = prices[slot];
+            }
+            return new Ticks(tickTimes, tickPrices);
+        }
+
+        synchronized Candles candles(CandleInterval interval, int limit) {
+            return candles[interval.ordinal()].copy(limit);
+        }
+    }
+
+    /**
+     * One interval's candles for one symbol; guarded by the owning {@link SymbolHistory}.
+     */
+    private static final class CandleRing {
+        static final Candles EMPTY = new Candles(new long[0], new long[0], new long[0], new long[0], new long[0], new int[0]);
+
+        private final CandleInterval interval;
+        private final long[] starts;
+        private final long[] opens;
+        private final long[] highs;
+        private final long[] lows;
+        private final long[] closes;
+        private final int[] counts;
+        private int last = -1;
+        private int size;
+        private long lastTime = Long.MIN_VALUE;
+
+        CandleRing(CandleInterval interval, int capacity) {
+            this.interval = interval;
+            this.starts = new long[capacity];
+            this.opens = new long[capacity];
+            this.highs = new long[capacity];
+            this.lows = new long[capacity];
+            this.closes = new long[capacity];
+            this.counts = new int[capacity];
+        }
+
+        void add(long time, long price) {
+            int capacity = starts.length;
+            if (capacity == 0) {
+                return;
+            }
+            long start = interval.truncate(time);
+            boolean latest = time >= lastTime;
+            lastTime = Math.max(lastTime, time);
+            if (size == 0 || start > starts[last]) {
+                last = (last + 1) % capacity;
+                starts[last] = start;
+                opens[last] = price;
+                highs[last] = price;
+                lows[last] = price;
+                closes[last] = price;
+                counts[last] = 1;
+                size = Math.min(size + 1, capacity);
+                return;
+            }
+            // Usually the current candle; a late tick may belong to an earlier one.
+            for (int i = 0; i < size; i++) {
+                int slot = Math.floorMod(last - i, capacity);
+                if (starts[slot] == start) {
+                    highs[slot] = Math.max(highs[slot], price);
+                    lows[slot] = Math.min(lows[slot], price);
+                    if (latest) {
+                        closes[slot] = price;
+                    }
+                    counts[slot]++;
+                    return;
+                }
+                if (starts[slot] < start) {
+                    return;
+                }
+            }
+        }
+
+        Candles copy(int limit) {
+            int count = Math.min(limit, size);
+            if (count == 0) {
+                return EMPTY;
+            }
+            int capacity = starts.length;
+            long[] candleStarts = new long[count];
+            long[] candleOpens = new long[count];
+            long[] candleHighs = new long[count];
+            long[] candleLows = new long[count];
+            long[] candleCloses = new long[count];
+            int[] candleCounts = new int[count];
+            int first = Math.floorMod(last - count + 1, capacity);
+            for (int i = 0; i < count; i++) {
+                int slot = (first + i) % capacity;
+                candleStarts[i] = starts[slot];
+                candleOpens[i] = opens[slot];
+                candleHighs[i] = highs[slot];
+                candleLows[i] = lows[slot];
+                candleCloses[i] = closes[slot];
+                candleCounts[i] = counts[slot];
+            }
+            return new Candles(candleStarts, candleOpens, candleHighs, candleLows, candleCloses, candleCounts);
+        }
+    }
+}
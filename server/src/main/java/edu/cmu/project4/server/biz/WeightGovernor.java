@@ -0,0 +1,162 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.biz;
+
+import edu.cmu.project4.server.biz.BinanceClient.BinanceClientException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps one Binance endpoint under its per-minute request-weight limit. A token bucket holding
+ * {@code budgetPercent} of the limit refills evenly over a minute; every call reserves its weight before it
+ * is sent, waiting up to {@code maxWaitMs} for tokens and failing fast beyond that. The bucket is corrected
+ * downwards whenever Binance reports a higher used weight in {@code X-MBX-USED-WEIGHT-1M} than we accounted
+ * for, e.g. after a restart or when other processes share the IP. That header counts against the whole limit,
+ * so the bucket is lowered only to what is left of the whole limit, never below zero.
+ * <p>
+ * The last {@code reservePercent} of the bucket is kept for the most requested symbols, so a burst of
+ * one-off symbols cannot starve the ones most players are watching. After a {@code 429} or {@code 418} no
+ * calls are sent until the {@code Retry-After} period has passed, since Binance lengthens bans for clients
+ * that keep sending.
+ */
+public class WeightGovernor {
+    public static final String USED_WEIGHT_HEADER = "X-MBX-USED-WEIGHT-1M";
+
+    private static final long WINDOW_MS = 60000;
+    private static final long DEFAULT_BACKOFF_MS = 60000;
+
+    private final String name;
+    // Binance's whole per-minute limit, the unit X-MBX-USED-WEIGHT-1M reports in.
+    private final long limit;
+    // Weight the bucket may spend per minute: budgetPercent of the limit. Tokens and reserve are in this unit too.
+    private final double capacity;
+    private final double reserve;
+    private final double tokensPerNano;
+    private final long maxWaitMs;
+    private final SymbolDemand demand;
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+
+    private double tokens;
+    private long refilledAtNanos;
+    private long bannedUntilMs;
+    private long reportedWeight;
+    private long reportedWindow = -1;
+
+    public WeightGovernor(String name, long limit, int budgetPercent, int reservePercent, long maxWaitMs, SymbolDemand demand) {
+        this.name = name;
+        this.limit = limit;
+        this.capacity = limit * Math.min(100, Math.max(1, budgetPercent)) / 100.0;
+        this.reserve = capacity * Math.min(100, Math.max(0, reservePercent)) / 100.0;
+        this.tokensPerNano = capacity / TimeUnit.MILLISECONDS.toNanos(WINDOW_MS);
+        this.maxWaitMs = maxWaitMs;
+        this.demand = demand;
+        this.tokens = capacity;
+        this.refilledAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Reserves {@code weight} for a call about to be sent for {@code symbol} ({@code null} for multi-symbol
+     * calls) and returns how many milliseconds the caller must wait before sending it.
+     *
+     * @throws BinanceClientException with status 429 when the call cannot be sent within the maximum wait
+     */
+    public synchronized long acquire(String symbol, int weight) throws BinanceClientException {
+        long nowMs = System.currentTimeMillis();
+        if (nowMs < bannedUntilMs) {
+            rejected.increment();
+            throw new BinanceClientException("Backing off after Binance rate limit", 429, 0, null, true);
+        }
+        refill();
+        double required = demand != null && !demand.isPriority(symbol) ? reserve + weight : weight;
+        if (tokens >= required) {
+            tokens -= weight;
+            return 0;
+        }
+        long waitMs = (long) Math.ceil((required - tokens) / tokensPerNano / 1_000_000.0);
+        if (waitMs > maxWaitMs) {
+            rejected.increment();
+            throw new BinanceClientException("Request weight budget exhausted", 429, 0, null, true);
+        }
+        tokens -= weight;
+        delayed.increment();
+        return waitMs;
+    }
+
+    /**
+     * Feeds back what Binance reported for a completed call.
+     *
+     * @param usedWeight        value of {@link #USED_WEIGHT_HEADER}, or -1 when absent
+     * @param retryAfterSeconds value of {@code Retry-After}, or -1 when absent
+     */
+    public synchronized void onResponse(int statusCode, long usedWeight, long retryAfterSeconds) {
+        long nowMs = System.currentTimeMillis();
+        if (statusCode == 429 || statusCode == 418) {
+            long backoffMs = retryAfterSeconds >= 0 ? TimeUnit.SECONDS.toMillis(retryAfterSeconds) : DEFAULT_BACKOFF_MS;
+            bannedUntilMs = Math.max(bannedUntilMs, nowMs + backoffMs);
+            rateLimited.increment();
+        }
+        if (usedWeight >= 0) {
+            // Binance counts weight in fixed, clock-aligned minutes.
+            long window = nowMs / WINDOW_MS;
+            if (window != reportedWindow || usedWeight > reportedWeight) {
+                reportedWindow = window;
+                reportedWeight = usedWeight;
+            }
+            refill();
+            // usedWeight counts against the whole limit, tokens against the budget share (capacity) of it: only
+            // use beyond the part of the limit outside the budget eats into the bucket, which leaves the
+            // bucket at most the limit's remaining headroom.
+            double usedOfBudget = Math.max(0, usedWeight - (limit - capacity));
+            tokens = Math.min(tokens, Math.max(0, capacity - usedOfBudget));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Weight Binance last reported as used in the current minute, or 0 once that minute is over.
+     */
+    public synchronized long getUsedWeight() {
+        return reportedWindow == System.currentTimeMillis() / WINDOW_MS ? reportedWeight : 0;
+    }
+
+    public long getHeadroom() {
+        return limit - getUsedWeight();
+    }
+
+    public synchronized boolean isBackingOff() {
+        return System.currentTimeMillis() < bannedUntilMs;
+    }
+
+    public long getDelayedCount() {
+        return delayed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Responses with {@code 429} or {@code 418}; each one restarts the back-off.
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAtNanos) * tokensPerNano);
+        refilledAtNanos = now;
+    }
+}
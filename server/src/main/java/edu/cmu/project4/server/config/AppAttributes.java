@@ -10,8 +10,25 @@ package edu.cmu.project4.server.config;
 public final class AppAttributes {
     public static final String CONFIG = "appConfig";
     public static final String BINANCE_CLIENT = "binanceClient";
+    public static final String QUOTE_SOURCE = "quoteSource";
     public static final String MONGO_REPOSITORY = "mongoRepository";
+    public static final String ROLLUP_REPOSITORY = "rollupRepository";
+    public static final String LOG_WRITER = "logWriter";
+    public static final String DASHBOARD_AGGREGATES = "dashboardAggregates";
     public static final String OBJECT_MAPPER = "objectMapper";
+    public static final String LATENCY_METRICS = "latencyMetrics";
+    public static final String METRICS_REGISTRY = "metricsRegistry";
+    public static final String SERVICE_METRICS = "serviceMetrics";
+    public static final String QUOTE_CACHE = "quoteCache";
+    public static final String QUOTE_TABLE = "quoteTable";
+    public static final String PRICE_STREAMER = "priceStreamer";
+    public static final String PRICE_BROADCASTER = "priceBroadcaster";
+    public static final String ROUND_ENGINE = "roundEngine";
+    public static final String TICK_HISTORY = "tickHistory";
+    public static final String RATE_LIMITER = "rateLimiter";
+    public static final String ADDRESS_RATE_LIMITER = "addressRateLimiter";
+    public static final String GAME_RATE_LIMITER = "gameRateLimiter";
+    public static final String LOAD_SHEDDER = "loadShedder";
 
     private AppAttributes() {
     }
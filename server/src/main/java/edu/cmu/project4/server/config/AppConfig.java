@@ -4,6 +4,11 @@
 
 package edu.cmu.project4.server.config;
 
+import edu.cmu.project4.server.data.AsyncLogWriter;
+import edu.cmu.project4.server.game.BetBook;
+
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -13,17 +18,219 @@ public final class AppConfig {
     private static final String DEFAULT_BINANCE_URL = "https://api.binance.com/api/v3/ticker/price";
     private static final String DEFAULT_DATABASE = "project4";
     private static final String DEFAULT_COLLECTION = "requestLogs";
+    private static final String DEFAULT_ROLLUP_COLLECTION = "requestRollups";
+    private static final String DEFAULT_ROUND_COLLECTION = "gameRounds";
+    private static final long DEFAULT_MONGODB_SERVER_SELECTION_TIMEOUT_MS = 5000;
+    private static final String DEFAULT_BET_COLLECTION = "gameBets";
+    private static final long DEFAULT_QUOTE_CACHE_TTL_MS = 1000;
+    private static final long DEFAULT_PRICE_STALE_WHILE_REVALIDATE_SECONDS = 2;
+    private static final long DEFAULT_BREAKER_WINDOW_CALLS = 20;
+    private static final long DEFAULT_BREAKER_MIN_CALLS = 10;
+    private static final long DEFAULT_BREAKER_FAILURE_RATE_PERCENT = 50;
+    private static final long DEFAULT_BREAKER_SLOW_CALL_MS = 2000;
+    private static final long DEFAULT_BREAKER_OPEN_MS = 10000;
+    private static final long DEFAULT_LAST_GOOD_MAX_AGE_MS = 300000;
+    private static final long DEFAULT_BINANCE_WEIGHT_LIMIT = 6000;
+    private static final long DEFAULT_BINANCE_SECONDARY_WEIGHT_LIMIT = 1200;
+    private static final long DEFAULT_WEIGHT_BUDGET_PERCENT = 80;
+    private static final long DEFAULT_WEIGHT_RESERVE_PERCENT = 20;
+    private static final long DEFAULT_WEIGHT_MAX_WAIT_MS = 1000;
+    private static final long DEFAULT_PRIORITY_SYMBOLS = 10;
+    private static final String DEFAULT_BINANCE_STREAM_URL = "wss://stream.binance.com:9443/stream";
+    private static final long DEFAULT_STREAM_STALE_MS = 5000;
+    private static final long DEFAULT_STREAM_FALLBACK_POLL_MS = 1000;
+    private static final long DEFAULT_STREAM_RECONNECT_MAX_MS = 60000;
+    private static final long DEFAULT_SSE_POLL_INTERVAL_MS = 1000;
+    private static final long DEFAULT_SSE_MAX_SUBSCRIBERS = 10000;
+    private static final long DEFAULT_SSE_SLOW_CONSUMER_TIMEOUT_MS = 10000;
+    private static final long DEFAULT_SSE_CONNECTION_TIMEOUT_MS = 600000;
+    private static final long DEFAULT_DASHBOARD_RECENT_LOGS = 50;
+    private static final long DEFAULT_DASHBOARD_MAX_SYMBOLS = 10000;
+    private static final long DEFAULT_LATENCY_MAX_SYMBOLS = 100;
+    private static final long DEFAULT_METRICS_MAX_SYMBOLS = 100;
+    private static final long DEFAULT_LOG_QUEUE_CAPACITY = 10000;
+    private static final long DEFAULT_LOG_BATCH_SIZE = 500;
+    private static final long DEFAULT_LOG_FLUSH_INTERVAL_MS = 1000;
+    private static final long DEFAULT_LOG_SHUTDOWN_TIMEOUT_MS = 10000;
+    private static final long DEFAULT_LOG_RETENTION_DAYS = 0;
+    private static final long DEFAULT_LOG_ARCHIVE_INTERVAL_MS = 3600000;
+    private static final long DEFAULT_LOG_SPOOL_MAX_BYTES = 256L * 1024 * 1024;
+    private static final long DEFAULT_LOG_SPOOL_SEGMENT_BYTES = 16L * 1024 * 1024;
+    private static final long DEFAULT_TICK_HISTORY_SYMBOLS = 200;
+    private static final long DEFAULT_TICK_HISTORY_TICKS = 1000;
+    private static final long DEFAULT_CANDLES_1S = 600;
+    private static final long DEFAULT_CANDLES_1M = 1440;
+    private static final long DEFAULT_CANDLES_5M = 2016;
+    private static final long DEFAULT_RATE_LIMIT_PER_SECOND = 0;
+    private static final long DEFAULT_RATE_LIMIT_BURST = 20;
+    private static final long DEFAULT_RATE_LIMIT_MAX_CLIENTS = 10000;
+    private static final long DEFAULT_RATE_LIMIT_IDLE_MS = 60000;
+    private static final long DEFAULT_RATE_LIMIT_ADDRESS_PER_SECOND = 0;
+    private static final long DEFAULT_RATE_LIMIT_ADDRESS_BURST = 100;
+    private static final long DEFAULT_SHED_MAX_IN_FLIGHT = 256;
+    private static final long DEFAULT_SHED_SLOW_UPSTREAM_MS = 2000;
+    private static final long DEFAULT_SHED_SLOW_MAX_IN_FLIGHT = 32;
+    private static final String DEFAULT_GAME_SYMBOL = "BTCUSD";
+    private static final long DEFAULT_GAME_ROUND_MS = 20000;
+    private static final long DEFAULT_GAME_MAX_BETS_PER_ROUND = 200000;
+    private static final long DEFAULT_GAME_MAX_QUOTE_AGE_MS = 5000;
+    private static final long DEFAULT_GAME_MAX_STAKE = 1000000;
+    // Keeps twice the stakes of a full round, the most it can pay out, well inside a long.
+    private static final long MAX_GAME_STAKE_CENTS = Long.MAX_VALUE / 4 / BetBook.MAX_BETS;
+    private static final long DEFAULT_GAME_BET_RATE_PER_SECOND = 2;
+    private static final long DEFAULT_GAME_BET_BURST = 10;
 
     private final String binanceBaseUrl;
+    private final String binanceSecondaryBaseUrl;
     private final String mongoUri;
     private final String mongoDatabase;
     private final String mongoCollection;
+    private final String mongoRollupCollection;
+    private final String mongoRoundCollection;
+    private final String mongoBetCollection;
+    private final long mongoServerSelectionTimeoutMs;
+    private final long quoteCacheTtlMs;
+    private final long priceStaleWhileRevalidateSeconds;
+    private final int breakerWindowCalls;
+    private final int breakerMinCalls;
+    private final int breakerFailureRatePercent;
+    private final long breakerSlowCallMs;
+    private final long breakerOpenMs;
+    private final long lastGoodMaxAgeMs;
+    private final long binanceWeightLimit;
+    private final long binanceSecondaryWeightLimit;
+    private final int weightBudgetPercent;
+    private final int weightReservePercent;
+    private final long weightMaxWaitMs;
+    private final int prioritySymbols;
+    private final boolean streamingEnabled;
+    private final boolean asyncPriceServlet;
+    private final String binanceStreamUrl;
+    private final List<String> streamSymbols;
+    private final long streamStaleMs;
+    private final long streamFallbackPollMs;
+    private final long streamReconnectMaxMs;
+    private final long ssePollIntervalMs;
+    private final int sseMaxSubscribers;
+    private final long sseSlowConsumerTimeoutMs;
+    private final long sseConnectionTimeoutMs;
+    private final int dashboardRecentLogs;
+    private final int dashboardMaxSymbols;
+    private final int latencyMaxSymbols;
+    private final int metricsMaxSymbols;
+    private final int logQueueCapacity;
+    private final int logBatchSize;
+    private final long logFlushIntervalMs;
+    private final AsyncLogWriter.OverflowPolicy logOverflowPolicy;
+    private final long logShutdownTimeoutMs;
+    private final boolean timeSeriesLogs;
+    private final long logRetentionDays;
+    private final String logArchiveDir;
+    private final long logArchiveIntervalMs;
+    private final String logSpoolDir;
+    private final long logSpoolMaxBytes;
+    private final int logSpoolSegmentBytes;
+    private final int tickHistorySymbols;
+    private final int tickHistoryTicks;
+    private final int candles1s;
+    private final int candles1m;
+    private final int candles5m;
+    private final long rateLimitPerSecond;
+    private final long rateLimitBurst;
+    private final int rateLimitMaxClients;
+    private final long rateLimitIdleMs;
+    private final long rateLimitAddressPerSecond;
+    private final long rateLimitAddressBurst;
+    private final int trustedProxyHops;
+    private final long shedMaxInFlight;
+    private final long shedSlowUpstreamMs;
+    private final long shedSlowMaxInFlight;
+    private final String gameSymbol;
+    private final long gameRoundMs;
+    private final int gameMaxBetsPerRound;
+    private final long gameMaxQuoteAgeMs;
+    private final long gameMaxStakeCents;
+    private final long gameBetRatePerSecond;
+    private final long gameBetBurst;
 
     public AppConfig() {
         this.binanceBaseUrl = envOrDefault("BINANCE_API_BASE", DEFAULT_BINANCE_URL);
+        this.binanceSecondaryBaseUrl = envOrDefault("BINANCE_SECONDARY_API_BASE", "");
         this.mongoUri = Objects.requireNonNullElse(System.getenv("MONGODB_URI"), "");
         this.mongoDatabase = envOrDefault("MONGODB_DATABASE", DEFAULT_DATABASE);
         this.mongoCollection = envOrDefault("MONGODB_COLLECTION", DEFAULT_COLLECTION);
+        this.mongoRollupCollection = envOrDefault("MONGODB_ROLLUP_COLLECTION", DEFAULT_ROLLUP_COLLECTION);
+        this.mongoRoundCollection = envOrDefault("MONGODB_ROUND_COLLECTION", DEFAULT_ROUND_COLLECTION);
+        this.mongoBetCollection = envOrDefault("MONGODB_BET_COLLECTION", DEFAULT_BET_COLLECTION);
+        this.mongoServerSelectionTimeoutMs = envLongOrDefault("MONGODB_SERVER_SELECTION_TIMEOUT_MS",
+                DEFAULT_MONGODB_SERVER_SELECTION_TIMEOUT_MS);
+        this.quoteCacheTtlMs = envLongOrDefault("QUOTE_CACHE_TTL_MS", DEFAULT_QUOTE_CACHE_TTL_MS);
+        this.priceStaleWhileRevalidateSeconds = envLongOrDefault("PRICE_STALE_WHILE_REVALIDATE_SECONDS",
+                DEFAULT_PRICE_STALE_WHILE_REVALIDATE_SECONDS);
+        this.breakerWindowCalls = (int) envLongOrDefault("BREAKER_WINDOW_CALLS", DEFAULT_BREAKER_WINDOW_CALLS);
+        this.breakerMinCalls = (int) envLongOrDefault("BREAKER_MIN_CALLS", DEFAULT_BREAKER_MIN_CALLS);
+        this.breakerFailureRatePercent = (int) envLongOrDefault("BREAKER_FAILURE_RATE_PERCENT", DEFAULT_BREAKER_FAILURE_RATE_PERCENT);
+        this.breakerSlowCallMs = envLongOrDefault("BREAKER_SLOW_CALL_MS", DEFAULT_BREAKER_SLOW_CALL_MS);
+        this.breakerOpenMs = envLongOrDefault("BREAKER_OPEN_MS", DEFAULT_BREAKER_OPEN_MS);
+        this.lastGoodMaxAgeMs = envLongOrDefault("LAST_GOOD_MAX_AGE_MS", DEFAULT_LAST_GOOD_MAX_AGE_MS);
+        this.binanceWeightLimit = envLongOrDefault("BINANCE_WEIGHT_LIMIT", DEFAULT_BINANCE_WEIGHT_LIMIT);
+        this.binanceSecondaryWeightLimit = envLongOrDefault("BINANCE_SECONDARY_WEIGHT_LIMIT", DEFAULT_BINANCE_SECONDARY_WEIGHT_LIMIT);
+        this.weightBudgetPercent = (int) envLongOrDefault("WEIGHT_BUDGET_PERCENT", DEFAULT_WEIGHT_BUDGET_PERCENT);
+        this.weightReservePercent = (int) envLongOrDefault("WEIGHT_RESERVE_PERCENT", DEFAULT_WEIGHT_RESERVE_PERCENT);
+        this.weightMaxWaitMs = envLongOrDefault("WEIGHT_MAX_WAIT_MS", DEFAULT_WEIGHT_MAX_WAIT_MS);
+        this.prioritySymbols = (int) envLongOrDefault("PRIORITY_SYMBOLS", DEFAULT_PRIORITY_SYMBOLS);
+        this.streamingEnabled = "stream".equalsIgnoreCase(envOrDefault("PRICE_SOURCE", "rest"));
+        this.asyncPriceServlet = "async".equalsIgnoreCase(envOrDefault("PRICE_SERVLET_MODE", "sync"));
+        this.binanceStreamUrl = envOrDefault("BINANCE_STREAM_URL", DEFAULT_BINANCE_STREAM_URL);
+        this.streamSymbols = Arrays.asList(envOrDefault("STREAM_SYMBOLS", "BTCUSD").split(","));
+        this.streamStaleMs = envLongOrDefault("STREAM_STALE_MS", DEFAULT_STREAM_STALE_MS);
+        this.streamFallbackPollMs = envLongOrDefault("STREAM_FALLBACK_POLL_MS", DEFAULT_STREAM_FALLBACK_POLL_MS);
+        this.streamReconnectMaxMs = envLongOrDefault("STREAM_RECONNECT_MAX_MS", DEFAULT_STREAM_RECONNECT_MAX_MS);
+        this.ssePollIntervalMs = envLongOrDefault("SSE_POLL_INTERVAL_MS", DEFAULT_SSE_POLL_INTERVAL_MS);
+        this.sseMaxSubscribers = (int) envLongOrDefault("SSE_MAX_SUBSCRIBERS", DEFAULT_SSE_MAX_SUBSCRIBERS);
+        this.sseSlowConsumerTimeoutMs = envLongOrDefault("SSE_SLOW_CONSUMER_TIMEOUT_MS", DEFAULT_SSE_SLOW_CONSUMER_TIMEOUT_MS);
+        this.sseConnectionTimeoutMs = envLongOrDefault("SSE_CONNECTION_TIMEOUT_MS", DEFAULT_SSE_CONNECTION_TIMEOUT_MS);
+        this.dashboardRecentLogs = (int) envLongOrDefault("DASHBOARD_RECENT_LOGS", DEFAULT_DASHBOARD_RECENT_LOGS);
+        this.dashboardMaxSymbols = (int) envLongOrDefault("DASHBOARD_MAX_SYMBOLS", DEFAULT_DASHBOARD_MAX_SYMBOLS);
+        this.latencyMaxSymbols = (int) envLongOrDefault("LATENCY_MAX_SYMBOLS", DEFAULT_LATENCY_MAX_SYMBOLS);
+        this.metricsMaxSymbols = (int) envLongOrDefault("METRICS_MAX_SYMBOLS", DEFAULT_METRICS_MAX_SYMBOLS);
+        this.logQueueCapacity = (int) envLongOrDefault("LOG_QUEUE_CAPACITY", DEFAULT_LOG_QUEUE_CAPACITY);
+        this.logBatchSize = (int) envLongOrDefault("LOG_BATCH_SIZE", DEFAULT_LOG_BATCH_SIZE);
+        this.logFlushIntervalMs = envLongOrDefault("LOG_FLUSH_INTERVAL_MS", DEFAULT_LOG_FLUSH_INTERVAL_MS);
+        this.logOverflowPolicy = AsyncLogWriter.OverflowPolicy.parse(envOrDefault("LOG_OVERFLOW_POLICY", "drop-oldest"));
+        this.logShutdownTimeoutMs = envLongOrDefault("LOG_SHUTDOWN_TIMEOUT_MS", DEFAULT_LOG_SHUTDOWN_TIMEOUT_MS);
+        this.timeSeriesLogs = "timeseries".equalsIgnoreCase(envOrDefault("MONGODB_COLLECTION_TYPE", "regular"));
+        this.logRetentionDays = envLongOrDefault("LOG_RETENTION_DAYS", DEFAULT_LOG_RETENTION_DAYS);
+        this.logArchiveDir = envOrDefault("LOG_ARCHIVE_DIR", "");
+        this.logArchiveIntervalMs = envLongOrDefault("LOG_ARCHIVE_INTERVAL_MS", DEFAULT_LOG_ARCHIVE_INTERVAL_MS);
+        this.logSpoolDir = envOrDefault("LOG_SPOOL_DIR", "");
+        this.logSpoolMaxBytes = envLongOrDefault("LOG_SPOOL_MAX_BYTES", DEFAULT_LOG_SPOOL_MAX_BYTES);
+        this.logSpoolSegmentBytes = (int) Math.min(Integer.MAX_VALUE,
+                envLongOrDefault("LOG_SPOOL_SEGMENT_BYTES", DEFAULT_LOG_SPOOL_SEGMENT_BYTES));
+        this.tickHistorySymbols = (int) envLongOrDefault("TICK_HISTORY_SYMBOLS", DEFAULT_TICK_HISTORY_SYMBOLS);
+        this.tickHistoryTicks = (int) envLongOrDefault("TICK_HISTORY_TICKS", DEFAULT_TICK_HISTORY_TICKS);
+        this.candles1s = (int) envLongOrDefault("CANDLES_1S", DEFAULT_CANDLES_1S);
+        this.candles1m = (int) envLongOrDefault("CANDLES_1M", DEFAULT_CANDLES_1M);
+        this.candles5m = (int) envLongOrDefault("CANDLES_5M", DEFAULT_CANDLES_5M);
+        this.rateLimitPerSecond = envLongOrDefault("RATE_LIMIT_PER_SECOND", DEFAULT_RATE_LIMIT_PER_SECOND);
+        this.rateLimitBurst = envLongOrDefault("RATE_LIMIT_BURST", DEFAULT_RATE_LIMIT_BURST);
+        this.rateLimitMaxClients = (int) envLongOrDefault("RATE_LIMIT_MAX_CLIENTS", DEFAULT_RATE_LIMIT_MAX_CLIENTS);
+        this.rateLimitIdleMs = envLongOrDefault("RATE_LIMIT_IDLE_MS", DEFAULT_RATE_LIMIT_IDLE_MS);
+        this.rateLimitAddressPerSecond = envLongOrDefault("RATE_LIMIT_ADDRESS_PER_SECOND", DEFAULT_RATE_LIMIT_ADDRESS_PER_SECOND);
+        this.rateLimitAddressBurst = envLongOrDefault("RATE_LIMIT_ADDRESS_BURST", DEFAULT_RATE_LIMIT_ADDRESS_BURST);
+        this.trustedProxyHops = (int) Math.max(0, envLongOrDefault("TRUSTED_PROXY_HOPS", 0));
+        this.shedMaxInFlight = envLongOrDefault("SHED_MAX_IN_FLIGHT", DEFAULT_SHED_MAX_IN_FLIGHT);
+        this.shedSlowUpstreamMs = envLongOrDefault("SHED_SLOW_UPSTREAM_MS", DEFAULT_SHED_SLOW_UPSTREAM_MS);
+        this.shedSlowMaxInFlight = envLongOrDefault("SHED_SLOW_MAX_IN_FLIGHT", DEFAULT_SHED_SLOW_MAX_IN_FLIGHT);
+        this.gameSymbol = envOrDefault("GAME_SYMBOL", DEFAULT_GAME_SYMBOL);
+        this.gameRoundMs = envLongOrDefault("GAME_ROUND_MS", DEFAULT_GAME_ROUND_MS);
+        this.gameMaxBetsPerRound = (int) Math.min(BetBook.MAX_BETS,
+                envLongOrDefault("GAME_MAX_BETS_PER_ROUND", DEFAULT_GAME_MAX_BETS_PER_ROUND));
+        this.gameMaxQuoteAgeMs = envLongOrDefault("GAME_MAX_QUOTE_AGE_MS", DEFAULT_GAME_MAX_QUOTE_AGE_MS);
+        this.gameMaxStakeCents = Math.min(MAX_GAME_STAKE_CENTS,
+                Math.max(1, envLongOrDefault("GAME_MAX_STAKE", DEFAULT_GAME_MAX_STAKE)) * 100);
+        this.gameBetRatePerSecond = envLongOrDefault("GAME_BET_RATE_PER_SECOND", DEFAULT_GAME_BET_RATE_PER_SECOND);
+        this.gameBetBurst = envLongOrDefault("GAME_BET_BURST", DEFAULT_GAME_BET_BURST);
 
         if (mongoUri.isBlank()) {
             throw new IllegalStateException("Environment variable MONGODB_URI must be configured for the web service.");
@@ -34,6 +241,13 @@ public final class AppConfig {
         return binanceBaseUrl;
     }
 
+    /**
+     * @return the hedge endpoint, or an empty string when hedging is disabled
+     */
+    public String getBinanceSecondaryBaseUrl() {
+        return binanceSecondaryBaseUrl;
+    }
+
     public String getMongoUri() {
         return mongoUri;
     }
@@ -46,8 +260,329 @@ public final class AppConfig {
         return mongoCollection;
     }
 
+    public String getMongoRollupCollection() {
+        return mongoRollupCollection;
+    }
+
+    public String getMongoRoundCollection() {
+        return mongoRoundCollection;
+    }
+
+    public String getMongoBetCollection() {
+        return mongoBetCollection;
+    }
+
+    /**
+     * @return how long a MongoDB operation waits for a reachable server before failing; applies unless the URI
+     *         sets {@code serverSelectionTimeoutMS} itself
+     */
+    public long getMongoServerSelectionTimeoutMs() {
+        return mongoServerSelectionTimeoutMs;
+    }
+
+    public long getQuoteCacheTtlMs() {
+        return quoteCacheTtlMs;
+    }
+
+    public long getPriceStaleWhileRevalidateSeconds() {
+        return priceStaleWhileRevalidateSeconds;
+    }
+
+    public int getBreakerWindowCalls() {
+        return breakerWindowCalls;
+    }
+
+    public int getBreakerMinCalls() {
+        return breakerMinCalls;
+    }
+
+    public int getBreakerFailureRatePercent() {
+        return breakerFailureRatePercent;
+    }
+
+    public long getBreakerSlowCallMs() {
+        return breakerSlowCallMs;
+    }
+
+    public long getBreakerOpenMs() {
+        return breakerOpenMs;
+    }
+
+    public long getLastGoodMaxAgeMs() {
+        return lastGoodMaxAgeMs;
+    }
+
+    public long getBinanceWeightLimit() {
+        return binanceWeightLimit;
+    }
+
+    public long getBinanceSecondaryWeightLimit() {
+        return binanceSecondaryWeightLimit;
+    }
+
+    public int getWeightBudgetPercent() {
+        return weightBudgetPercent;
+    }
+
+    public int getWeightReservePercent() {
+        return weightReservePercent;
+    }
+
+    public long getWeightMaxWaitMs() {
+        return weightMaxWaitMs;
+    }
+
+    public int getPrioritySymbols() {
+        return prioritySymbols;
+    }
+
+    public boolean isStreamingEnabled() {
+        return streamingEnabled;
+    }
+
+    public boolean isAsyncPriceServlet() {
+        return asyncPriceServlet;
+    }
+
+    public String getBinanceStreamUrl() {
+        return binanceStreamUrl;
+    }
+
+    public List<String> getStreamSymbols() {
+        return streamSymbols;
+    }
+
+    public long getStreamStaleMs() {
+        return streamStaleMs;
+    }
+
+    public long getStreamFallbackPollMs() {
+        return streamFallbackPollMs;
+    }
+
+    public long getStreamReconnectMaxMs() {
+        return streamReconnectMaxMs;
+    }
+
+    public long getSsePollIntervalMs() {
+        return ssePollIntervalMs;
+    }
+
+    public int getSseMaxSubscribers() {
+        return sseMaxSubscribers;
+    }
+
+    public long getSseSlowConsumerTimeoutMs() {
+        return sseSlowConsumerTimeoutMs;
+    }
+
+    public long getSseConnectionTimeoutMs() {
+        return sseConnectionTimeoutMs;
+    }
+
+    public int getDashboardRecentLogs() {
+        return dashboardRecentLogs;
+    }
+
+    public int getDashboardMaxSymbols() {
+        return dashboardMaxSymbols;
+    }
+
+    public int getLatencyMaxSymbols() {
+        return latencyMaxSymbols;
+    }
+
+    public int getMetricsMaxSymbols() {
+        return metricsMaxSymbols;
+    }
+
+    public int getLogQueueCapacity() {
+        return logQueueCapacity;
+    }
+
+    public int getLogBatchSize() {
+        return logBatchSize;
+    }
+
+    public long getLogFlushIntervalMs() {
+        return logFlushIntervalMs;
+    }
+
+    public AsyncLogWriter.OverflowPolicy getLogOverflowPolicy() {
+        return logOverflowPolicy;
+    }
+
+    public long getLogShutdownTimeoutMs() {
+        return logShutdownTimeoutMs;
+    }
+
+    /**
+     * @return whether a new request log collection is created as a MongoDB time-series collection
+     */
+    public boolean isTimeSeriesLogs() {
+        return timeSeriesLogs;
+    }
+
+    /**
+     * @return days request logs are kept, or 0 to keep them forever
+     */
+    public long getLogRetentionDays() {
+        return logRetentionDays;
+    }
+
+    /**
+     * @return directory expired logs are archived to before deletion, or an empty string to delete them unarchived
+     */
+    public String getLogArchiveDir() {
+        return logArchiveDir;
+    }
+
+    public long getLogArchiveIntervalMs() {
+        return logArchiveIntervalMs;
+    }
+
+    /**
+     * @return directory of the local spool every request log passes through on its way to MongoDB, or an empty
+     *         string to write logs to MongoDB directly
+     */
+    public String getLogSpoolDir() {
+        return logSpoolDir;
+    }
+
+    public long getLogSpoolMaxBytes() {
+        return logSpoolMaxBytes;
+    }
+
+    public int getLogSpoolSegmentBytes() {
+        return logSpoolSegmentBytes;
+    }
+
+    public int getTickHistorySymbols() {
+        return tickHistorySymbols;
+    }
+
+    public int getTickHistoryTicks() {
+        return tickHistoryTicks;
+    }
+
+    public int getCandles1s() {
+        return candles1s;
+    }
+
+    public int getCandles1m() {
+        return candles1m;
+    }
+
+    public int getCandles5m() {
+        return candles5m;
+    }
+
+    /**
+     * @return requests per second each client, a {@code clientId} at one address, may sustain on
+     *         {@code /api/price}; 0 disables the per-client limit
+     */
+    public long getRateLimitPerSecond() {
+        return rateLimitPerSecond;
+    }
+
+    public long getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    public int getRateLimitMaxClients() {
+        return rateLimitMaxClients;
+    }
+
+    public long getRateLimitIdleMs() {
+        return rateLimitIdleMs;
+    }
+
+    /**
+     * @return requests per second each client address may sustain on {@code /api/price} across all its
+     *         client ids; 0 disables the per-address limit
+     */
+    public long getRateLimitAddressPerSecond() {
+        return rateLimitAddressPerSecond;
+    }
+
+    public long getRateLimitAddressBurst() {
+        return rateLimitAddressBurst;
+    }
+
+    /**
+     * @return reverse proxies in front of the service that append to {@code X-Forwarded-For}; 0 trusts no
+     *         forwarded header and takes the client address from the connection
+     */
+    public int getTrustedProxyHops() {
+        return trustedProxyHops;
+    }
+
+    /**
+     * @return in-flight requests beyond which {@code /api/price} sheds load; 0 disables shedding
+     */
+    public long getShedMaxInFlight() {
+        return shedMaxInFlight;
+    }
+
+    public long getShedSlowUpstreamMs() {
+        return shedSlowUpstreamMs;
+    }
+
+    public long getShedSlowMaxInFlight() {
+        return shedSlowMaxInFlight;
+    }
+
+    public String getGameSymbol() {
+        return gameSymbol;
+    }
+
+    public long getGameRoundMs() {
+        return gameRoundMs;
+    }
+
+    public int getGameMaxBetsPerRound() {
+        return gameMaxBetsPerRound;
+    }
+
+    /**
+     * @return how far a round price snapshot may lie from the round boundary before the round is voided
+     */
+    public long getGameMaxQuoteAgeMs() {
+        return gameMaxQuoteAgeMs;
+    }
+
+    /**
+     * @return the largest stake one bet may place, in cents; capped so a full round's payouts cannot overflow
+     */
+    public long getGameMaxStakeCents() {
+        return gameMaxStakeCents;
+    }
+
+    /**
+     * @return bets per second each client may place; 0 disables the limit
+     */
+    public long getGameBetRatePerSecond() {
+        return gameBetRatePerSecond;
+    }
+
+    public long getGameBetBurst() {
+        return gameBetBurst;
+    }
+
     private static String envOrDefault(String envName, String fallback) {
         String value = System.getenv(envName);
         return (value == null || value.isBlank()) ? fallback : value;
     }
+
+    private static long envLongOrDefault(String envName, long fallback) {
+        String value = System.getenv(envName);
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Environment variable " + envName + " must be a number.", e);
+        }
+    }
 }
@@ -5,41 +5,348 @@
 package edu.cmu.project4.server.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import edu.cmu.project4.server.biz.BinanceClient;
+import edu.cmu.project4.server.biz.CircuitBreaker;
+import edu.cmu.project4.server.biz.ClientRateLimiter;
+import edu.cmu.project4.server.biz.LoadShedder;
+import edu.cmu.project4.server.biz.PriceStreamer;
+import edu.cmu.project4.server.biz.QuoteCache;
+import edu.cmu.project4.server.biz.QuoteTable;
+import edu.cmu.project4.server.biz.ResilientQuoteSource;
+import edu.cmu.project4.server.biz.SymbolDemand;
+import edu.cmu.project4.server.biz.TickHistory;
+import edu.cmu.project4.server.biz.WeightGovernor;
+import edu.cmu.project4.server.data.AsyncLogWriter;
+import edu.cmu.project4.server.data.DashboardAggregates;
+import edu.cmu.project4.server.data.LogArchiver;
+import edu.cmu.project4.server.data.LogSpool;
 import edu.cmu.project4.server.data.MongoLogRepository;
+import edu.cmu.project4.server.data.RollupRepository;
+import edu.cmu.project4.server.game.BetRepository;
+import edu.cmu.project4.server.game.RoundEngine;
+import edu.cmu.project4.server.metrics.LatencyMetrics;
+import edu.cmu.project4.server.metrics.MetricsRegistry;
+import edu.cmu.project4.server.metrics.ServiceMetrics;
+import edu.cmu.project4.server.web.PriceBroadcaster;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.ServletContextListener;
 import jakarta.servlet.annotation.WebListener;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
 /**
  * Initializes shared singletons for the servlet container.
  */
 @WebListener
 public class AppContextListener implements ServletContextListener {
     private MongoClient mongoClient;
+    private AsyncLogWriter logWriter;
+    private LogArchiver logArchiver;
+    private PriceStreamer priceStreamer;
+    private PriceBroadcaster priceBroadcaster;
+    private RoundEngine roundEngine;
+    private ResilientQuoteSource quoteSource;
+    private long logShutdownTimeoutMs;
 
     @Override
     public void contextInitialized(ServletContextEvent sce) {
         ServletContext context = sce.getServletContext();
         AppConfig config = new AppConfig();
-        this.mongoClient = MongoClients.create(config.getMongoUri());
-        MongoLogRepository repository = new MongoLogRepository(mongoClient, config.getMongoDatabase(), config.getMongoCollection());
-        BinanceClient binanceClient = new BinanceClient(config.getBinanceBaseUrl());
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        ServiceMetrics serviceMetrics = new ServiceMetrics(metricsRegistry, config.getMetricsMaxSymbols());
+        this.mongoClient = MongoClients.create(mongoSettings(config));
+        boolean archiving = config.getLogRetentionDays() > 0 && !config.getLogArchiveDir().isEmpty();
+        MongoLogRepository repository = new MongoLogRepository(mongoClient, config.getMongoDatabase(), config.getMongoCollection(),
+                config.isTimeSeriesLogs(), LogArchiver.expireAfterSeconds(config.getLogRetentionDays(), archiving));
+        if (archiving) {
+            this.logArchiver = new LogArchiver(repository, TimeUnit.DAYS.toMillis(config.getLogRetentionDays()),
+                    Paths.get(config.getLogArchiveDir()), config.getLogArchiveIntervalMs());
+            logArchiver.start();
+        }
+        RollupRepository rollups = new RollupRepository(mongoClient, config.getMongoDatabase(), config.getMongoRollupCollection());
+        this.logWriter = new AsyncLogWriter(repository, config.getLogQueueCapacity(), config.getLogBatchSize(),
+                config.getLogFlushIntervalMs(), config.getLogOverflowPolicy(), logSpool(config));
+        this.logShutdownTimeoutMs = config.getLogShutdownTimeoutMs();
+        DashboardAggregates aggregates = new DashboardAggregates(config.getDashboardRecentLogs(), config.getDashboardMaxSymbols());
+        logWriter.addFlushListener(aggregates::recordAll);
+        logWriter.addFlushListener(rollups::recordAll);
+        logWriter.addFlushObserver((batchSize, latencyMs, success) -> serviceMetrics.mongoWrite(latencyMs, success));
+        Thread bootstrap = new Thread(() -> aggregates.bootstrap(repository, rollups), "dashboard-bootstrap");
+        bootstrap.setDaemon(true);
+        bootstrap.start();
+        LatencyMetrics latencyMetrics = new LatencyMetrics(config.getLatencyMaxSymbols());
+        SymbolDemand demand = new SymbolDemand(config.getMetricsMaxSymbols(), config.getPrioritySymbols());
+        BinanceClient binanceClient = new BinanceClient(config.getBinanceBaseUrl(),
+                weightGovernor("primary", config.getBinanceWeightLimit(), config, demand), latencyMetrics, serviceMetrics);
+        BinanceClient secondaryClient = config.getBinanceSecondaryBaseUrl().isEmpty() ? null
+                : new BinanceClient(config.getBinanceSecondaryBaseUrl(),
+                weightGovernor("secondary", config.getBinanceSecondaryWeightLimit(), config, demand), latencyMetrics, serviceMetrics);
+        this.quoteSource = new ResilientQuoteSource(
+                binanceClient, circuitBreaker("primary", config),
+                secondaryClient, secondaryClient == null ? null : circuitBreaker("secondary", config),
+                latencyMetrics, config.getBreakerSlowCallMs(), config.getLastGoodMaxAgeMs());
+        TickHistory tickHistory = new TickHistory(config.getTickHistorySymbols(), config.getTickHistoryTicks(),
+                config.getCandles1s(), config.getCandles1m(), config.getCandles5m());
+        QuoteTable quoteTable = null;
+        if (config.isStreamingEnabled()) {
+            quoteTable = new QuoteTable(config.getStreamStaleMs());
+            quoteTable.addListener(tickHistory::record);
+            this.priceStreamer = new PriceStreamer(quoteTable, config.getStreamSymbols(), config.getBinanceStreamUrl(),
+                    binanceClient, config.getStreamFallbackPollMs(), config.getStreamReconnectMaxMs());
+            priceStreamer.start();
+        }
+        QuoteCache quoteCache = new QuoteCache(quoteSource, quoteTable, config.getQuoteCacheTtlMs());
+        quoteCache.addDemandListener(demand::record);
+        quoteCache.addQuoteListener(quote -> demand.accepted(quote.getSymbol()));
+        quoteCache.addQuoteListener(tickHistory::record);
         ObjectMapper mapper = new ObjectMapper();
+        this.priceBroadcaster = new PriceBroadcaster(quoteCache, quoteTable, mapper, config.getSsePollIntervalMs(),
+                config.getSseMaxSubscribers(), config.getSseSlowConsumerTimeoutMs());
+        this.roundEngine = new RoundEngine(quoteCache, config.getGameSymbol(), config.getGameRoundMs(),
+                config.getGameMaxBetsPerRound(), config.getGameMaxQuoteAgeMs(),
+                new BetRepository(mongoClient, config.getMongoDatabase(), config.getMongoRoundCollection(), config.getMongoBetCollection()));
+        roundEngine.start();
+        registerComponentMetrics(metricsRegistry, quoteCache, binanceClient, secondaryClient);
+        metricsRegistry.gaugeFunction("crypto_log_query_collscan", "1 when the startup plan check found a dashboard query scanning the log collection.",
+                () -> aggregates.getQueryPlanProblem() == null ? 0 : 1);
+        metricsRegistry.gaugeFunction("crypto_tick_history_symbols", "Symbols with in-memory tick history.",
+                tickHistory::getSymbolCount);
+        metricsRegistry.counterFunction("crypto_ticks_recorded_total", "Price ticks recorded into the tick history.",
+                tickHistory::getRecordedCount);
+        metricsRegistry.counterFunction("crypto_ticks_dropped_total", "Price ticks dropped because the symbol limit was reached.",
+                tickHistory::getDroppedCount);
+        ClientRateLimiter rateLimiter = config.getRateLimitPerSecond() <= 0 ? null
+                : new ClientRateLimiter(config.getRateLimitPerSecond(), config.getRateLimitBurst(),
+                config.getRateLimitMaxClients(), config.getRateLimitIdleMs());
+        if (rateLimiter != null) {
+            metricsRegistry.gaugeFunction("crypto_rate_limit_clients", "Clients with a rate-limit bucket.",
+                    rateLimiter::getClientCount);
+            metricsRegistry.counterFunction("crypto_requests_rate_limited_total", "Price requests rejected with 429 by the per-client rate limit.",
+                    rateLimiter::getRejectedCount);
+        }
+        ClientRateLimiter addressRateLimiter = config.getRateLimitAddressPerSecond() <= 0 ? null
+                : new ClientRateLimiter(config.getRateLimitAddressPerSecond(), config.getRateLimitAddressBurst(),
+                config.getRateLimitMaxClients(), config.getRateLimitIdleMs());
+        if (addressRateLimiter != null) {
+            metricsRegistry.gaugeFunction("crypto_rate_limit_addresses", "Client addresses with a rate-limit bucket.",
+                    addressRateLimiter::getClientCount);
+            metricsRegistry.counterFunction("crypto_requests_address_rate_limited_total", "Price requests rejected with 429 by the per-address rate limit.",
+                    addressRateLimiter::getRejectedCount);
+        }
+        ClientRateLimiter gameRateLimiter = config.getGameBetRatePerSecond() <= 0 ? null
+                : new ClientRateLimiter(config.getGameBetRatePerSecond(), config.getGameBetBurst(),
+                config.getRateLimitMaxClients(), config.getRateLimitIdleMs());
+        if (gameRateLimiter != null) {
+            metricsRegistry.counterFunction("crypto_game_bets_rate_limited_total", "Bets rejected with 429 by the per-client bet rate limit.",
+                    gameRateLimiter::getRejectedCount);
+        }
+        LoadShedder loadShedder = config.getShedMaxInFlight() <= 0 ? null
+                : new LoadShedder(latencyMetrics, config.getShedMaxInFlight(), config.getShedSlowUpstreamMs(),
+                config.getShedSlowMaxInFlight());
+        if (loadShedder != null) {
+            metricsRegistry.counterFunction("crypto_requests_shed_total", "Price requests rejected with 503 while overloaded.",
+                    loadShedder::getShedCount);
+        }
 
         context.setAttribute(AppAttributes.CONFIG, config);
         context.setAttribute(AppAttributes.MONGO_REPOSITORY, repository);
+        context.setAttribute(AppAttributes.ROLLUP_REPOSITORY, rollups);
+        context.setAttribute(AppAttributes.LOG_WRITER, logWriter);
+        context.setAttribute(AppAttributes.DASHBOARD_AGGREGATES, aggregates);
         context.setAttribute(AppAttributes.BINANCE_CLIENT, binanceClient);
+        context.setAttribute(AppAttributes.QUOTE_SOURCE, quoteSource);
+        context.setAttribute(AppAttributes.QUOTE_CACHE, quoteCache);
+        context.setAttribute(AppAttributes.QUOTE_TABLE, quoteTable);
+        context.setAttribute(AppAttributes.PRICE_STREAMER, priceStreamer);
+        context.setAttribute(AppAttributes.PRICE_BROADCASTER, priceBroadcaster);
+        context.setAttribute(AppAttributes.ROUND_ENGINE, roundEngine);
+        context.setAttribute(AppAttributes.TICK_HISTORY, tickHistory);
+        context.setAttribute(AppAttributes.RATE_LIMITER, rateLimiter);
+        context.setAttribute(AppAttributes.ADDRESS_RATE_LIMITER, addressRateLimiter);
+        context.setAttribute(AppAttributes.GAME_RATE_LIMITER, gameRateLimiter);
+        context.setAttribute(AppAttributes.LOAD_SHEDDER, loadShedder);
         context.setAttribute(AppAttributes.OBJECT_MAPPER, mapper);
+        context.setAttribute(AppAttributes.LATENCY_METRICS, latencyMetrics);
+        context.setAttribute(AppAttributes.METRICS_REGISTRY, metricsRegistry);
+        context.setAttribute(AppAttributes.SERVICE_METRICS, serviceMetrics);
     }
 
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
+        if (roundEngine != null) {
+            roundEngine.close();
+        }
+        if (priceBroadcaster != null) {
+            priceBroadcaster.shutdown();
+        }
+        if (priceStreamer != null) {
+            priceStreamer.stop();
+        }
+        if (quoteSource != null) {
+            quoteSource.close();
+        }
+        if (logArchiver != null) {
+            logArchiver.close();
+        }
+        // Drain queued logs before the Mongo client goes away.
+        if (logWriter != null) {
+            logWriter.close(logShutdownTimeoutMs);
+        }
         if (mongoClient != null) {
             mongoClient.close();
         }
     }
+
+    private static MongoClientSettings mongoSettings(AppConfig config) {
+        ConnectionString uri = new ConnectionString(config.getMongoUri());
+        MongoClientSettings.Builder builder = MongoClientSettings.builder().applyConnectionString(uri);
+        if (uri.getServerSelectionTimeout() == null) {
+            // The driver's 30 s default would hold the log writer, and every write behind it, on each outage.
+            builder.applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(
+                    config.getMongoServerSelectionTimeoutMs(), TimeUnit.MILLISECONDS));
+        }
+        return builder.build();
+    }
+
+    private static LogSpool logSpool(AppConfig config) {
+        if (config.getLogSpoolDir().isEmpty()) {
+            return null;
+        }
+        try {
+            return new LogSpool(Paths.get(config.getLogSpoolDir()), config.getLogSpoolMaxBytes(), config.getLogSpoolSegmentBytes());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open the request log spool in " + config.getLogSpoolDir(), e);
+        }
+    }
+
+    private static WeightGovernor weightGovernor(String name, long limit, AppConfig config, SymbolDemand demand) {
+        return new WeightGovernor(name, limit, config.getWeightBudgetPercent(), config.getWeightReservePercent(),
+                config.getWeightMaxWaitMs(), demand);
+    }
+
+    private static CircuitBreaker circuitBreaker(String name, AppConfig config) {
+        return new CircuitBreaker(name, config.getBreakerWindowCalls(), config.getBreakerMinCalls(),
+                config.getBreakerFailureRatePercent(), config.getBreakerSlowCallMs(), config.getBreakerOpenMs());
+    }
+
+    /**
+     * Exposes counters the components already keep; they are read only when {@code /metrics} is scraped.
+     */
+    private void registerComponentMetrics(MetricsRegistry registry, QuoteCache quoteCache, BinanceClient... clients) {
+        registry.counterFunction("crypto_quote_cache_hits_total", "Quotes served from the REST quote cache.",
+                quoteCache::getHitCount);
+        registry.counterFunction("crypto_quote_cache_misses_total", "Quote cache misses that called Binance.",
+                quoteCache::getMissCount);
+        registry.counterFunction("crypto_quote_cache_coalesced_total", "Requests that waited on another request's Binance call.",
+                quoteCache::getCoalescedCount);
+        registry.counterFunction("crypto_quote_stream_hits_total", "Quotes served from the streaming quote table.",
+                quoteCache::getStreamHitCount);
+        Map<String, DoubleSupplier> circuitStates = new LinkedHashMap<>();
+        Map<String, LongSupplier> circuitRejections = new LinkedHashMap<>();
+        for (CircuitBreaker breaker : Arrays.asList(quoteSource.getPrimaryBreaker(), quoteSource.getSecondaryBreaker())) {
+            if (breaker != null) {
+                circuitStates.put(breaker.getName(), () -> breaker.getState().getCode());
+                circuitRejections.put(breaker.getName(), breaker::getRejectedCount);
+            }
+        }
+        registry.gaugeFunction("crypto_binance_circuit_state", "Circuit state per endpoint: 0 closed, 1 open, 2 half-open.",
+                "endpoint", circuitStates);
+        registry.counterFunction("crypto_binance_circuit_rejected_total", "Calls not sent because the endpoint's circuit was open.",
+                "endpoint", circuitRejections);
+        Map<String, DoubleSupplier> weightUsed = new LinkedHashMap<>();
+        Map<String, DoubleSupplier> weightHeadroom = new LinkedHashMap<>();
+        Map<String, LongSupplier> weightDelayed = new LinkedHashMap<>();
+        Map<String, LongSupplier> weightRejected = new LinkedHashMap<>();
+        Map<String, LongSupplier> rateLimited = new LinkedHashMap<>();
+        for (BinanceClient client : clients) {
+            WeightGovernor governor = client == null ? null : client.getGovernor();
+            if (governor != null) {
+                weightUsed.put(governor.getName(), governor::getUsedWeight);
+                weightHeadroom.put(governor.getName(), governor::getHeadroom);
+                weightDelayed.put(governor.getName(), governor::getDelayedCount);
+                weightRejected.put(governor.getName(), governor::getRejectedCount);
+                rateLimited.put(governor.getName(), governor::getRateLimitedCount);
+            }
+        }
+        registry.gaugeFunction("crypto_binance_weight_used", "Request weight Binance reports as used this minute.",
+                "endpoint", weightUsed);
+        registry.gaugeFunction("crypto_binance_weight_headroom", "Request weight left before Binance's per-minute limit.",
+                "endpoint", weightHeadroom);
+        registry.counterFunction("crypto_binance_weight_delayed_total", "Calls held back by the weight governor before sending.",
+                "endpoint", weightDelayed);
+        registry.counterFunction("crypto_binance_weight_rejected_total", "Calls refused by the weight governor.",
+                "endpoint", weightRejected);
+        registry.counterFunction("crypto_binance_rate_limited_total", "429 and 418 responses from Binance.",
+                "endpoint", rateLimited);
+        registry.counterFunction("crypto_binance_hedges_total", "Quote requests hedged to the secondary endpoint.",
+                quoteSource::getHedgeCount);
+        registry.counterFunction("crypto_binance_hedge_wins_total", "Hedged requests answered first by the secondary endpoint.",
+                quoteSource::getHedgeWinCount);
+        registry.counterFunction("crypto_last_good_quotes_served_total", "Last good quotes served while Binance was unavailable.",
+                quoteSource::getLastGoodServedCount);
+        registry.gaugeFunction("crypto_log_queue_depth", "Request logs waiting for the background writer.",
+                logWriter::getQueueDepth);
+        registry.gaugeFunction("crypto_log_queue_capacity", "Capacity of the request log queue.",
+                logWriter::getQueueCapacity);
+        registry.counterFunction("crypto_logs_written_total", "Request logs persisted to MongoDB.",
+                logWriter::getWrittenCount);
+        registry.counterFunction("crypto_logs_dropped_total", "Request logs dropped because the queue or spool was full.",
+                logWriter::getDroppedCount);
+        if (logWriter.isSpoolEnabled()) {
+            registry.gaugeFunction("crypto_log_spool_backlog", "Request logs in the local spool waiting to be inserted into MongoDB.",
+                    logWriter::getSpoolBacklog);
+            registry.gaugeFunction("crypto_log_spool_backlog_bytes", "Bytes of request logs in the local spool.",
+                    logWriter::getSpoolBacklogBytes);
+            registry.counterFunction("crypto_logs_spooled_total", "Request logs written to the local spool.",
+                    logWriter::getSpooledCount);
+            registry.counterFunction("crypto_logs_replayed_total", "Spooled request logs inserted into MongoDB.",
+                    logWriter::getReplayedCount);
+        }
+        if (logArchiver != null) {
+            registry.counterFunction("crypto_logs_archived_total", "Expired request logs archived to disk and deleted.",
+                    logArchiver::getArchivedCount);
+        }
+        registry.gaugeFunction("crypto_sse_subscribers", "Connected price stream subscribers.",
+                priceBroadcaster::getSubscriberCount);
+        registry.counterFunction("crypto_sse_published_total", "Quotes published to price stream subscribers.",
+                priceBroadcaster::getPublishedCount);
+        registry.gaugeFunction("crypto_sse_rejected_symbols", "Streamed symbols Binance rejected and that are no longer polled.",
+                priceBroadcaster::getRejectedSymbolCount);
+        registry.counterFunction("crypto_game_bets_total", "Bets accepted by the round engine.",
+                roundEngine::getBetsPlacedCount);
+        registry.counterFunction("crypto_game_bets_rejected_total", "Bets refused because the round was full or starting.",
+                roundEngine::getBetsRejectedCount);
+        registry.counterFunction("crypto_game_rounds_settled_total", "Game rounds settled.",
+                roundEngine::getRoundsSettledCount);
+        registry.counterFunction("crypto_game_rounds_void_total", "Game rounds voided for lack of a trustworthy price.",
+                roundEngine::getVoidRoundCount);
+        registry.counterFunction("crypto_game_round_persist_failures_total", "Failed attempts to save a settled round to MongoDB.",
+                roundEngine::getPersistFailureCount);
+        registry.gaugeFunction("crypto_game_unsaved_rounds", "Settled rounds kept in memory until they can be saved to MongoDB.",
+                roundEngine::getUnsavedRoundCount);
+        registry.counterFunction("crypto_game_rounds_lost_total", "Settled rounds given up on because too many were waiting to be saved.",
+                roundEngine::getRoundsLostCount);
+        registry.gaugeFunction("crypto_game_last_settle_seconds", "Duration of the last round settlement pass.",
+                roundEngine::getLastSettleSeconds);
+        if (priceStreamer != null) {
+            registry.gaugeFunction("crypto_binance_stream_connected", "1 while the Binance WebSocket is connected.",
+                    () -> priceStreamer.isConnected() ? 1 : 0);
+            registry.counterFunction("crypto_binance_stream_messages_total", "Ticker messages received over the WebSocket.",
+                    priceStreamer::getMessageCount);
+            registry.counterFunction("crypto_binance_stream_reconnects_total", "WebSocket reconnect attempts.",
+                    priceStreamer::getReconnectCount);
+        }
+    }
 }
@@ -0,0 +1,467 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import org.bson.RawBsonDocument;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded, non-blocking pipeline that batches request logs into unordered {@code insertMany} calls.
+ * Request threads only enqueue; a single background thread flushes when either the batch size or the
+ * flush interval is reached.
+ * <p>
+ * With a {@link LogSpool}, the writer never talks to MongoDB: every batch is appended and synced to the spool
+ * first, and a replay thread inserts from there, oldest first. A log is therefore on disk within one flush
+ * interval of being submitted, however long MongoDB is unreachable, and whatever the replay thread has not
+ * inserted by shutdown is replayed after the next start. Logs keep their {@code _id}s through the spool, and a
+ * batch replayed after a failed commit or a crash only inserts, and passes to flush listeners, the logs
+ * MongoDB did not already hold (see {@link MongoLogRepository#insertEncoded}). Listeners thus see each log at
+ * most once; logs inserted just before a crash are missed by them rather than counted twice.
+ */
+public class AsyncLogWriter {
+    private static final Logger LOGGER = Logger.getLogger(AsyncLogWriter.class.getName());
+    private static final long MAX_REPLAY_BACKOFF_MS = 30000;
+
+    /**
+     * What {@link #submit(RequestLog)} does when the queue is full.
+     */
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEW,
+        BLOCK;
+
+        public static OverflowPolicy parse(String value) {
+            return OverflowPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    /**
+     * Observes every {@code insertMany} attempt, successful or not.
+     */
+    public interface FlushObserver {
+        void onFlush(int batchSize, long latencyMs, boolean success);
+    }
+
+    private final MongoLogRepository repository;
+    private final BlockingQueue<RequestLog> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread worker;
+    private final LogSpool spool;
+    private final Thread replayer;
+    private final List<Consumer<List<RequestLog>>> flushListeners = new CopyOnWriteArrayList<>();
+    private final List<FlushObserver> flushObservers = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+    // Set by close() once nothing more will be appended to the spool.
+    private volatile boolean spoolSealed;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder spooled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushLatencyTotalMs = new LongAdder();
+    private final AtomicLong lastFlushLatencyMs = new AtomicLong();
+    private final AtomicLong maxFlushLatencyMs = new AtomicLong();
+
+    public AsyncLogWriter(MongoLogRepository repository, int capacity, int batchSize, long flushIntervalMs,
+                          OverflowPolicy overflowPolicy) {
+        this(repository, capacity, batchSize, flushIntervalMs, overflowPolicy, null);
+    }
+
+    /**
+     * @param spool where batches go while MongoDB is failing, or {@code null} to count them as failed
+     */
+    public AsyncLogWriter(MongoLogRepository repository, int capacity, int batchSize, long flushIntervalMs,
+                          OverflowPolicy overflowPolicy, LogSpool spool) {
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.overflowPolicy = overflowPolicy;
+        this.worker = new Thread(this::runLoop, "request-log-writer");
+        this.worker.setDaemon(true);
+        this.spool = spool;
+        if (spool != null) {
+            this.replayer = new Thread(this::replayLoop, "request-log-replayer");
+            this.replayer.setDaemon(true);
+            this.replayer.start();
+        } else {
+            this.replayer = null;
+        }
+        this.worker.start();
+    }
+
+    /**
+     * Queues a log for the background writer. Never waits on MongoDB; only {@link OverflowPolicy#BLOCK}
+     * waits, and only for queue space.
+     */
+    public void submit(RequestLog log) {
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        submitted.increment();
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(log);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(log)) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                break;
+            case DROP_NEW:
+            default:
+                if (!queue.offer(log)) {
+                    dropped.increment();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Registers a callback that receives every batch after it has been written to MongoDB. Runs on the
+     * thread that wrote it, the writer thread or with a spool the replay thread, so listeners see exactly
+     * what was persisted and never slow down request threads.
+     */
+    public void addFlushListener(Consumer<List<RequestLog>> listener) {
+        flushListeners.add(listener);
+    }
+
+    /**
+     * Registers a callback that receives the size, duration and result of every write to MongoDB. Runs on the
+     * thread that wrote it, as {@link #addFlushListener} callbacks do.
+     */
+    public void addFlushObserver(FlushObserver observer) {
+        flushObservers.add(observer);
+    }
+
+    /**
+     * Stops accepting logs and waits up to {@code timeoutMs} in total for what is queued to be written. The
+     * worker is not interrupted so an in-progress write is allowed to finish. With a spool, logs the worker
+     * did not get to are moved into the spool here, the replay thread keeps inserting until the spool is
+     * empty or the time is up, and whatever is left in the spool is replayed after the next start.
+     */
+    public void close(long timeoutMs) {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        join(worker, deadline);
+        List<RequestLog> left = new ArrayList<>();
+        queue.drainTo(left);
+        if (!left.isEmpty()) {
+            if (spool != null) {
+                LOGGER.warning("Request log writer did not drain within " + timeoutMs + " ms; spooling "
+                        + left.size() + " queued logs");
+                spool(encode(left));
+            } else {
+                dropped.add(left.size());
+                LOGGER.warning("Request log writer did not drain within " + timeoutMs + " ms; "
+                        + left.size() + " logs discarded");
+            }
+        }
+        if (replayer == null) {
+            return;
+        }
+        spoolSealed = !worker.isAlive();
+        LockSupport.unpark(replayer);
+        join(replayer, deadline);
+        if (replayer.isAlive()) {
+            LOGGER.info(spool.getBacklogRecords() + " spooled request logs will be written after the next start");
+            replayer.interrupt();
+            join(replayer, System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+        }
+        if (worker.isAlive() || replayer.isAlive()) {
+            return;
+        }
+        try {
+            spool.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Closing the request log spool failed", e);
+        }
+    }
+
+    private static void join(Thread thread, long deadlineNanos) {
+        try {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMs > 0) {
+                thread.join(remainingMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runLoop() {
+        List<RequestLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    RequestLog log = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (log == null) {
+                        break;
+                    }
+                    batch.add(log);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            flush(batch);
+        }
+        // Final drain after shutdown was requested.
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+        flush(batch);
+    }
+
+    private void flush(List<RequestLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (spool != null) {
+            spool(encode(batch));
+            batch.clear();
+            LockSupport.unpark(replayer);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            repository.insertMany(batch);
+            written.add(batch.size());
+            success = true;
+        } catch (RuntimeException e) {
+            failed.add(batch.size());
+            LOGGER.log(Level.WARNING, "Failed to write " + batch.size() + " request logs", e);
+        }
+        recordWrite(batch.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), success);
+        if (success) {
+            notifyListeners(batch);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Inserts the spool into MongoDB oldest first, backing off while MongoDB keeps failing, and waits for the
+     * writer's next append once it is empty. After shutdown it stops once close() has handed over the last
+     * logs and the spool is empty, or at the first failure.
+     */
+    private void replayLoop() {
+        long backoffMs = flushIntervalMs;
+        // The spool head may have been inserted before a crash or a failed commit.
+        boolean mayRepeat = true;
+        while (true) {
+            List<RawBsonDocument> batch = spool.peek(batchSize);
+            if (batch.isEmpty()) {
+                if (spoolSealed) {
+                    return;
+                }
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+                if (Thread.interrupted()) {
+                    return;
+                }
+                continue;
+            }
+            long start = System.nanoTime();
+            boolean success = false;
+            List<RawBsonDocument> inserted = null;
+            try {
+                inserted = repository.insertEncoded(batch, mayRepeat);
+                spool.commit();
+                success = true;
+            } catch (IOException | RuntimeException e) {
+                if (backoffMs == flushIntervalMs) {
+                    LOGGER.log(Level.WARNING, "Writing spooled request logs to MongoDB failed; retrying with back-off", e);
+                }
+            }
+            // A failed insert may have written part of the batch, a failed commit all of it.
+            mayRepeat = !success;
+            recordWrite(batch.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), success);
+            if (inserted != null) {
+                // Listeners get them now even if the commit failed: the retry will find them stored and skip them.
+                written.add(inserted.size());
+                List<RequestLog> logs = new ArrayList<>(inserted.size());
+                for (RawBsonDocument document : inserted) {
+                    logs.add(document.decode(RequestLogCodec.INSTANCE));
+                }
+                notifyListeners(logs);
+            }
+            if (success) {
+                replayed.add(batch.size());
+                backoffMs = flushIntervalMs;
+            } else {
+                if (!running || !pause(backoffMs)) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, MAX_REPLAY_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void spool(List<RawBsonDocument> encoded) {
+        try {
+            int appended = spool.append(encoded);
+            spooled.add(appended);
+            if (appended < encoded.size()) {
+                dropped.add(encoded.size() - appended);
+                LOGGER.warning("Request log spool is full; dropped " + (encoded.size() - appended) + " logs");
+            }
+        } catch (IOException e) {
+            failed.add(encoded.size());
+            LOGGER.log(Level.WARNING, "Failed to spool " + encoded.size() + " request logs", e);
+        }
+    }
+
+    private void recordWrite(int size, long latencyMs, boolean success) {
+        flushes.increment();
+        flushLatencyTotalMs.add(latencyMs);
+        lastFlushLatencyMs.set(latencyMs);
+        maxFlushLatencyMs.accumulateAndGet(latencyMs, Math::max);
+        notifyObservers(size, latencyMs, success);
+    }
+
+    private static List<RawBsonDocument> encode(List<RequestLog> batch) {
+        List<RawBsonDocument> encoded = new ArrayList<>(batch.size());
+        for (RequestLog log : batch) {
+            encoded.add(new RawBsonDocument(log, RequestLogCodec.INSTANCE));
+        }
+        return encoded;
+    }
+
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void notifyObservers(int batchSize, long latencyMs, boolean success) {
+        for (FlushObserver observer : flushObservers) {
+            try {
+                observer.onFlush(batchSize, latencyMs, success);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Request log flush observer failed", e);
+            }
+        }
+    }
+
+    private void notifyListeners(List<RequestLog> batch) {
+        for (Consumer<List<RequestLog>> listener : flushListeners) {
+            try {
+                listener.accept(batch);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Request log flush listener failed", e);
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public boolean isSpoolEnabled() {
+        return spool != null;
+    }
+
+    /**
+     * Logs appended to the spool; with a spool every flushed log goes through it.
+     */
+    public long getSpooledCount() {
+        return spooled.sum();
+    }
+
+    public long getReplayedCount() {
+        return replayed.sum();
+    }
+
+    /**
+     * Logs waiting in the spool, or 0 without a spool.
+     */
+    public long getSpoolBacklog() {
+        return spool == null ? 0 : spool.getBacklogRecords();
+    }
+
+    public long getSpoolBacklogBytes() {
+        return spool == null ? 0 : spool.getBacklogBytes();
+    }
+
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    public double getAverageFlushLatencyMs() {
+        long count = flushes.sum();
+        return count == 0 ? 0.0 : (double) flushLatencyTotalMs.sum() / (double) count;
+    }
+
+    public long getLastFlushLatencyMs() {
+        return lastFlushLatencyMs.get();
+    }
+
+    public long getMaxFlushLatencyMs() {
+        return maxFlushLatencyMs.get();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Running dashboard analytics folded in from every persisted {@link RequestLog}, so the dashboard renders
+ * without scanning MongoDB. Seeded once from the collection at startup.
+ */
+public class DashboardAggregates {
+    private static final Logger LOGGER = Logger.getLogger(DashboardAggregates.class.getName());
+    private static final String OTHER_SYMBOLS = "(other)";
+    private static final int BOOTSTRAP_SYMBOL_LIMIT = 1000;
+
+    private final LongAdder total = new LongAdder();
+    private final LongAdder success = new LongAdder();
+    private final LongAdder latencySumMs = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> symbolCounts = new ConcurrentHashMap<>();
+    private final int maxTrackedSymbols;
+    private final RequestLog[] recent;
+    private int recentNext;
+    private int recentSize;
+    private volatile boolean bootstrapped;
+    private volatile String queryPlanProblem;
+
+    public DashboardAggregates(int recentCapacity, int maxTrackedSymbols) {
+        this.recent = new RequestLog[recentCapacity];
+        this.maxTrackedSymbols = maxTrackedSymbols;
+    }
+
+    /**
+     * Loads the existing totals once, from the hourly rollups rather than the raw logs, first rolling up logs
+     * written before rollups existed. The log collection is prepared before it is read: indexes are created,
+     * logs written by earlier versions are rewritten to the compact field names and the dashboard query plans
+     * are checked. Logs persisted while this runs may be counted twice; the window is a
+     * few seconds at startup and only skews totals, never the recent-log list.
+     */
+    public void bootstrap(MongoLogRepository repository, RollupRepository rollups) {
+        try {
+            repository.ensureIndexes();
+            long migrated = repository.migrateLegacyFields();
+            if (migrated > 0) {
+                LOGGER.info("Rewrote " + migrated + " request logs to the compact field names");
+            }
+            repository.dropLegacyIndexes();
+            try {
+                repository.verifyQueryPlans();
+            } catch (IllegalStateException e) {
+                queryPlanProblem = e.getMessage();
+                LOGGER.severe(e.getMessage());
+            }
+            rollups.ensureIndexes();
+            rollups.backfill(repository);
+            List<RollupBucket> totals = rollups.totalsBySymbol();
+            totals.sort(Comparator.comparingLong(RollupBucket::getCount).reversed());
+            for (int i = 0; i < totals.size(); i++) {
+                RollupBucket bucket = totals.get(i);
+                total.add(bucket.getCount());
+                success.add(bucket.getSuccessCount());
+                latencySumMs.add(bucket.getLatencySumMs());
+                if (!RequestLog.BATCH_SYMBOL.equals(bucket.getSymbol())) {
+                    counterFor(i < BOOTSTRAP_SYMBOL_LIMIT ? bucket.getSymbol() : OTHER_SYMBOLS).add(bucket.getCount());
+                }
+            }
+            seedRecent(repository.recentLogs(recent.length));
+            bootstrapped = true;
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Dashboard bootstrap from MongoDB failed; showing live totals only", e);
+        }
+    }
+
+    public void record(RequestLog log) {
+        total.increment();
+        if (log.isSuccess()) {
+            success.increment();
+        }
+        latencySumMs.add(log.getTotalLatencyMs());
+        if (!log.isBatch()) {
+            counterFor(log.getSymbol()).increment();
+        }
+        synchronized (recent) {
+            appendRecent(log);
+        }
+    }
+
+    public void recordAll(List<RequestLog> logs) {
+        for (RequestLog log : logs) {
+            record(log);
+        }
+    }
+
+    public long totalCount() {
+        return total.sum();
+    }
+
+    public long successCount() {
+        return success.sum();
+    }
+
+    public double averageLatencyMs() {
+        long count = total.sum();
+        return count == 0 ? 0.0 : (double) latencySumMs.sum() / (double) count;
+    }
+
+    public boolean isBootstrapped() {
+        return bootstrapped;
+    }
+
+    /**
+     * @return why the startup plan check failed, or {@code null} when every dashboard query uses an index
+     */
+    public String getQueryPlanProblem() {
+        return queryPlanProblem;
+    }
+
+    /**
+     * Returns the {@code limit} most requested symbols, most requested first.
+     */
+    public List<SymbolStats> topSymbols(int limit) {
+        PriorityQueue<SymbolStats> heap = new PriorityQueue<>(limit + 1, Comparator.comparingLong(SymbolStats::getCount));
+        for (Map.Entry<String, LongAdder> entry : symbolCounts.entrySet()) {
+            heap.offer(new SymbolStats(entry.getKey(), entry.getValue().sum()));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<SymbolStats> top = new ArrayList<>(heap);
+        top.sort(Comparator.comparingLong(SymbolStats::getCount).reversed());
+        return top;
+    }
+
+    /**
+     * Returns up to {@code limit} of the most recent logs, newest first.
+     */
+    public List<RequestLog> recentLogs(int limit) {
+        synchronized (recent) {
+            int count = Math.min(limit, recentSize);
+            List<RequestLog> logs = new ArrayList<>(count);
+            for (int i = 1; i <= count; i++) {
+                logs.add(recent[(recentNext - i + recent.length) % recent.length]);
+            }
+            return logs;
+        }
+    }
+
+    private LongAdder counterFor(String symbol) {
+        String key = symbol == null ? OTHER_SYMBOLS : symbol;
+        LongAdder counter = symbolCounts.get(key);
+        if (counter != null) {
+            return counter;
+        }
+        // Symbols are client supplied; cap distinct keys so junk input cannot grow the map without bound.
+        if (symbolCounts.size() >= maxTrackedSymbols) {
+            key = OTHER_SYMBOLS;
+        }
+        return symbolCounts.computeIfAbsent(key, ignored -> new LongAdder());
+    }
+
+    private void seedRecent(List<RequestLog> newestFirst) {
+        synchronized (recent) {
+            // Keep whatever arrived live during bootstrap; it is newer than anything read from MongoDB.
+            List<RequestLog> live = recentLogs(recentSize);
+            Set<String> liveIds = new HashSet<>();
+            for (RequestLog log : live) {
+                liveIds.add(log.getRequestId());
+            }
+            recentNext = 0;
+            recentSize = 0;
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                RequestLog log = newestFirst.get(i);
+                if (!liveIds.contains(log.getRequestId())) {
+                    appendRecent(log);
+                }
+            }
+            for (int i = live.size() - 1; i >= 0; i--) {
+                appendRecent(live.get(i));
+            }
+        }
+    }
+
+    private void appendRecent(RequestLog log) {
+        recent[recentNext] = log;
+        recentNext = (recentNext + 1) % recent.length;
+        recentSize = Math.min(recentSize + 1, recent.length);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically moves request logs older than the retention period out of MongoDB into compressed files in a
+ * local directory. The collection's TTL is set a grace period past the retention (see
+ * {@link #expireAfterSeconds}), so MongoDB only deletes logs itself if archiving keeps failing.
+ * <p>
+ * A time-series collection on a MongoDB server older than 7.0 cannot delete archived logs by {@code _id}. There
+ * the archiver stops at its first run, sets the TTL back to the retention itself and leaves expiry to MongoDB,
+ * rather than writing archive files whose logs are never deleted.
+ */
+public class LogArchiver {
+    private static final Logger LOGGER = Logger.getLogger(LogArchiver.class.getName());
+    private static final long TTL_GRACE_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    private final MongoLogRepository repository;
+    private final long retentionMs;
+    private final Path directory;
+    private final long intervalMs;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder archived = new LongAdder();
+    private boolean checked;
+
+    public LogArchiver(MongoLogRepository repository, long retentionMs, Path directory, long intervalMs) {
+        this.repository = repository;
+        this.retentionMs = retentionMs;
+        this.directory = directory;
+        this.intervalMs = intervalMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * TTL for the log collection: the retention itself, or the retention plus a day of grace when an archiver
+     * removes expired logs first.
+     *
+     * @return seconds, or 0 when logs are kept forever
+     */
+    public static long expireAfterSeconds(long retentionDays, boolean archiving) {
+        if (retentionDays <= 0) {
+            return 0;
+        }
+        long retentionSeconds = TimeUnit.DAYS.toSeconds(retentionDays);
+        return archiving ? retentionSeconds + TTL_GRACE_SECONDS : retentionSeconds;
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::archiveExpired, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    public long getArchivedCount() {
+        return archived.sum();
+    }
+
+    private void archiveExpired() {
+        Instant cutoff = Instant.now().minusMillis(retentionMs);
+        try {
+            if (!checked) {
+                if (!repository.canDeleteArchived()) {
+                    LOGGER.severe("MongoDB " + repository.getServerVersion() + " cannot delete from the time-series "
+                            + "log collection by _id, which needs MongoDB 7.0; archiving is off and logs expire after "
+                            + "the retention period by TTL only");
+                    repository.setTimeSeriesExpiry(TimeUnit.MILLISECONDS.toSeconds(retentionMs));
+                    scheduler.shutdown();
+                    return;
+                }
+                checked = true;
+            }
+            Files.createDirectories(directory);
+            long count = repository.archiveBefore(cutoff, directory);
+            archived.add(count);
+            if (count > 0) {
+                LOGGER.info("Archived " + count + " request logs received before " + cutoff + " to " + directory);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Archiving request logs failed; retrying in " + intervalMs + " ms", e);
+        }
+    }
+}
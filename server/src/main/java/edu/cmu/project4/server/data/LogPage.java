@@ -0,0 +1,79 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of request logs, newest first, and the position to continue from.
+ */
+public final class LogPage {
+    private final List<RequestLog> logs;
+    private final Key next;
+
+    public LogPage(List<RequestLog> logs, Key next) {
+        this.logs = logs;
+        this.next = next;
+    }
+
+    public List<RequestLog> getLogs() {
+        return logs;
+    }
+
+    /**
+     * @return the key of the last log on this page, or {@code null} when there are no older logs
+     */
+    public Key getNext() {
+        return next;
+    }
+
+    /**
+     * Position of a log in the {@code (receive time, _id)} order pages are read in. The {@code _id} breaks ties
+     * between logs received in the same millisecond, so no log is skipped or repeated across pages.
+     */
+    public static final class Key {
+        private final Instant receivedAt;
+        private final ObjectId id;
+
+        public Key(Instant receivedAt, ObjectId id) {
+            this.receivedAt = receivedAt;
+            this.id = id;
+        }
+
+        public Instant getReceivedAt() {
+            return receivedAt;
+        }
+
+        public ObjectId getId() {
+            return id;
+        }
+
+        /**
+         * @return an opaque, URL-safe token for clients to pass back
+         */
+        public String toToken() {
+            String plain = receivedAt.toEpochMilli() + "." + id.toHexString();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * @throws IllegalArgumentException if {@code token} did not come from {@link #toToken()}
+         */
+        public static Key parse(String token) {
+            String plain = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int dot = plain.indexOf('.');
+            if (dot < 0) {
+                throw new IllegalArgumentException("Malformed page token");
+            }
+            return new Key(Instant.ofEpochMilli(Long.parseLong(plain.substring(0, dot))),
+                    new ObjectId(plain.substring(dot + 1)));
+        }
+    }
+}
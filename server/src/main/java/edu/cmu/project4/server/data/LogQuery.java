@@ -0,0 +1,79 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import com.mongodb.client.model.Filters;
+import org.bson.conversions.Bson;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Filters for paging through request logs. Every field is optional; {@code null} matches everything.
+ */
+public final class LogQuery {
+    private final String symbol;
+    private final String clientId;
+    private final Boolean success;
+    private final Instant from;
+    private final Instant to;
+
+    /**
+     * @param from first receive time included
+     * @param to   first receive time excluded
+     */
+    public LogQuery(String symbol, String clientId, Boolean success, Instant from, Instant to) {
+        this.symbol = symbol;
+        this.clientId = clientId;
+        this.success = success;
+        this.from = from;
+        this.to = to;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    /**
+     * Equality filters first, so each lines up with the leading key of its {@code <field>_t_id} index.
+     */
+    List<Bson> toFilters() {
+        List<Bson> filters = new ArrayList<>();
+        if (symbol != null) {
+            filters.add(Filters.eq(RequestLogCodec.SYMBOL, symbol));
+        }
+        if (clientId != null) {
+            filters.add(Filters.eq(RequestLogCodec.CLIENT_ID, clientId));
+        }
+        if (success != null) {
+            filters.add(Filters.eq(RequestLogCodec.SUCCESS, success));
+        }
+        if (from != null) {
+            filters.add(Filters.gte(RequestLogCodec.RECEIVED_AT, Date.from(from)));
+        }
+        if (to != null) {
+            filters.add(Filters.lt(RequestLogCodec.RECEIVED_AT, Date.from(to)));
+        }
+        return filters;
+    }
+}
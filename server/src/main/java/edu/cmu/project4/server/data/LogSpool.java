@@ -0,0 +1,302 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import org.bson.RawBsonDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Bounded on-disk FIFO of encoded request logs on their way to MongoDB. Logs are appended to
+ * fixed-size memory-mapped segment files ({@code spool-<n>.seg}); a full segment rotates to the next one and a
+ * fully replayed one is deleted. Each record is {@code [length][crc32][BSON]}; each segment starts with the
+ * offset up to which it has been replayed, so after a restart reading resumes there. A record torn by a crash
+ * fails its checksum and ends the segment.
+ * <p>
+ * One thread appends and one thread replays; methods are synchronized between the two.
+ */
+public class LogSpool implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(LogSpool.class.getName());
+    private static final int SEGMENT_HEADER_BYTES = Long.BYTES;
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final String PREFIX = "spool-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long nextSequence;
+    private long backlogBytes;
+    private long backlogRecords;
+    private int peekedOffset = -1;
+    private int peekedRecords;
+
+    /**
+     * Opens the spool in {@code directory}, creating it if needed, and scans existing segments for logs not
+     * yet replayed.
+     *
+     * @throws IllegalStateException if another process holds the spool
+     */
+    public LogSpool(Path directory, long maxBytes, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = (int) Math.max(1, maxBytes / segmentBytes);
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve("spool.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.lock = lockChannel.tryLock();
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Log spool " + directory + " is in use by another process");
+        }
+        TreeMap<Long, Path> existing = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                existing.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), file);
+            }
+        }
+        for (Map.Entry<Long, Path> entry : existing.entrySet()) {
+            Segment segment = Segment.open(entry.getValue(), segmentBytes);
+            segments.addLast(segment);
+            backlogBytes += segment.writeOffset - segment.readOffset;
+            backlogRecords += segment.pendingRecords;
+            nextSequence = entry.getKey() + 1;
+        }
+        dropReplayedSegments();
+        if (backlogRecords > 0) {
+            LOGGER.info("Log spool " + directory + " holds " + backlogRecords + " request logs to replay");
+        }
+    }
+
+    /**
+     * Appends encoded logs in order and syncs them to disk, including segments filled and rotated past on
+     * the way.
+     *
+     * @return how many were appended; fewer than given when the spool is full
+     */
+    public synchronized int append(List<RawBsonDocument> documents) throws IOException {
+        int appended = 0;
+        List<Segment> touched = new ArrayList<>(2);
+        for (RawBsonDocument document : documents) {
+            ByteBuffer bytes = document.getByteBuffer().asNIO();
+            int length = bytes.remaining();
+            Segment segment = segments.peekLast();
+            if (segment == null || !segment.fits(length)) {
+                if (segments.size() >= maxSegments || RECORD_HEADER_BYTES + length + Integer.BYTES > segmentBytes - SEGMENT_HEADER_BYTES) {
+                    break;
+                }
+                segment = Segment.create(directory.resolve(PREFIX + nextSequence + SUFFIX), segmentBytes);
+                nextSequence++;
+                segments.addLast(segment);
+            }
+            if (touched.isEmpty() || touched.get(touched.size() - 1) != segment) {
+                touched.add(segment);
+            }
+            segment.append(bytes, length);
+            backlogBytes += RECORD_HEADER_BYTES + length;
+            backlogRecords++;
+            appended++;
+        }
+        for (Segment segment : touched) {
+            segment.buffer.force();
+        }
+        return appended;
+    }
+
+    /**
+     * Reads up to {@code max} of the oldest logs without removing them; {@link #commit()} removes them once
+     * they are safely written elsewhere. Peeking again without committing returns the same logs.
+     */
+    public synchronized List<RawBsonDocument> peek(int max) {
+        List<RawBsonDocument> documents = new ArrayList<>();
+        Segment segment = segments.peekFirst();
+        if (segment == null) {
+            return documents;
+        }
+        ByteBuffer source = segment.buffer.duplicate();
+        int offset = segment.readOffset;
+        while (documents.size() < max && offset < segment.writeOffset) {
+            int length = segment.buffer.getInt(offset);
+            byte[] bytes = new byte[length];
+            source.position(offset + RECORD_HEADER_BYTES);
+            source.get(bytes);
+            documents.add(new RawBsonDocument(bytes));
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        peekedOffset = offset;
+        peekedRecords = documents.size();
+        return documents;
+    }
+
+    /**
+     * Removes the logs returned by the last {@link #peek(int)}, deleting the oldest segment once it is fully
+     * replayed and no longer written to.
+     */
+    public synchronized void commit() throws IOException {
+        Segment segment = segments.peekFirst();
+        if (segment == null || peekedOffset < 0) {
+            return;
+        }
+        backlogBytes -= peekedOffset - segment.readOffset;
+        backlogRecords -= peekedRecords;
+        segment.markRead(peekedOffset);
+        peekedOffset = -1;
+        peekedRecords = 0;
+        if (segments.size() == 1 && segment.readOffset == segment.writeOffset) {
+            segment.reset();
+        }
+        dropReplayedSegments();
+    }
+
+    public synchronized boolean isEmpty() {
+        return backlogRecords == 0;
+    }
+
+    public synchronized long getBacklogRecords() {
+        return backlogRecords;
+    }
+
+    public synchronized long getBacklogBytes() {
+        return backlogBytes;
+    }
+
+    public long getCapacityBytes() {
+        return (long) maxSegments * segmentBytes;
+    }
+
+    /**
+     * Deletes fully replayed segments from the front; the segment being written to is kept and reused.
+     */
+    private void dropReplayedSegments() throws IOException {
+        while (segments.size() > 1 && segments.peekFirst().readOffset == segments.peekFirst().writeOffset) {
+            Segment segment = segments.removeFirst();
+            segment.close();
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.close();
+        }
+        segments.clear();
+        lock.release();
+        lockChannel.close();
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final CRC32 crc = new CRC32();
+        private int readOffset;
+        private int writeOffset;
+        private long pendingRecords;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path path, int size) throws IOException {
+            Segment segment = map(path, size);
+            segment.readOffset = SEGMENT_HEADER_BYTES;
+            segment.writeOffset = SEGMENT_HEADER_BYTES;
+            segment.buffer.putLong(0, SEGMENT_HEADER_BYTES);
+            segment.buffer.putInt(SEGMENT_HEADER_BYTES, 0);
+            return segment;
+        }
+
+        static Segment open(Path path, int size) throws IOException {
+            Segment segment = map(path, Math.max(size, (int) Files.size(path)));
+            long stored = segment.buffer.getLong(0);
+            int offset = stored < SEGMENT_HEADER_BYTES || stored > segment.buffer.capacity()
+                    ? SEGMENT_HEADER_BYTES : (int) stored;
+            segment.readOffset = offset;
+            while (offset + RECORD_HEADER_BYTES <= segment.buffer.capacity()) {
+                int length = segment.buffer.getInt(offset);
+                if (length <= 0 || offset + RECORD_HEADER_BYTES + length > segment.buffer.capacity()
+                        || segment.checksum(offset + RECORD_HEADER_BYTES, length) != segment.buffer.getInt(offset + Integer.BYTES)) {
+                    break;
+                }
+                offset += RECORD_HEADER_BYTES + length;
+                segment.pendingRecords++;
+            }
+            segment.writeOffset = offset;
+            return segment;
+        }
+
+        private static Segment map(Path path, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        boolean fits(int length) {
+            // Room for the record plus the zero length that terminates the segment.
+            return writeOffset + RECORD_HEADER_BYTES + length + Integer.BYTES <= buffer.capacity();
+        }
+
+        void append(ByteBuffer bytes, int length) {
+            int start = writeOffset + RECORD_HEADER_BYTES;
+            ByteBuffer target = buffer.duplicate();
+            target.position(start);
+            target.put(bytes.duplicate());
+            buffer.putInt(start + length, 0);
+            buffer.putInt(writeOffset + Integer.BYTES, checksum(start, length));
+            // The length goes last: a record is only visible once it is complete.
+            buffer.putInt(writeOffset, length);
+            writeOffset = start + length;
+        }
+
+        void markRead(int offset) {
+            readOffset = offset;
+            buffer.putLong(0, offset);
+        }
+
+        void reset() {
+            buffer.putInt(SEGMENT_HEADER_BYTES, 0);
+            readOffset = SEGMENT_HEADER_BYTES;
+            writeOffset = SEGMENT_HEADER_BYTES;
+            buffer.putLong(0, SEGMENT_HEADER_BYTES);
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+
+        private int checksum(int offset, int length) {
+            crc.reset();
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(offset).limit(offset + length);
+            crc.update(slice);
+            return (int) crc.getValue();
+        }
+    }
+}
@@ -4,46 +4,404 @@
 
 package edu.cmu.project4.server.data;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Accumulators;
 import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.CreateCollectionOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.ObjectId;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Thin wrapper around the MongoDB collection that stores logs.
+ * Thin wrapper around the MongoDB collection that stores logs. Logs are written and read as {@link RequestLog}s
+ * through {@link RequestLogCodec}; a {@code Document} view of the same collection serves commands and plans.
  */
 public class MongoLogRepository {
+    private static final Logger LOGGER = Logger.getLogger(MongoLogRepository.class.getName());
+    private static final String TIME_INDEX = "t_desc";
+    /**
+     * Suffix of the small collection holding markers for one-off maintenance, next to the log collection.
+     */
+    private static final String STATE_SUFFIX = ".state";
+    private static final String LEGACY_FIELDS_MIGRATED = "legacyFieldsMigrated";
+    private static final String PENDING_ARCHIVE = "pendingArchive";
+    private static final int ARCHIVE_CHUNK = 50000;
+    private static final int DELETE_CHUNK = 1000;
+    private static final List<String> LEGACY_INDEXES = List.of("requestReceivedAt_desc",
+            "symbol_requestReceivedAt", "success_requestReceivedAt", "s_t", "ok_t");
+    /**
+     * The columns the dashboard shows; pages leave out the rest.
+     */
+    private static final Bson PAGE_PROJECTION = Projections.include(RequestLogCodec.RECEIVED_AT,
+            RequestLogCodec.REQUEST_ID, RequestLogCodec.CLIENT_ID, RequestLogCodec.CLIENT_IP, RequestLogCodec.SYMBOL,
+            RequestLogCodec.PRICE, RequestLogCodec.BINANCE_STATUS, RequestLogCodec.BINANCE_LATENCY_MS,
+            RequestLogCodec.TOTAL_LATENCY_MS, RequestLogCodec.SUCCESS, RequestLogCodec.ERROR_MESSAGE);
+    private static final Bson PAGE_SORT = Sorts.descending(RequestLogCodec.RECEIVED_AT, "_id");
+    private static final CodecRegistry CODECS = CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(RequestLogCodec.INSTANCE),
+            MongoClientSettings.getDefaultCodecRegistry());
+    private static final JsonWriterSettings ARCHIVE_JSON = JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build();
+
+    private final MongoDatabase database;
+    private final MongoCollection<RequestLog> logs;
     private final MongoCollection<Document> collection;
+    private final MongoCollection<Document> state;
+    private final String collectionName;
+    private final boolean timeSeriesRequested;
+    private final long expireAfterSeconds;
+    private volatile boolean prepared;
+    private volatile boolean timeSeries;
 
     public MongoLogRepository(MongoClient client, String databaseName, String collectionName) {
-        MongoDatabase database = client.getDatabase(databaseName);
-        this.collection = database.getCollection(collectionName);
+        this(client, databaseName, collectionName, false, 0);
+    }
+
+    /**
+     * @param timeSeries         create the collection as a time-series collection if it does not exist yet
+     * @param expireAfterSeconds age after which MongoDB removes logs, or 0 to keep them
+     */
+    public MongoLogRepository(MongoClient client, String databaseName, String collectionName,
+                              boolean timeSeries, long expireAfterSeconds) {
+        this.database = client.getDatabase(databaseName);
+        this.logs = database.getCollection(collectionName, RequestLog.class).withCodecRegistry(CODECS);
+        this.collection = logs.withDocumentClass(Document.class);
+        this.state = database.getCollection(collectionName + STATE_SUFFIX);
+        this.collectionName = collectionName;
+        this.timeSeriesRequested = timeSeries;
+        this.expireAfterSeconds = expireAfterSeconds;
+    }
+
+    /**
+     * Creates the collection as a time-series collection (receive time as time field, symbol as meta
+     * field) when requested and it does not exist yet, and applies the expiry to an
+     * existing time-series collection. A regular collection keeps its type: MongoDB cannot convert it in place.
+     * Runs once; the first {@link #insertMany} calls it too, so the first write cannot create a regular
+     * collection implicitly.
+     */
+    public synchronized void ensureCollection() {
+        if (prepared) {
+            return;
+        }
+        Document info = database.listCollections().filter(Filters.eq("name", collectionName)).first();
+        if (info == null && timeSeriesRequested) {
+            CreateCollectionOptions options = new CreateCollectionOptions().timeSeriesOptions(
+                    new TimeSeriesOptions(RequestLogCodec.RECEIVED_AT)
+                            .metaField(RequestLogCodec.SYMBOL)
+                            .granularity(TimeSeriesGranularity.SECONDS));
+            if (expireAfterSeconds > 0) {
+                options.expireAfter(expireAfterSeconds, TimeUnit.SECONDS);
+            }
+            try {
+                database.createCollection(collectionName, options);
+            } catch (MongoCommandException e) {
+                // Another instance created it first.
+                if (e.getErrorCode() != 48) {
+                    throw e;
+                }
+            }
+            timeSeries = true;
+        } else {
+            timeSeries = info != null && "timeseries".equals(info.getString("type"));
+            if (timeSeriesRequested && !timeSeries) {
+                LOGGER.warning("Collection " + collectionName + " already exists as a regular collection; "
+                        + "logs stay in it until it is migrated to a time-series collection by hand");
+            }
+            if (timeSeries) {
+                setTimeSeriesExpiry(expireAfterSeconds);
+            }
+        }
+        prepared = true;
+    }
+
+    public boolean isTimeSeries() {
+        return timeSeries;
+    }
+
+    /**
+     * Whether {@link #archiveBefore} can delete the logs it archived. It deletes by {@code _id}, which
+     * time-series collections only accept from MongoDB 7.0; earlier servers reject any delete filter on a
+     * field other than the meta field.
+     */
+    public boolean canDeleteArchived() {
+        if (!prepared) {
+            ensureCollection();
+        }
+        if (!timeSeries) {
+            return true;
+        }
+        List<Integer> version = database.runCommand(new Document("buildInfo", 1)).getList("versionArray", Integer.class);
+        return version != null && !version.isEmpty() && version.get(0) >= 7;
+    }
+
+    /**
+     * @return the MongoDB server version, such as {@code 6.0.14}
+     */
+    public String getServerVersion() {
+        return database.runCommand(new Document("buildInfo", 1)).getString("version");
+    }
+
+    /**
+     * Sets how long a time-series collection keeps logs before MongoDB removes them itself.
+     */
+    public void setTimeSeriesExpiry(long expireAfterSeconds) {
+        database.runCommand(new Document("collMod", collectionName)
+                .append("expireAfterSeconds", expireAfterSeconds > 0 ? expireAfterSeconds : "off"));
+    }
+
+    /**
+     * Creates the indexes behind the dashboard queries and log pages. Idempotent. On a regular collection the
+     * time index doubles as the TTL index enforcing the expiry; time-series collections expire logs themselves.
+     * The others end in {@code t, _id} descending, the order pages are read in, so paging never sorts in memory.
+     */
+    public void ensureIndexes() {
+        ensureCollection();
+        ensureTimeIndex();
+        collection.createIndexes(Arrays.asList(
+                new IndexModel(Indexes.descending(RequestLogCodec.RECEIVED_AT, "_id"), new IndexOptions().name("t_id")),
+                pageIndex(RequestLogCodec.SYMBOL),
+                pageIndex(RequestLogCodec.CLIENT_ID),
+                pageIndex(RequestLogCodec.SUCCESS)));
+    }
+
+    /**
+     * Drops the indexes on the long field names used before {@link RequestLogCodec}, which once
+     * {@link #migrateLegacyFields()} has run index nothing, and the {@code s_t}/{@code ok_t} indexes that are
+     * prefixes of the page indexes.
+     */
+    public void dropLegacyIndexes() {
+        for (Document index : collection.listIndexes()) {
+            String name = index.getString("name");
+            if (LEGACY_INDEXES.contains(name)) {
+                collection.dropIndex(name);
+            }
+        }
+    }
+
+    /**
+     * Rewrites logs stored with the long field names used before {@link RequestLogCodec} into the short ones,
+     * converting ISO-8601 string timestamps into dates on the way, server-side in one update. Only documents
+     * still carrying a long name match, so an interrupted run simply continues. The legacy name is not indexed,
+     * so the update scans the collection; a marker in the {@code .state} collection records a completed run
+     * and later starts skip it. Time-series collections are skipped: they were only ever written with the
+     * short names.
+     *
+     * @return the number of documents rewritten
+     */
+    public long migrateLegacyFields() {
+        if (timeSeries || state.find(Filters.eq("_id", LEGACY_FIELDS_MIGRATED)).first() != null) {
+            return 0;
+        }
+        Document set = new Document();
+        List<String> unset = new ArrayList<>();
+        for (String[] names : RequestLogCodec.LEGACY_NAMES) {
+            String legacy = "$" + names[0];
+            boolean timestamp = RequestLogCodec.RECEIVED_AT.equals(names[1]) || RequestLogCodec.RESPONDED_AT.equals(names[1]);
+            set.append(names[1], timestamp ? new Document("$toDate", legacy) : legacy);
+            unset.add(names[0]);
+        }
+        List<Bson> rewrite = List.of(new Document("$set", set), new Document("$unset", unset));
+        long migrated = collection.updateMany(Filters.exists("requestReceivedAt"), rewrite).getModifiedCount();
+        state.updateOne(Filters.eq("_id", LEGACY_FIELDS_MIGRATED), Updates.set("completedAt", new Date()),
+                new UpdateOptions().upsert(true));
+        return migrated;
+    }
+
+    /**
+     * Explains every dashboard query and fails if any of them would scan the whole collection, so a dropped or
+     * renamed index shows up at startup rather than as a slow dashboard.
+     *
+     * @throws IllegalStateException naming the queries whose winning plan contains a {@code COLLSCAN}
+     */
+    public void verifyQueryPlans() {
+        if (timeSeries) {
+            // Time-series plans read compressed buckets; their shape says little about these indexes.
+            return;
+        }
+        Map<String, Document> plans = new LinkedHashMap<>();
+        plans.put("recentLogs", collection.find()
+                .sort(Sorts.descending(RequestLogCodec.RECEIVED_AT))
+                .limit(1)
+                .explain());
+        plans.put("successCount", collection.aggregate(Arrays.asList(
+                Aggregates.match(Filters.eq(RequestLogCodec.SUCCESS, true)),
+                Aggregates.count())).explain());
+        plans.put("topSymbols", collection.aggregate(topSymbolsPipeline(1)).explain());
+        plans.put("logPage", collection.find().sort(PAGE_SORT).limit(1).explain());
+        plans.put("logPageBySymbol", collection.find(Filters.eq(RequestLogCodec.SYMBOL, ""))
+                .sort(PAGE_SORT).limit(1).explain());
+        List<String> scanning = new ArrayList<>();
+        for (Map.Entry<String, Document> plan : plans.entrySet()) {
+            if (containsCollectionScan(plan.getValue())) {
+                scanning.add(plan.getKey());
+            }
+        }
+        if (!scanning.isEmpty()) {
+            throw new IllegalStateException("Dashboard queries fall back to COLLSCAN: " + scanning
+                    + "; check the indexes on " + collection.getNamespace());
+        }
     }
 
     public void insert(RequestLog log) {
-        collection.insertOne(log.toDocument());
+        logs.insertOne(log);
+    }
+
+    public void insertMany(List<RequestLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (timeSeriesRequested && !prepared) {
+            ensureCollection();
+        }
+        logs.insertMany(batch, new InsertManyOptions().ordered(false));
+    }
+
+    /**
+     * Inserts logs already encoded with {@link RequestLogCodec}, skipping those whose {@code _id} is already
+     * stored, so a batch can be retried after a failure or crash without duplicating the logs that made it in
+     * the first time. A regular collection rejects them by its unique {@code _id} index. Time-series
+     * collections have no unique index, so when {@code mayRepeat} says the batch may have been written before,
+     * the ids already stored in its time range are looked up and left out first.
+     *
+     * @param mayRepeat whether an earlier attempt at this batch may have written some of it
+     * @return the documents this call inserted
+     */
+    public List<RawBsonDocument> insertEncoded(List<RawBsonDocument> batch, boolean mayRepeat) {
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        if (!prepared) {
+            ensureCollection();
+        }
+        if (timeSeries && mayRepeat) {
+            batch = withoutStored(batch);
+            if (batch.isEmpty()) {
+                return batch;
+            }
+        }
+        try {
+            collection.withDocumentClass(RawBsonDocument.class).insertMany(batch, new InsertManyOptions().ordered(false));
+            return batch;
+        } catch (MongoBulkWriteException e) {
+            if (e.getWriteConcernError() != null) {
+                throw e;
+            }
+            Set<Integer> duplicates = new HashSet<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+                duplicates.add(error.getIndex());
+            }
+            List<RawBsonDocument> inserted = new ArrayList<>(batch.size() - duplicates.size());
+            for (int i = 0; i < batch.size(); i++) {
+                if (!duplicates.contains(i)) {
+                    inserted.add(batch.get(i));
+                }
+            }
+            return inserted;
+        }
     }
 
+    /**
+     * Drops the documents whose {@code _id} is already stored. The receive-time range lets a time-series
+     * collection read only the buckets that can hold them.
+     */
+    private List<RawBsonDocument> withoutStored(List<RawBsonDocument> batch) {
+        long from = Long.MAX_VALUE;
+        long to = Long.MIN_VALUE;
+        List<BsonValue> ids = new ArrayList<>(batch.size());
+        for (RawBsonDocument document : batch) {
+            long receivedAt = document.getDateTime(RequestLogCodec.RECEIVED_AT).getValue();
+            from = Math.min(from, receivedAt);
+            to = Math.max(to, receivedAt);
+            ids.add(document.get("_id"));
+        }
+        Set<BsonValue> stored = new HashSet<>();
+        for (RawBsonDocument document : collection.withDocumentClass(RawBsonDocument.class)
+                .find(Filters.and(Filters.gte(RequestLogCodec.RECEIVED_AT, new Date(from)),
+                        Filters.lte(RequestLogCodec.RECEIVED_AT, new Date(to)), Filters.in("_id", ids)))
+                .projection(Projections.include("_id"))) {
+            stored.add(document.get("_id"));
+        }
+        if (stored.isEmpty()) {
+            return batch;
+        }
+        List<RawBsonDocument> unstored = new ArrayList<>(batch.size() - stored.size());
+        for (RawBsonDocument document : batch) {
+            if (!stored.contains(document.get("_id"))) {
+                unstored.add(document);
+            }
+        }
+        return unstored;
+    }
+
+    /**
+     * Document count from the collection metadata; exact after a clean shutdown and never a scan. Time-series
+     * collections only report bucket counts there, so they are counted.
+     */
     public long totalCount() {
-        return collection.countDocuments();
+        return timeSeries ? collection.countDocuments() : collection.estimatedDocumentCount();
     }
 
     public long successCount() {
-        return collection.countDocuments(Filters.eq("success", true));
+        return collection.countDocuments(Filters.eq(RequestLogCodec.SUCCESS, true));
     }
 
     public double averageLatencyMs() {
         List<Document> result = collection.aggregate(Arrays.asList(
-                Aggregates.group(null, Accumulators.avg("avgLatency", "$totalLatencyMs"))
+                Aggregates.group(null, Accumulators.avg("avgLatency", "$" + RequestLogCodec.TOTAL_LATENCY_MS))
         )).into(new ArrayList<>());
         if (result.isEmpty()) {
             return 0.0;
@@ -56,11 +414,7 @@ public class MongoLogRepository {
     }
 
     public List<SymbolStats> topSymbols(int limit) {
-        AggregateIterable<Document> iterable = collection.aggregate(Arrays.asList(
-                Aggregates.group("$symbol", Accumulators.sum("count", 1)),
-                Aggregates.sort(Sorts.descending("count")),
-                Aggregates.limit(limit)
-        ));
+        AggregateIterable<Document> iterable = collection.aggregate(topSymbolsPipeline(limit));
         List<SymbolStats> stats = new ArrayList<>();
         for (Document document : iterable) {
             stats.add(new SymbolStats(document.getString("_id"), document.getInteger("count", 0)));
@@ -68,13 +422,240 @@ public class MongoLogRepository {
         return stats;
     }
 
+    /**
+     * Reads up to {@code limit} raw log documents with {@code afterId < _id < beforeId}, in {@code _id} order,
+     * undecoded so callers can page on {@code _id}; decode them with {@link RequestLogCodec}. A {@code null}
+     * {@code afterId} starts from the oldest log.
+     */
+    public List<RawBsonDocument> findBefore(ObjectId afterId, ObjectId beforeId, int limit) {
+        Bson filter = afterId == null
+                ? Filters.lt("_id", beforeId)
+                : Filters.and(Filters.gt("_id", afterId), Filters.lt("_id", beforeId));
+        return collection.withDocumentClass(RawBsonDocument.class).find(filter)
+                .sort(Sorts.ascending("_id"))
+                .limit(limit)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Moves every log received before {@code cutoff} out of the collection into gzip-compressed files of relaxed
+     * Extended JSON lines under {@code directory} (restorable with {@code mongoimport}), oldest first and at
+     * most {@value #ARCHIVE_CHUNK} logs per file. Each file is synced and renamed into place, then recorded as
+     * pending in the {@code .state} collection, and only then are the logs it holds deleted, by {@code _id}:
+     * a log that starts matching the cutoff after the file was written, such as an old one replayed from the
+     * spool, stays for the next run instead of being deleted unarchived. The marker is cleared once the delete
+     * succeeds; a run that finds it still set, because the delete failed or the process stopped, deletes the
+     * ids listed in that file first instead of archiving the same logs again. Callers check
+     * {@link #canDeleteArchived()} first.
+     *
+     * @return the number of logs archived and deleted
+     */
+    public long archiveBefore(Instant cutoff, Path directory) throws IOException {
+        long total = finishPendingArchive(directory);
+        Bson expired = Filters.lt(RequestLogCodec.RECEIVED_AT, Date.from(cutoff));
+        while (true) {
+            Path partial = directory.resolve(collectionName + "-" + cutoff.toEpochMilli() + ".ndjson.gz.part");
+            List<ObjectId> ids = new ArrayList<>();
+            Document last = null;
+            try (FileOutputStream file = new FileOutputStream(partial.toFile());
+                 GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(file, 1 << 16));
+                 Writer out = new OutputStreamWriter(gzip, StandardCharsets.UTF_8)) {
+                for (Document document : collection.find(expired)
+                        .sort(Sorts.ascending(RequestLogCodec.RECEIVED_AT, "_id"))
+                        .limit(ARCHIVE_CHUNK)) {
+                    out.write(document.toJson(ARCHIVE_JSON));
+                    out.write('\n');
+                    ids.add(document.getObjectId("_id"));
+                    last = document;
+                }
+                out.flush();
+                gzip.finish();
+                file.getFD().sync();
+            }
+            if (last == null) {
+                Files.delete(partial);
+                return total;
+            }
+            // Named after the newest log it holds, so every chunk gets its own file.
+            Path target = directory.resolve(collectionName + "-" + last.getDate(RequestLogCodec.RECEIVED_AT).getTime()
+                    + "-" + last.getObjectId("_id").toHexString() + ".ndjson.gz");
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            state.replaceOne(Filters.eq("_id", PENDING_ARCHIVE),
+                    new Document("file", target.getFileName().toString()).append("cutoff", Date.from(cutoff)),
+                    new ReplaceOptions().upsert(true));
+            deleteArchived(ids, cutoff);
+            state.deleteOne(Filters.eq("_id", PENDING_ARCHIVE));
+            total += ids.size();
+            if (ids.size() < ARCHIVE_CHUNK) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * Deletes the logs of an archive file whose delete did not complete.
+     *
+     * @return the number of logs listed in the file
+     */
+    private long finishPendingArchive(Path directory) throws IOException {
+        Document pending = state.find(Filters.eq("_id", PENDING_ARCHIVE)).first();
+        if (pending == null) {
+            return 0;
+        }
+        Path file = directory.resolve(pending.getString("file"));
+        if (!Files.exists(file)) {
+            LOGGER.warning("Archive " + file + " recorded as pending is missing; its logs were not deleted");
+            state.deleteOne(Filters.eq("_id", PENDING_ARCHIVE));
+            return 0;
+        }
+        List<ObjectId> ids = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                ids.add(Document.parse(line).getObjectId("_id"));
+            }
+        }
+        deleteArchived(ids, pending.getDate("cutoff").toInstant());
+        state.deleteOne(Filters.eq("_id", PENDING_ARCHIVE));
+        return ids.size();
+    }
+
+    private void deleteArchived(List<ObjectId> ids, Instant cutoff) {
+        Bson expired = Filters.lt(RequestLogCodec.RECEIVED_AT, Date.from(cutoff));
+        for (int from = 0; from < ids.size(); from += DELETE_CHUNK) {
+            List<ObjectId> chunk = ids.subList(from, Math.min(ids.size(), from + DELETE_CHUNK));
+            // The time bound lets time-series collections skip buckets that cannot hold these logs.
+            collection.deleteMany(Filters.and(expired, Filters.in("_id", chunk)));
+        }
+    }
+
+    /**
+     * Opens a cursor over the logs received in {@code [from, to)}, oldest first, for one symbol or all of them
+     * when {@code symbol} is {@code null}. Logs arrive {@code batchSize} at a time, so a caller streaming them
+     * out holds at most one batch however large the range; the cursor must be closed.
+     */
+    public MongoCursor<RequestLog> cursor(Instant from, Instant to, String symbol, int batchSize) {
+        Bson filter = Filters.and(
+                Filters.gte(RequestLogCodec.RECEIVED_AT, Date.from(from)),
+                Filters.lt(RequestLogCodec.RECEIVED_AT, Date.from(to)));
+        if (symbol != null) {
+            filter = Filters.and(Filters.eq(RequestLogCodec.SYMBOL, symbol), filter);
+        }
+        return logs.find(filter)
+                .sort(Sorts.ascending(RequestLogCodec.RECEIVED_AT))
+                .batchSize(batchSize)
+                .cursor();
+    }
+
+    /**
+     * Reads up to {@code limit} logs matching {@code query}, newest first, that come after {@code after} (or
+     * from the newest when it is {@code null}). Pages seek from the previous page's last key on a
+     * {@code (t, _id)} index instead of skipping, so a page deep in the history costs the same as the first.
+     * Only the columns the dashboard shows are read.
+     */
+    public LogPage page(LogQuery query, LogPage.Key after, int limit) {
+        List<Bson> filters = query.toFilters();
+        if (after != null) {
+            Date receivedAt = Date.from(after.getReceivedAt());
+            filters.add(Filters.or(
+                    Filters.lt(RequestLogCodec.RECEIVED_AT, receivedAt),
+                    Filters.and(Filters.eq(RequestLogCodec.RECEIVED_AT, receivedAt), Filters.lt("_id", after.getId()))));
+        }
+        Bson filter = filters.isEmpty() ? new Document() : Filters.and(filters);
+        // One extra log tells whether another page follows.
+        List<RawBsonDocument> documents = collection.withDocumentClass(RawBsonDocument.class).find(filter)
+                .projection(PAGE_PROJECTION)
+                .sort(PAGE_SORT)
+                .limit(limit + 1)
+                .into(new ArrayList<>(limit + 1));
+        List<RequestLog> page = new ArrayList<>(Math.min(limit, documents.size()));
+        for (int i = 0; i < documents.size() && i < limit; i++) {
+            page.add(documents.get(i).decode(RequestLogCodec.INSTANCE));
+        }
+        LogPage.Key next = null;
+        if (documents.size() > limit) {
+            RawBsonDocument last = documents.get(limit - 1);
+            next = new LogPage.Key(Instant.ofEpochMilli(last.getDateTime(RequestLogCodec.RECEIVED_AT).getValue()),
+                    last.getObjectId("_id").getValue());
+        }
+        return new LogPage(page, next);
+    }
+
     public List<RequestLog> recentLogs(int limit) {
-        List<RequestLog> logs = new ArrayList<>();
-        for (Document document : collection.find()
-                .sort(Sorts.descending("requestReceivedAt"))
-                .limit(limit)) {
-            logs.add(RequestLog.fromDocument(document));
+        return logs.find()
+                .sort(Sorts.descending(RequestLogCodec.RECEIVED_AT))
+                .limit(limit)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * Groups by symbol after sorting on it, which lets the planner read the symbol from the {@code s_t_id}
+     * index without fetching documents. Batch requests are left out.
+     */
+    private static List<Bson> topSymbolsPipeline(int limit) {
+        return Arrays.asList(
+                Aggregates.match(Filters.ne(RequestLogCodec.SYMBOL, RequestLog.BATCH_SYMBOL)),
+                Aggregates.sort(Sorts.ascending(RequestLogCodec.SYMBOL)),
+                Aggregates.project(Projections.fields(Projections.include(RequestLogCodec.SYMBOL), Projections.excludeId())),
+                Aggregates.group("$" + RequestLogCodec.SYMBOL, Accumulators.sum("count", 1)),
+                Aggregates.sort(Sorts.descending("count")),
+                Aggregates.limit(limit)
+        );
+    }
+
+    private static IndexModel pageIndex(String field) {
+        return new IndexModel(Indexes.compoundIndex(Indexes.ascending(field),
+                Indexes.descending(RequestLogCodec.RECEIVED_AT, "_id")), new IndexOptions().name(field + "_t_id"));
+    }
+
+    /**
+     * Creates the descending receive-time index, with the expiry as its TTL on a regular
+     * collection. An existing index whose TTL differs is changed with {@code collMod}.
+     */
+    private void ensureTimeIndex() {
+        IndexOptions options = new IndexOptions().name(TIME_INDEX);
+        boolean ttl = !timeSeries && expireAfterSeconds > 0;
+        if (ttl) {
+            options.expireAfter(expireAfterSeconds, TimeUnit.SECONDS);
+        }
+        try {
+            collection.createIndex(Indexes.descending(RequestLogCodec.RECEIVED_AT), options);
+        } catch (MongoCommandException e) {
+            // IndexOptionsConflict or IndexKeySpecsConflict: the index exists with another TTL.
+            if (e.getErrorCode() != 85 && e.getErrorCode() != 86) {
+                throw e;
+            }
+            if (!ttl) {
+                LOGGER.warning("Index " + TIME_INDEX + " on " + collectionName + " still expires logs; "
+                        + "drop it to keep logs forever");
+                return;
+            }
+            database.runCommand(new Document("collMod", collectionName)
+                    .append("index", new Document("name", TIME_INDEX).append("expireAfterSeconds", expireAfterSeconds)));
+        }
+    }
+
+    private static boolean containsCollectionScan(Object node) {
+        if (node instanceof Document) {
+            for (Map.Entry<String, Object> entry : ((Document) node).entrySet()) {
+                if ("rejectedPlans".equals(entry.getKey())) {
+                    continue;
+                }
+                if ("stage".equals(entry.getKey()) && "COLLSCAN".equals(entry.getValue())) {
+                    return true;
+                }
+                if (containsCollectionScan(entry.getValue())) {
+                    return true;
+                }
+            }
+        } else if (node instanceof List) {
+            for (Object item : (List<?>) node) {
+                if (containsCollectionScan(item)) {
+                    return true;
+                }
+            }
         }
-        return logs;
+        return false;
     }
 }
@@ -4,26 +4,41 @@
 
 package edu.cmu.project4.server.data;
 
-import org.bson.Document;
-import org.bson.types.Decimal128;
-
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
+import org.bson.types.ObjectId;
+
+import edu.cmu.project4.server.biz.FixedPrice;
+
 /**
- * Immutable representation of a request/response interaction that is persisted to MongoDB.
+ * Immutable representation of a request/response interaction that is persisted to MongoDB through
+ * {@link RequestLogCodec}. The price is a {@link FixedPrice}, {@link FixedPrice#NONE} for failed requests.
+ * <p>
+ * Requests for several symbols at once are logged under {@link #BATCH_SYMBOL} with the symbols in
+ * {@link #getSymbols()}, so each combination does not become a symbol of its own in rollups, aggregates
+ * and indexes.
+ * <p>
+ * Each log gets its {@code _id} when it is created, so every write of it, including driver and spool
+ * retries, carries the same id and MongoDB stores it at most once.
  */
 public final class RequestLog {
+    public static final String BATCH_SYMBOL = "*batch*";
+
+    private final ObjectId id;
     private final String requestId;
     private final Instant requestReceivedAt;
     private final Instant responseSentAt;
     private final String clientIp;
     private final String clientId;
     private final String symbol;
+    private final List<String> symbols;
     private final boolean success;
     private final String errorMessage;
-    private final BigDecimal price;
+    private final long price;
     private final int binanceStatus;
     private final long binanceLatencyMs;
     private final long totalLatencyMs;
@@ -37,17 +52,64 @@ public final class RequestLog {
                       String symbol,
                       boolean success,
                       String errorMessage,
-                      BigDecimal price,
+                      long price,
+                      int binanceStatus,
+                      long binanceLatencyMs,
+                      long totalLatencyMs,
+                      String binanceEndpoint) {
+        this(requestId, requestReceivedAt, responseSentAt, clientIp, clientId, symbol, null, success, errorMessage,
+                price, binanceStatus, binanceLatencyMs, totalLatencyMs, binanceEndpoint);
+    }
+
+    /**
+     * @param symbols the requested symbols when {@code symbol} is {@link #BATCH_SYMBOL}, otherwise {@code null}
+     */
+    public RequestLog(String requestId,
+                      Instant requestReceivedAt,
+                      Instant responseSentAt,
+                      String clientIp,
+                      String clientId,
+                      String symbol,
+                      List<String> symbols,
+                      boolean success,
+                      String errorMessage,
+                      long price,
                       int binanceStatus,
                       long binanceLatencyMs,
                       long totalLatencyMs,
                       String binanceEndpoint) {
+        this(new ObjectId(), requestId, requestReceivedAt, responseSentAt, clientIp, clientId, symbol, symbols, success,
+                errorMessage, price, binanceStatus, binanceLatencyMs, totalLatencyMs, binanceEndpoint);
+    }
+
+    /**
+     * Restores a stored log.
+     *
+     * @param id its {@code _id}, or {@code null} when it was not read
+     */
+    public RequestLog(ObjectId id,
+                      String requestId,
+                      Instant requestReceivedAt,
+                      Instant responseSentAt,
+                      String clientIp,
+                      String clientId,
+                      String symbol,
+                      List<String> symbols,
+                      boolean success,
+                      String errorMessage,
+                      long price,
+                      int binanceStatus,
+                      long binanceLatencyMs,
+                      long totalLatencyMs,
+                      String binanceEndpoint) {
+        this.id = id;
         this.requestId = requestId;
         this.requestReceivedAt = requestReceivedAt;
         this.responseSentAt = responseSentAt;
         this.clientIp = clientIp;
         this.clientId = clientId;
         this.symbol = symbol;
+        this.symbols = symbols;
         this.success = success;
         this.errorMessage = errorMessage;
         this.price = price;
@@ -57,6 +119,13 @@ public final class RequestLog {
         this.binanceEndpoint = binanceEndpoint;
     }
 
+    /**
+     * @return the log's {@code _id}; {@code null} only for a stored log read without it
+     */
+    public ObjectId getId() {
+        return id;
+    }
+
     public String getRequestId() {
         return requestId;
     }
@@ -77,10 +146,36 @@ public final class RequestLog {
         return clientId;
     }
 
+    /**
+     * Logged symbol of a request for {@code symbols}: the symbol itself when there is one, otherwise
+     * {@link #BATCH_SYMBOL}.
+     */
+    public static String symbolOf(Collection<String> symbols) {
+        return symbols.size() == 1 ? symbols.iterator().next() : BATCH_SYMBOL;
+    }
+
+    /**
+     * Symbols to store alongside {@link #symbolOf(Collection)}: {@code null} for a single symbol.
+     */
+    public static List<String> symbolsOf(Collection<String> symbols) {
+        return symbols.size() == 1 ? null : List.copyOf(symbols);
+    }
+
     public String getSymbol() {
         return symbol;
     }
 
+    /**
+     * @return the requested symbols of a {@link #BATCH_SYMBOL} log, otherwise {@code null}
+     */
+    public List<String> getSymbols() {
+        return symbols;
+    }
+
+    public boolean isBatch() {
+        return BATCH_SYMBOL.equals(symbol);
+    }
+
     public boolean isSuccess() {
         return success;
     }
@@ -89,10 +184,24 @@ public final class RequestLog {
         return errorMessage;
     }
 
-    public BigDecimal getPrice() {
+    public boolean hasPrice() {
+        return price != FixedPrice.NONE;
+    }
+
+    /**
+     * @return the price scaled as a {@link FixedPrice}, or {@link FixedPrice#NONE} when the request failed
+     */
+    public long getScaledPrice() {
         return price;
     }
 
+    /**
+     * @return {@code null} when the request failed
+     */
+    public BigDecimal getPrice() {
+        return FixedPrice.toBigDecimal(price);
+    }
+
     public int getBinanceStatus() {
         return binanceStatus;
     }
@@ -108,43 +217,4 @@ public final class RequestLog {
     public String getBinanceEndpoint() {
         return binanceEndpoint;
     }
-
-    public Document toDocument() {
-        Document document = new Document()
-                .append("requestId", requestId)
-                .append("requestReceivedAt", requestReceivedAt.toString())
-                .append("responseSentAt", responseSentAt.toString())
-                .append("clientIp", clientIp)
-                .append("clientId", clientId)
-                .append("symbol", symbol)
-                .append("success", success)
-                .append("errorMessage", errorMessage)
-                .append("binanceStatus", binanceStatus)
-                .append("binanceLatencyMs", binanceLatencyMs)
-                .append("totalLatencyMs", totalLatencyMs)
-                .append("binanceEndpoint", binanceEndpoint);
-        if (price != null) {
-            document.append("price", new Decimal128(price));
-        }
-        return document;
-    }
-
-    public static RequestLog fromDocument(Document document) {
-        String requestId = document.getString("requestId");
-        Instant requestReceivedAt = Instant.parse(document.getString("requestReceivedAt"));
-        Instant responseSentAt = Instant.parse(document.getString("responseSentAt"));
-        String clientIp = document.getString("clientIp");
-        String clientId = document.getString("clientId");
-        String symbol = document.getString("symbol");
-        boolean success = Boolean.TRUE.equals(document.getBoolean("success"));
-        String errorMessage = document.getString("errorMessage");
-        Decimal128 priceValue = document.get("price", Decimal128.class);
-        BigDecimal price = priceValue != null ? priceValue.bigDecimalValue() : null;
-        int binanceStatus = document.getInteger("binanceStatus", 0);
-        long binanceLatencyMs = document.getLong("binanceLatencyMs") == null ? 0 : document.getLong("binanceLatencyMs");
-        long totalLatencyMs = document.getLong("totalLatencyMs") == null ? 0 : document.getLong("totalLatencyMs");
-        String binanceEndpoint = document.getString("binanceEndpoint");
-        return new RequestLog(requestId, requestReceivedAt, responseSentAt, clientIp, clientId, symbol, success,
-                errorMessage, price, binanceStatus, binanceLatencyMs, totalLatencyMs, binanceEndpoint);
-    }
 }
@@ -0,0 +1,284 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cmu.project4.server.biz.FixedPrice;
+
+/**
+ * Writes {@link RequestLog}s straight to BSON with short field names and native date, int64 and decimal
+ * values, and reads them back without an intermediate {@code Document}. Null fields are omitted. Prices are
+ * stored as {@code Decimal128} with {@value FixedPrice#SCALE} decimal places, encoded straight from the
+ * {@link FixedPrice} without going through {@code BigDecimal}.
+ * <p>
+ * Decoding also accepts the long field names and ISO-8601 string timestamps of documents written before this
+ * codec, so logs not yet migrated by {@link MongoLogRepository#migrateLegacyFields()} still read correctly.
+ * <p>
+ * The {@code _id} is the one the log was created with, so encoding a log again, as a retried write does,
+ * yields the same document.
+ */
+public final class RequestLogCodec implements CollectibleCodec<RequestLog> {
+    public static final RequestLogCodec INSTANCE = new RequestLogCodec();
+
+    public static final String REQUEST_ID = "rid";
+    public static final String RECEIVED_AT = "t";
+    public static final String RESPONDED_AT = "rt";
+    public static final String CLIENT_IP = "ip";
+    public static final String CLIENT_ID = "cid";
+    public static final String SYMBOL = "s";
+    public static final String SYMBOLS = "ss";
+    public static final String SUCCESS = "ok";
+    public static final String ERROR_MESSAGE = "err";
+    public static final String PRICE = "px";
+    public static final String BINANCE_STATUS = "bs";
+    public static final String BINANCE_LATENCY_MS = "bl";
+    public static final String TOTAL_LATENCY_MS = "tl";
+    public static final String BINANCE_ENDPOINT = "ep";
+
+    /**
+     * High word of an IEEE 754-2008 BID {@code Decimal128} with exponent {@code -SCALE} and a coefficient that
+     * fits in the low word: the biased exponent sits above the top 49 coefficient bits.
+     */
+    private static final long SCALED_HIGH = (long) (6176 - FixedPrice.SCALE) << 49;
+
+    /**
+     * Field names used before this codec, in the order of their short counterparts above.
+     */
+    static final String[][] LEGACY_NAMES = {
+            {"requestId", REQUEST_ID},
+            {"requestReceivedAt", RECEIVED_AT},
+            {"responseSentAt", RESPONDED_AT},
+            {"clientIp", CLIENT_IP},
+            {"clientId", CLIENT_ID},
+            {"symbol", SYMBOL},
+            {"success", SUCCESS},
+            {"errorMessage", ERROR_MESSAGE},
+            {"price", PRICE},
+            {"binanceStatus", BINANCE_STATUS},
+            {"binanceLatencyMs", BINANCE_LATENCY_MS},
+            {"totalLatencyMs", TOTAL_LATENCY_MS},
+            {"binanceEndpoint", BINANCE_ENDPOINT},
+    };
+
+    private RequestLogCodec() {
+    }
+
+    @Override
+    public void encode(BsonWriter writer, RequestLog log, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (log.getId() != null) {
+            writer.writeObjectId("_id", log.getId());
+        }
+        writeString(writer, REQUEST_ID, log.getRequestId());
+        writer.writeDateTime(RECEIVED_AT, log.getRequestReceivedAt().toEpochMilli());
+        writer.writeDateTime(RESPONDED_AT, log.getResponseSentAt().toEpochMilli());
+        writeString(writer, CLIENT_IP, log.getClientIp());
+        writeString(writer, CLIENT_ID, log.getClientId());
+        writeString(writer, SYMBOL, log.getSymbol());
+        if (log.getSymbols() != null) {
+            writer.writeStartArray(SYMBOLS);
+            for (String symbol : log.getSymbols()) {
+                writer.writeString(symbol);
+            }
+            writer.writeEndArray();
+        }
+        writer.writeBoolean(SUCCESS, log.isSuccess());
+        writeString(writer, ERROR_MESSAGE, log.getErrorMessage());
+        if (log.hasPrice()) {
+            writer.writeDecimal128(PRICE, toDecimal128(log.getScaledPrice()));
+        }
+        writer.writeInt32(BINANCE_STATUS, log.getBinanceStatus());
+        writer.writeInt64(BINANCE_LATENCY_MS, log.getBinanceLatencyMs());
+        writer.writeInt64(TOTAL_LATENCY_MS, log.getTotalLatencyMs());
+        writeString(writer, BINANCE_ENDPOINT, log.getBinanceEndpoint());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public RequestLog decode(BsonReader reader, DecoderContext decoderContext) {
+        ObjectId id = null;
+        String requestId = null;
+        Instant requestReceivedAt = null;
+        Instant responseSentAt = null;
+        String clientIp = null;
+        String clientId = null;
+        String symbol = null;
+        List<String> symbols = null;
+        boolean success = false;
+        String errorMessage = null;
+        long price = FixedPrice.NONE;
+        int binanceStatus = 0;
+        long binanceLatencyMs = 0;
+        long totalLatencyMs = 0;
+        String binanceEndpoint = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case "_id":
+                    if (reader.getCurrentBsonType() == BsonType.OBJECT_ID) {
+                        id = reader.readObjectId();
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case REQUEST_ID:
+                case "requestId":
+                    requestId = reader.readString();
+                    break;
+                case RECEIVED_AT:
+                case "requestReceivedAt":
+                    requestReceivedAt = readInstant(reader);
+                    break;
+                case RESPONDED_AT:
+                case "responseSentAt":
+                    responseSentAt = readInstant(reader);
+                    break;
+                case CLIENT_IP:
+                case "clientIp":
+                    clientIp = reader.readString();
+                    break;
+                case CLIENT_ID:
+                case "clientId":
+                    clientId = reader.readString();
+                    break;
+                case SYMBOL:
+                case "symbol":
+                    symbol = reader.readString();
+                    break;
+                case SYMBOLS:
+                    symbols = new ArrayList<>();
+                    reader.readStartArray();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        symbols.add(reader.readString());
+                    }
+                    reader.readEndArray();
+                    break;
+                case SUCCESS:
+                case "success":
+                    success = reader.readBoolean();
+                    break;
+                case ERROR_MESSAGE:
+                case "errorMessage":
+                    errorMessage = reader.readString();
+                    break;
+                case PRICE:
+                case "price":
+                    price = fromDecimal128(reader.readDecimal128());
+                    break;
+                case BINANCE_STATUS:
+                case "binanceStatus":
+                    binanceStatus = (int) readLong(reader);
+                    break;
+                case BINANCE_LATENCY_MS:
+                case "binanceLatencyMs":
+                    binanceLatencyMs = readLong(reader);
+                    break;
+                case TOTAL_LATENCY_MS:
+                case "totalLatencyMs":
+                    totalLatencyMs = readLong(reader);
+                    break;
+                case BINANCE_ENDPOINT:
+                case "binanceEndpoint":
+                    binanceEndpoint = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.readEndDocument();
+        return new RequestLog(id, requestId, requestReceivedAt, responseSentAt, clientIp, clientId, symbol, symbols,
+                success, errorMessage, price, binanceStatus, binanceLatencyMs, totalLatencyMs, binanceEndpoint);
+    }
+
+    @Override
+    public Class<RequestLog> getEncoderClass() {
+        return RequestLog.class;
+    }
+
+    /**
+     * Logs are created with their id, so there is never one to generate.
+     */
+    @Override
+    public RequestLog generateIdIfAbsentFromDocument(RequestLog log) {
+        return log;
+    }
+
+    @Override
+    public boolean documentHasId(RequestLog log) {
+        return log.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(RequestLog log) {
+        if (log.getId() == null) {
+            throw new IllegalStateException("Request log " + log.getRequestId() + " has no _id");
+        }
+        return new BsonObjectId(log.getId());
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    public static Decimal128 toDecimal128(long scaledPrice) {
+        return scaledPrice < 0
+                ? Decimal128.fromIEEE754BIDEncoding(SCALED_HIGH | Long.MIN_VALUE, -scaledPrice)
+                : Decimal128.fromIEEE754BIDEncoding(SCALED_HIGH, scaledPrice);
+    }
+
+    /**
+     * Reads prices written by {@link #toDecimal128(long)} from their bits; other scales, such as prices stored
+     * before it, go through {@code BigDecimal}.
+     */
+    public static long fromDecimal128(Decimal128 price) {
+        long high = price.getHigh();
+        long low = price.getLow();
+        if ((high & Long.MAX_VALUE) == SCALED_HIGH && low >= 0) {
+            return high < 0 ? -low : low;
+        }
+        return FixedPrice.fromBigDecimal(price.bigDecimalValue());
+    }
+
+    private static Instant readInstant(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) {
+            return Instant.parse(reader.readString());
+        }
+        return Instant.ofEpochMilli(reader.readDateTime());
+    }
+
+    private static long readLong(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case DOUBLE:
+                return (long) reader.readDouble();
+            default:
+                return reader.readInt64();
+        }
+    }
+}
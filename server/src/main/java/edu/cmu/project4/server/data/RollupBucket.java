@@ -0,0 +1,127 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import org.bson.Document;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Request totals for one symbol (or all symbols) over one minute or hour, as stored by
+ * {@link RollupRepository}. Latencies are end-to-end request latencies.
+ */
+public final class RollupBucket {
+    /**
+     * Upper bounds (inclusive) of the coarse latency histogram; one more bucket counts everything slower.
+     */
+    static final long[] LATENCY_BOUNDS_MS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final String symbol;
+    private final Instant start;
+    private final long count;
+    private final long successCount;
+    private final long latencySumMs;
+    private final long latencyMinMs;
+    private final long latencyMaxMs;
+    private final long[] latencyHistogram;
+
+    public RollupBucket(String symbol, Instant start, long count, long successCount, long latencySumMs,
+                        long latencyMinMs, long latencyMaxMs, long[] latencyHistogram) {
+        this.symbol = symbol;
+        this.start = start;
+        this.count = count;
+        this.successCount = successCount;
+        this.latencySumMs = latencySumMs;
+        this.latencyMinMs = latencyMinMs;
+        this.latencyMaxMs = latencyMaxMs;
+        this.latencyHistogram = latencyHistogram;
+    }
+
+    /**
+     * @return the symbol, or {@code null} for a bucket summed over all symbols
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public Instant getStart() {
+        return start;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    public long getLatencySumMs() {
+        return latencySumMs;
+    }
+
+    public double getAverageLatencyMs() {
+        return count == 0 ? 0.0 : (double) latencySumMs / (double) count;
+    }
+
+    public long getLatencyMinMs() {
+        return latencyMinMs;
+    }
+
+    public long getLatencyMaxMs() {
+        return latencyMaxMs;
+    }
+
+    /**
+     * Counts per latency bucket, aligned with {@link #histogramLabel(int)}.
+     */
+    public long[] getLatencyHistogram() {
+        return latencyHistogram.clone();
+    }
+
+    /**
+     * Label of histogram bucket {@code index}, such as {@code le250} or {@code inf}; also its stored field name.
+     */
+    public static String histogramLabel(int index) {
+        return index < LATENCY_BOUNDS_MS.length ? "le" + LATENCY_BOUNDS_MS[index] : "inf";
+    }
+
+    static int histogramIndex(long latencyMs) {
+        for (int i = 0; i < LATENCY_BOUNDS_MS.length; i++) {
+            if (latencyMs <= LATENCY_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BOUNDS_MS.length;
+    }
+
+    static RollupBucket fromDocument(Document document, String symbol, Instant start) {
+        Document histogramDocument = document.get("latencyHistogram", Document.class);
+        long[] histogram = new long[LATENCY_BOUNDS_MS.length + 1];
+        for (int i = 0; i < histogram.length; i++) {
+            // Stored buckets nest the histogram; buckets summed by an aggregation carry it flattened.
+            histogram[i] = histogramDocument != null
+                    ? number(histogramDocument, histogramLabel(i))
+                    : number(document, "latencyHistogram_" + histogramLabel(i));
+        }
+        return new RollupBucket(symbol, start,
+                number(document, "count"),
+                number(document, "successCount"),
+                number(document, "latencySumMs"),
+                number(document, "latencyMinMs"),
+                number(document, "latencyMaxMs"),
+                histogram);
+    }
+
+    static Instant instant(Object value) {
+        return value instanceof Date ? ((Date) value).toInstant() : null;
+    }
+
+    private static long number(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import java.time.Instant;
+
+/**
+ * Bucket widths kept by {@link RollupRepository}.
+ */
+public enum RollupGranularity {
+    MINUTE("minute", 60_000L),
+    HOUR("hour", 3_600_000L);
+
+    private final String label;
+    private final long widthMs;
+
+    RollupGranularity(String label, long widthMs) {
+        this.label = label;
+        this.widthMs = widthMs;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getWidthMs() {
+        return widthMs;
+    }
+
+    /**
+     * Start of the bucket containing {@code time}.
+     */
+    public Instant truncate(Instant time) {
+        long epochMs = time.toEpochMilli();
+        return Instant.ofEpochMilli(epochMs - Math.floorMod(epochMs, widthMs));
+    }
+
+    /**
+     * Parses a label such as {@code minute}; returns {@code null} for anything else.
+     */
+    public static RollupGranularity parse(String label) {
+        for (RollupGranularity granularity : values()) {
+            if (granularity.label.equalsIgnoreCase(label)) {
+                return granularity;
+            }
+        }
+        return null;
+    }
+}
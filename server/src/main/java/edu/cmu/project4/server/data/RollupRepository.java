@@ -0,0 +1,251 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.data;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BsonField;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-minute and per-hour request totals per symbol, kept next to the raw request logs so analytics read a
+ * number of documents proportional to the time range instead of the log volume. Each flushed batch of logs
+ * is folded in memory first and applied as one unordered bulk of {@code $inc}/{@code $min}/{@code $max}
+ * upserts, one per touched bucket. Batch requests share the {@link RequestLog#BATCH_SYMBOL} buckets, so the
+ * bucket count does not grow with the symbol combinations clients ask for.
+ */
+public class RollupRepository {
+    private static final Logger LOGGER = Logger.getLogger(RollupRepository.class.getName());
+    private static final String OTHER_SYMBOL = "(none)";
+    private static final String BACKFILL_ID = "backfill";
+    private static final int BACKFILL_BATCH_SIZE = 5000;
+
+    private final MongoCollection<Document> collection;
+
+    public RollupRepository(MongoClient client, String databaseName, String collectionName) {
+        this.collection = client.getDatabase(databaseName).getCollection(collectionName);
+    }
+
+    /**
+     * Creates the index serving time-range reads. Idempotent.
+     */
+    public void ensureIndexes() {
+        collection.createIndex(Indexes.ascending("granularity", "start", "symbol"));
+    }
+
+    /**
+     * Folds a batch of persisted logs into their minute and hour buckets.
+     */
+    public void recordAll(List<RequestLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        Map<String, Delta> deltas = new HashMap<>();
+        for (RequestLog log : logs) {
+            fold(deltas, log);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Buckets of {@code granularity} starting in {@code [from, to)}, oldest first. With a {@code null}
+     * symbol the buckets are summed over all symbols.
+     */
+    public List<RollupBucket> range(RollupGranularity granularity, String symbol, Instant from, Instant to) {
+        Bson match = Filters.and(
+                Filters.eq("granularity", granularity.getLabel()),
+                Filters.gte("start", Date.from(from)),
+                Filters.lt("start", Date.from(to)));
+        List<RollupBucket> buckets = new ArrayList<>();
+        if (symbol != null) {
+            for (Document document : collection.find(Filters.and(match, Filters.eq("symbol", symbol)))
+                    .sort(Sorts.ascending("start"))) {
+                buckets.add(RollupBucket.fromDocument(document, symbol, RollupBucket.instant(document.get("start"))));
+            }
+            return buckets;
+        }
+        List<Bson> pipeline = List.of(
+                Aggregates.match(match),
+                Aggregates.group("$start", sums()),
+                Aggregates.sort(Sorts.ascending("_id")));
+        for (Document document : collection.aggregate(pipeline)) {
+            buckets.add(RollupBucket.fromDocument(document, null, RollupBucket.instant(document.get("_id"))));
+        }
+        return buckets;
+    }
+
+    /**
+     * All-time totals per symbol, summed from the hour buckets; {@link RollupBucket#getStart()} is {@code null}.
+     */
+    public List<RollupBucket> totalsBySymbol() {
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.eq("granularity", RollupGranularity.HOUR.getLabel())),
+                Aggregates.group("$symbol", sums()));
+        List<RollupBucket> totals = new ArrayList<>();
+        for (Document document : collection.aggregate(pipeline)) {
+            totals.add(RollupBucket.fromDocument(document, document.getString("_id"), null));
+        }
+        return totals;
+    }
+
+    /**
+     * Builds buckets for logs written before rollups existed, once per database. Only logs inserted before
+     * the first run started are read, in {@code _id} order, so logs already folded in live are not counted
+     * twice; progress is saved after every chunk and an interrupted backfill resumes where it stopped.
+     */
+    public void backfill(MongoLogRepository logs) {
+        Document state = collection.find(Filters.eq("_id", BACKFILL_ID)).first();
+        if (state == null) {
+            state = new Document("_id", BACKFILL_ID)
+                    .append("cutoff", new ObjectId(new Date()))
+                    .append("completed", false);
+            try {
+                collection.insertOne(state);
+            } catch (MongoWriteException e) {
+                if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+                // Another instance claimed the backfill first.
+                return;
+            }
+        }
+        if (Boolean.TRUE.equals(state.getBoolean("completed"))) {
+            return;
+        }
+        ObjectId cutoff = state.getObjectId("cutoff");
+        ObjectId lastId = state.getObjectId("lastId");
+        long folded = 0;
+        while (true) {
+            List<RawBsonDocument> documents = logs.findBefore(lastId, cutoff, BACKFILL_BATCH_SIZE);
+            if (documents.isEmpty()) {
+                break;
+            }
+            Map<String, Delta> deltas = new HashMap<>();
+            for (RawBsonDocument document : documents) {
+                try {
+                    fold(deltas, document.decode(RequestLogCodec.INSTANCE));
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.FINE, "Skipping unreadable request log " + document.get("_id"), e);
+                }
+            }
+            apply(deltas);
+            lastId = documents.get(documents.size() - 1).getObjectId("_id").getValue();
+            collection.updateOne(Filters.eq("_id", BACKFILL_ID), Updates.set("lastId", lastId));
+            folded += documents.size();
+        }
+        collection.updateOne(Filters.eq("_id", BACKFILL_ID), Updates.set("completed", true));
+        if (folded > 0) {
+            LOGGER.info("Rolled up " + folded + " existing request logs");
+        }
+    }
+
+    private static void fold(Map<String, Delta> deltas, RequestLog log) {
+        String symbol = log.getSymbol() == null ? OTHER_SYMBOL : log.getSymbol();
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            Instant start = granularity.truncate(log.getRequestReceivedAt());
+            String id = granularity.getLabel() + '|' + symbol + '|' + start.toEpochMilli();
+            deltas.computeIfAbsent(id, ignored -> new Delta(granularity, symbol, start)).add(log);
+        }
+    }
+
+    private void apply(Map<String, Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<WriteModel<Document>> updates = new ArrayList<>(deltas.size());
+        UpdateOptions upsert = new UpdateOptions().upsert(true);
+        for (Map.Entry<String, Delta> entry : deltas.entrySet()) {
+            updates.add(new UpdateOneModel<>(Filters.eq("_id", entry.getKey()), entry.getValue().toUpdate(), upsert));
+        }
+        collection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+    }
+
+    private static List<BsonField> sums() {
+        List<BsonField> fields = new ArrayList<>();
+        fields.add(Accumulators.sum("count", "$count"));
+        fields.add(Accumulators.sum("successCount", "$successCount"));
+        fields.add(Accumulators.sum("latencySumMs", "$latencySumMs"));
+        fields.add(Accumulators.min("latencyMinMs", "$latencyMinMs"));
+        fields.add(Accumulators.max("latencyMaxMs", "$latencyMaxMs"));
+        for (int i = 0; i <= RollupBucket.LATENCY_BOUNDS_MS.length; i++) {
+            String label = RollupBucket.histogramLabel(i);
+            // Group output fields cannot contain dots, so the summed histogram comes back flattened.
+            fields.add(Accumulators.sum("latencyHistogram_" + label, "$latencyHistogram." + label));
+        }
+        return fields;
+    }
+
+    private static final class Delta {
+        private final RollupGranularity granularity;
+        private final String symbol;
+        private final Instant start;
+        private final long[] histogram = new long[RollupBucket.LATENCY_BOUNDS_MS.length + 1];
+        private long count;
+        private long successCount;
+        private long latencySumMs;
+        private long latencyMinMs = Long.MAX_VALUE;
+        private long latencyMaxMs = Long.MIN_VALUE;
+
+        private Delta(RollupGranularity granularity, String symbol, Instant start) {
+            this.granularity = granularity;
+            this.symbol = symbol;
+            this.start = start;
+        }
+
+        private void add(RequestLog log) {
+            long latencyMs = log.getTotalLatencyMs();
+            count++;
+            if (log.isSuccess()) {
+                successCount++;
+            }
+            latencySumMs += latencyMs;
+            latencyMinMs = Math.min(latencyMinMs, latencyMs);
+            latencyMaxMs = Math.max(latencyMaxMs, latencyMs);
+            histogram[RollupBucket.histogramIndex(latencyMs)]++;
+        }
+
+        private Bson toUpdate() {
+            List<Bson> updates = new ArrayList<>();
+            updates.add(Updates.setOnInsert("granularity", granularity.getLabel()));
+            updates.add(Updates.setOnInsert("symbol", symbol));
+            updates.add(Updates.setOnInsert("start", Date.from(start)));
+            updates.add(Updates.inc("count", count));
+            updates.add(Updates.inc("successCount", successCount));
+            updates.add(Updates.inc("latencySumMs", latencySumMs));
+            updates.add(Updates.min("latencyMinMs", latencyMinMs));
+            updates.add(Updates.max("latencyMaxMs", latencyMaxMs));
+            for (int i = 0; i < histogram.length; i++) {
+                if (histogram[i] > 0) {
+                    updates.add(Updates.inc("latencyHistogram." + RollupBucket.histogramLabel(i), histogram[i]));
+                }
+            }
+            return Updates.combine(updates);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.game;
+
+import java.math.BigDecimal;
+
+/**
+ * One bet as reported to its player. Built on lookup only; open and settled bets live column-wise in a
+ * {@link BetBook}. Stakes and payouts are in cents.
+ */
+public final class Bet {
+    public enum Direction {
+        UP, DOWN;
+
+        byte code() {
+            return (byte) (ordinal() + 1);
+        }
+
+        static Direction fromCode(byte code) {
+            return code == 1 ? UP : DOWN;
+        }
+
+        /**
+         * Accepts {@code up}/{@code down} and the game's {@code RISE}/{@code FALL}, in any case.
+         *
+         * @return the direction, or {@code null} if the value names none
+         */
+        public static Direction parse(String value) {
+            if (value == null) {
+                return null;
+            }
+            switch (value.trim().toLowerCase()) {
+                case "up":
+                case "rise":
+                    return UP;
+                case "down":
+                case "fall":
+                    return DOWN;
+                default:
+                    return null;
+            }
+        }
+
+        public String getLabel() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final long id;
+    private final long roundId;
+    private final String clientId;
+    private final Direction direction;
+    private final long stakeCents;
+    private final boolean settled;
+    private final long payoutCents;
+    private final BigDecimal startPrice;
+    private final BigDecimal endPrice;
+    private final RoundOutcome outcome;
+
+    /**
+     * @param startPrice {@code null} until the round has started
+     * @param endPrice   {@code null} until the round is settled
+     * @param outcome    {@code null} until the round is settled
+     */
+    public Bet(long id, long roundId, String clientId, Direction direction, long stakeCents, boolean settled,
+               long payoutCents, BigDecimal startPrice, BigDecimal endPrice, RoundOutcome outcome) {
+        this.id = id;
+        this.roundId = roundId;
+        this.clientId = clientId;
+        this.direction = direction;
+        this.stakeCents = stakeCents;
+        this.settled = settled;
+        this.payoutCents = payoutCents;
+        this.startPrice = startPrice;
+        this.endPrice = endPrice;
+        this.outcome = outcome;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getRoundId() {
+        return roundId;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public long getStakeCents() {
+        return stakeCents;
+    }
+
+    public boolean isSettled() {
+        return settled;
+    }
+
+    /**
+     * @return twice the stake for a win, the stake for a void round, otherwise 0
+     */
+    public long getPayoutCents() {
+        return payoutCents;
+    }
+
+    public BigDecimal getStartPrice() {
+        return startPrice;
+    }
+
+    public BigDecimal getEndPrice() {
+        return endPrice;
+    }
+
+    public RoundOutcome getOutcome() {
+        return outcome;
+    }
+}
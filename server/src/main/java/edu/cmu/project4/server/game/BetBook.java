@@ -0,0 +1,163 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.game;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * The bets of one round, stored column-wise in parallel primitive arrays rather than as one object per bet,
+ * so settling a round is a single sequential pass with no allocation or pointer chasing. A bet's id is its
+ * round id and its slot in the arrays; see {@link #betId}.
+ * <p>
+ * Servlet threads {@link #add} concurrently until the round starts and the engine {@link #seal}s the book;
+ * from then on only the engine thread touches it, and it is published to readers once settled.
+ */
+public final class BetBook {
+    static final int SLOT_BITS = 20;
+    public static final int MAX_BETS = 1 << SLOT_BITS;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final long roundId;
+    private final int maxBets;
+    private String[] clientIds = new String[INITIAL_CAPACITY];
+    private byte[] directions = new byte[INITIAL_CAPACITY];
+    private long[] stakes = new long[INITIAL_CAPACITY];
+    private long[] payouts;
+    private int size;
+    private boolean sealed;
+    private long stakedCents;
+    private long paidOutCents;
+    private int winners;
+
+    public BetBook(long roundId, int maxBets) {
+        this.roundId = roundId;
+        this.maxBets = Math.min(maxBets, MAX_BETS);
+    }
+
+    public static long betId(long roundId, int slot) {
+        return roundId << SLOT_BITS | slot;
+    }
+
+    public static long roundOf(long betId) {
+        return betId >>> SLOT_BITS;
+    }
+
+    static int slotOf(long betId) {
+        return (int) (betId & (MAX_BETS - 1));
+    }
+
+    /**
+     * @return the new bet's id, or -1 when the book is sealed or full
+     */
+    public synchronized long add(String clientId, Bet.Direction direction, long stakeCents) {
+        if (sealed || size == maxBets) {
+            return -1;
+        }
+        if (size == stakes.length) {
+            int capacity = Math.min(maxBets, size * 2);
+            clientIds = Arrays.copyOf(clientIds, capacity);
+            directions = Arrays.copyOf(directions, capacity);
+            stakes = Arrays.copyOf(stakes, capacity);
+        }
+        clientIds[size] = clientId;
+        directions[size] = direction.code();
+        stakes[size] = stakeCents;
+        return betId(roundId, size++);
+    }
+
+    /**
+     * Stops accepting bets; waits for any {@link #add} in progress.
+     */
+    public synchronized void seal() {
+        sealed = true;
+    }
+
+    /**
+     * Pays out every bet in one pass: twice the stake to the winning direction, the stake back in a void
+     * round, nothing otherwise. Must run after {@link #seal()} on the sealing thread.
+     */
+    public void settle(RoundOutcome outcome) {
+        byte winning = outcome.winningCode();
+        boolean refund = outcome == RoundOutcome.VOID;
+        long[] paid = payouts == null || payouts.length < size ? new long[size] : payouts;
+        long staked = 0;
+        long paidOut = 0;
+        int won = 0;
+        for (int i = 0; i < size; i++) {
+            long stake = stakes[i];
+            boolean win = directions[i] == winning;
+            long payout = win ? stake << 1 : refund ? stake : 0;
+            paid[i] = payout;
+            staked += stake;
+            paidOut += payout;
+            won += win ? 1 : 0;
+        }
+        payouts = paid;
+        stakedCents = staked;
+        paidOutCents = paidOut;
+        winners = won;
+    }
+
+    /**
+     * @return the bet as of now, or {@code null} if no bet has this id
+     */
+    synchronized Bet openBet(long betId, BigDecimal startPrice) {
+        int slot = slotOf(betId);
+        if (roundOf(betId) != roundId || slot >= size) {
+            return null;
+        }
+        return new Bet(betId, roundId, clientIds[slot], Bet.Direction.fromCode(directions[slot]), stakes[slot],
+                false, 0, startPrice, null, null);
+    }
+
+    /**
+     * @return the settled bet, or {@code null} if no bet has this id
+     */
+    Bet settledBet(long betId, BigDecimal startPrice, BigDecimal endPrice, RoundOutcome outcome) {
+        int slot = slotOf(betId);
+        if (roundOf(betId) != roundId || slot >= size) {
+            return null;
+        }
+        return new Bet(betId, roundId, clientIds[slot], Bet.Direction.fromCode(directions[slot]), stakes[slot],
+                true, payouts[slot], startPrice, endPrice, outcome);
+    }
+
+    public long getRoundId() {
+        return roundId;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    String clientId(int slot) {
+        return clientIds[slot];
+    }
+
+    Bet.Direction direction(int slot) {
+        return Bet.Direction.fromCode(directions[slot]);
+    }
+
+    long stake(int slot) {
+        return stakes[slot];
+    }
+
+    long payout(int slot) {
+        return payouts[slot];
+    }
+
+    public long getStakedCents() {
+        return stakedCents;
+    }
+
+    public long getPaidOutCents() {
+        return paidOutCents;
+    }
+
+    public int getWinners() {
+        return winners;
+    }
+}
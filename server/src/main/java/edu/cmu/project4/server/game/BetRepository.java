@@ -0,0 +1,111 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.game;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Stores settled rounds and their bets in MongoDB: one document per round in the round collection, and the
+ * bets with bulk unordered inserts in the bet collection, keyed by bet id.
+ */
+public class BetRepository {
+    private static final int INSERT_CHUNK = 5000;
+
+    private final MongoCollection<Document> rounds;
+    private final MongoCollection<Document> bets;
+
+    public BetRepository(MongoClient client, String databaseName, String roundCollection, String betCollection) {
+        MongoDatabase database = client.getDatabase(databaseName);
+        this.rounds = database.getCollection(roundCollection);
+        this.bets = database.getCollection(betCollection);
+    }
+
+    /**
+     * Writes the round's bets in chunks, then the round itself. Saving a round again is harmless: bets already
+     * stored are skipped by their ids and the round document is replaced.
+     */
+    public void saveRound(SettledRound round) {
+        BetBook book = round.getBook();
+        int size = book.size();
+        List<Document> chunk = new ArrayList<>(Math.min(size, INSERT_CHUNK));
+        for (int slot = 0; slot < size; slot++) {
+            chunk.add(new Document("_id", BetBook.betId(book.getRoundId(), slot))
+                    .append("r", book.getRoundId())
+                    .append("cid", book.clientId(slot))
+                    .append("d", book.direction(slot).getLabel())
+                    .append("amt", book.stake(slot))
+                    .append("pay", book.payout(slot)));
+            if (chunk.size() == INSERT_CHUNK || slot == size - 1) {
+                insertIgnoringDuplicates(chunk);
+                chunk.clear();
+            }
+        }
+        Document document = new Document("_id", round.getRoundId())
+                .append("s", round.getSymbol())
+                .append("t", Date.from(round.getStartAt()))
+                .append("et", Date.from(round.getEndAt()))
+                .append("sp", decimal(round.getStartPrice()))
+                .append("ep", decimal(round.getEndPrice()))
+                .append("o", round.getOutcome().getLabel())
+                .append("n", size)
+                .append("staked", round.getStakedCents())
+                .append("paid", round.getPaidOutCents());
+        rounds.replaceOne(Filters.eq("_id", round.getRoundId()), document, new ReplaceOptions().upsert(true));
+    }
+
+    /**
+     * @return the settled bet, or {@code null} if it is not stored
+     */
+    public Bet findBet(long betId) {
+        Document bet = bets.find(Filters.eq("_id", betId)).first();
+        if (bet == null) {
+            return null;
+        }
+        Document round = rounds.find(Filters.eq("_id", bet.getLong("r"))).first();
+        return new Bet(betId, bet.getLong("r"), bet.getString("cid"), Bet.Direction.parse(bet.getString("d")),
+                bet.getLong("amt"), true, bet.getLong("pay"),
+                round == null ? null : price(round.get("sp")),
+                round == null ? null : price(round.get("ep")),
+                round == null ? null : RoundOutcome.valueOf(round.getString("o").toUpperCase()));
+    }
+
+    private void insertIgnoringDuplicates(List<Document> chunk) {
+        try {
+            bets.insertMany(chunk, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+            if (e.getWriteConcernError() != null) {
+                throw e;
+            }
+        }
+    }
+
+    private static Decimal128 decimal(BigDecimal value) {
+        return value == null ? null : new Decimal128(value);
+    }
+
+    private static BigDecimal price(Object value) {
+        return value instanceof Decimal128 ? ((Decimal128) value).bigDecimalValue() : null;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.game;
+
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+import edu.cmu.project4.server.biz.QuoteCache;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the bitcoin game as fixed-length rounds on wall-clock boundaries ({@code round id * round length}),
+ * so every player bets against the same prices. Bets placed during round {@code n} join round {@code n + 1}.
+ * At each boundary one price is snapshotted from the {@link QuoteCache}: it ends the running round, which is
+ * settled in one pass over its {@link BetBook}, and starts the next. Settled rounds are written to MongoDB
+ * on a separate thread, so a slow write never delays the next boundary, and kept in memory for a few rounds
+ * so players polling for their result do not hit the database. A round that could not be written stays in
+ * memory, still answering lookups, and is written again on the writer thread at each later boundary.
+ * <p>
+ * A snapshot that cannot be taken, is a last-good fallback or lies too far from the boundary voids the
+ * rounds it would have priced; void rounds refund every stake.
+ */
+public class RoundEngine {
+    private static final Logger LOGGER = Logger.getLogger(RoundEngine.class.getName());
+    private static final int RETAINED_ROUNDS = 16;
+    // Rounds held for another write attempt; beyond this the oldest is given up so an outage cannot exhaust memory.
+    private static final int MAX_UNSAVED_ROUNDS = 1024;
+
+    private final QuoteCache quotes;
+    private final String symbol;
+    private final long roundMs;
+    private final int maxBets;
+    private final long maxQuoteAgeMs;
+    private final BetRepository repository;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService writer;
+    private final AtomicReferenceArray<SettledRound> settled = new AtomicReferenceArray<>(RETAINED_ROUNDS);
+    private final ConcurrentNavigableMap<Long, SettledRound> unsaved = new ConcurrentSkipListMap<>();
+    private final LongAdder betsPlaced = new LongAdder();
+    private final LongAdder betsRejected = new LongAdder();
+    private final LongAdder roundsSettled = new LongAdder();
+    private final LongAdder voidRounds = new LongAdder();
+    private final LongAdder persistFailures = new LongAdder();
+    private final LongAdder roundsLost = new LongAdder();
+    private volatile BetBook accepting;
+    private volatile RunningRound running;
+    private volatile SettledRound lastSettled;
+
+    /**
+     * @param repository where settled rounds are stored, or {@code null} to keep them in memory only
+     */
+    public RoundEngine(QuoteCache quotes, String symbol, long roundMs, int maxBets, long maxQuoteAgeMs,
+                       BetRepository repository) {
+        this.quotes = quotes;
+        this.symbol = symbol.toUpperCase();
+        this.roundMs = roundMs;
+        this.maxBets = maxBets;
+        this.maxQuoteAgeMs = maxQuoteAgeMs;
+        this.repository = repository;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "round-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "round-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        accepting = new BetBook(System.currentTimeMillis() / roundMs + 1, maxBets);
+        scheduleBoundary();
+    }
+
+    /**
+     * Stops the rounds and waits briefly for settled rounds still being written. Open bets, and rounds still
+     * waiting for another write attempt, are dropped.
+     */
+    public void close() {
+        scheduler.shutdownNow();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Places a bet on the next round.
+     *
+     * @return the bet id, or -1 when the next round is full or is just starting; the caller may retry
+     */
+    public long placeBet(String clientId, Bet.Direction direction, long stakeCents) {
+        BetBook book = accepting;
+        // Between the boundary and the engine opening the next book the round has started; betting then would
+        // see part of the round's price move.
+        long betId = System.currentTimeMillis() < book.getRoundId() * roundMs ? book.add(clientId, direction, stakeCents) : -1;
+        if (betId < 0) {
+            betsRejected.increment();
+        } else {
+            betsPlaced.increment();
+        }
+        return betId;
+    }
+
+    /**
+     * @return the bet, open or settled, or {@code null} if it is unknown
+     */
+    public Bet findBet(long betId) {
+        long roundId = BetBook.roundOf(betId);
+        // Read in the reverse of the order onBoundary() publishes in, so a round moving from one to the next
+        // is always found in one of them.
+        BetBook next = accepting;
+        RunningRound current = running;
+        SettledRound round = settled.get((int) (roundId % RETAINED_ROUNDS));
+        if (next != null && next.getRoundId() == roundId) {
+            return next.openBet(betId, null);
+        }
+        if (current != null && current.book.getRoundId() == roundId) {
+            return current.book.openBet(betId, current.startPrice);
+        }
+        if (round == null || round.getRoundId() != roundId) {
+            round = unsaved.get(roundId);
+        }
+        if (round != null) {
+            return round.bet(betId);
+        }
+        return repository == null || next == null || roundId > next.getRoundId() ? null : repository.findBet(betId);
+    }
+
+    /**
+     * @return the round in progress, or {@code null} before the first boundary
+     */
+    public Round getRunningRound() {
+        RunningRound current = running;
+        return current == null ? null : new Round(current.book.getRoundId(), startOf(current.book.getRoundId()),
+                startOf(current.book.getRoundId() + 1), current.startPrice, current.book.size());
+    }
+
+    /**
+     * @return the round bets are currently placed on
+     */
+    public Round getNextRound() {
+        BetBook next = accepting;
+        return new Round(next.getRoundId(), startOf(next.getRoundId()), startOf(next.getRoundId() + 1), null, next.size());
+    }
+
+    /**
+     * @return the most recently settled round, or {@code null} before the first settlement
+     */
+    public SettledRound getLastSettled() {
+        return lastSettled;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public long getRoundMs() {
+        return roundMs;
+    }
+
+    public long getBetsPlacedCount() {
+        return betsPlaced.sum();
+    }
+
+    public long getBetsRejectedCount() {
+        return betsRejected.sum();
+    }
+
+    public long getRoundsSettledCount() {
+        return roundsSettled.sum();
+    }
+
+    public long getVoidRoundCount() {
+        return voidRounds.sum();
+    }
+
+    public long getPersistFailureCount() {
+        return persistFailures.sum();
+    }
+
+    /**
+     * @return settled rounds kept in memory until a write to MongoDB succeeds
+     */
+    public int getUnsavedRoundCount() {
+        return unsaved.size();
+    }
+
+    /**
+     * @return settled rounds given up on because too many were waiting to be written
+     */
+    public long getRoundsLostCount() {
+        return roundsLost.sum();
+    }
+
+    /**
+     * @return seconds the last settlement pass took
+     */
+    public double getLastSettleSeconds() {
+        SettledRound round = lastSettled;
+        return round == null ? 0 : round.getSettleNanos() / 1e9;
+    }
+
+    private Instant startOf(long roundId) {
+        return Instant.ofEpochMilli(roundId * roundMs);
+    }
+
+    private void scheduleBoundary() {
+        long delayMs = accepting.getRoundId() * roundMs - System.currentTimeMillis();
+        scheduler.schedule(this::onBoundary, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+    }
+
+    private void onBoundary() {
+        try {
+            BetBook starting = accepting;
+            long boundaryMs = starting.getRoundId() * roundMs;
+            BigDecimal price = snapshotPrice(boundaryMs);
+            starting.seal();
+            // The ending round is published as settled before it stops being the running round, and the
+            // starting one runs before it stops accepting, so findBet() never misses either.
+            RunningRound ending = running;
+            if (ending != null) {
+                settle(ending, price, boundaryMs);
+            }
+            running = new RunningRound(starting, price);
+            accepting = new BetBook(starting.getRoundId() + 1, maxBets);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Round boundary failed", e);
+        } finally {
+            if (!scheduler.isShutdown()) {
+                scheduleBoundary();
+            }
+        }
+    }
+
+    private void settle(RunningRound round, BigDecimal endPrice, long endMs) {
+        long start = System.nanoTime();
+        RoundOutcome outcome = RoundOutcome.of(round.startPrice, endPrice);
+        round.book.settle(outcome);
+        long settleNanos = System.nanoTime() - start;
+        SettledRound result = new SettledRound(symbol, round.book, Instant.ofEpochMilli(endMs - roundMs),
+                Instant.ofEpochMilli(endMs), round.startPrice, endPrice, outcome, settleNanos);
+        settled.set((int) (result.getRoundId() % RETAINED_ROUNDS), result);
+        lastSettled = result;
+        roundsSettled.increment();
+        if (outcome == RoundOutcome.VOID) {
+            voidRounds.increment();
+        }
+        if (repository != null) {
+            writer.execute(() -> persist(result));
+        }
+    }
+
+    /**
+     * Saves the round, after retrying rounds earlier writes failed on, oldest first. A round that cannot be
+     * saved is kept for the next attempt; runs on the writer thread only.
+     */
+    private void persist(SettledRound round) {
+        unsaved.put(round.getRoundId(), round);
+        for (Map.Entry<Long, SettledRound> entry : unsaved.entrySet()) {
+            SettledRound pending = entry.getValue();
+            try {
+                repository.saveRound(pending);
+            } catch (RuntimeException e) {
+                persistFailures.increment();
+                LOGGER.log(Level.WARNING, "Saving round " + pending.getRoundId() + " with " + pending.getBetCount()
+                        + " bets failed; " + unsaved.size() + " rounds kept for retry", e);
+                break;
+            }
+            unsaved.remove(entry.getKey());
+        }
+        while (unsaved.size() > MAX_UNSAVED_ROUNDS) {
+            Map.Entry<Long, SettledRound> oldest = unsaved.pollFirstEntry();
+            roundsLost.increment();
+            LOGGER.severe("Giving up on saving round " + oldest.getKey() + " with " + oldest.getValue().getBetCount()
+                    + " bets; its results are no longer available");
+        }
+    }
+
+    /**
+     * @return the price at the boundary, or {@code null} when no trustworthy one is available
+     */
+    private BigDecimal snapshotPrice(long boundaryMs) {
+        try {
+            PriceQuote quote = quotes.fetchPrice(symbol).getQuote();
+            long offsetMs = Math.abs(quote.getFetchedAt().toEpochMilli() - boundaryMs);
+            if (quote.isLastGood() || offsetMs > maxQuoteAgeMs) {
+                LOGGER.warning("No " + symbol + " quote within " + maxQuoteAgeMs + " ms of the round boundary; "
+                        + "voiding the rounds it prices");
+                return null;
+            }
+            return quote.getPrice();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Round price snapshot failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A round that has started and is waiting for its end price.
+     */
+    private static final class RunningRound {
+        private final BetBook book;
+        private final BigDecimal startPrice;
+
+        private RunningRound(BetBook book, BigDecimal startPrice) {
+            this.book = book;
+            this.startPrice = startPrice;
+        }
+    }
+
+    /**
+     * A round that has not been settled yet, as shown to players.
+     */
+    public static final class Round {
+        private final long id;
+        private final Instant startAt;
+        private final Instant endAt;
+        private final BigDecimal startPrice;
+        private final int betCount;
+
+        private Round(long id, Instant startAt, Instant endAt, BigDecimal startPrice, int betCount) {
+            this.id = id;
+            this.startAt = startAt;
+            this.endAt = endAt;
+            this.startPrice = startPrice;
+            this.betCount = betCount;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Instant getStartAt() {
+            return startAt;
+        }
+
+        public Instant getEndAt() {
+            return endAt;
+        }
+
+        /**
+         * @return {@code null} before the round starts or when no start price could be taken
+         */
+        public BigDecimal getStartPrice() {
+            return startPrice;
+        }
+
+        public int getBetCount() {
+            return betCount;
+        }
+    }
+}
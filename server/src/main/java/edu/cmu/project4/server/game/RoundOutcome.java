@@ -0,0 +1,38 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.game;
+
+import java.math.BigDecimal;
+
+/**
+ * How a round ended: the price rose, fell or stayed put, or the round was void because there was no
+ * trustworthy start or end price. Flat rounds lose for both sides, as in the game; void rounds refund.
+ */
+public enum RoundOutcome {
+    UP, DOWN, FLAT, VOID;
+
+    /**
+     * @param startPrice price snapshot at the start of the round, or {@code null} if none could be taken
+     * @param endPrice   price snapshot at the end of the round, or {@code null} if none could be taken
+     */
+    public static RoundOutcome of(BigDecimal startPrice, BigDecimal endPrice) {
+        if (startPrice == null || endPrice == null) {
+            return VOID;
+        }
+        int change = endPrice.compareTo(startPrice);
+        return change > 0 ? UP : change < 0 ? DOWN : FLAT;
+    }
+
+    /**
+     * @return the code of the bet direction that wins, or 0 when no direction does
+     */
+    byte winningCode() {
+        return this == UP ? Bet.Direction.UP.code() : this == DOWN ? Bet.Direction.DOWN.code() : 0;
+    }
+
+    public String getLabel() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.game;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A round after settlement: its authoritative start and end prices, the outcome, and the settled bets.
+ */
+public final class SettledRound {
+    private final String symbol;
+    private final BetBook book;
+    private final Instant startAt;
+    private final Instant endAt;
+    private final BigDecimal startPrice;
+    private final BigDecimal endPrice;
+    private final RoundOutcome outcome;
+    private final long settleNanos;
+
+    public SettledRound(String symbol, BetBook book, Instant startAt, Instant endAt, BigDecimal startPrice,
+                        BigDecimal endPrice, RoundOutcome outcome, long settleNanos) {
+        this.symbol = symbol;
+        this.book = book;
+        this.startAt = startAt;
+        this.endAt = endAt;
+        this.startPrice = startPrice;
+        this.endPrice = endPrice;
+        this.outcome = outcome;
+        this.settleNanos = settleNanos;
+    }
+
+    /**
+     * @return the settled bet, or {@code null} if the round has no bet with this id
+     */
+    public Bet bet(long betId) {
+        return book.settledBet(betId, startPrice, endPrice, outcome);
+    }
+
+    public long getRoundId() {
+        return book.getRoundId();
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    BetBook getBook() {
+        return book;
+    }
+
+    public Instant getStartAt() {
+        return startAt;
+    }
+
+    public Instant getEndAt() {
+        return endAt;
+    }
+
+    /**
+     * @return {@code null} when no price could be taken and the round is void
+     */
+    public BigDecimal getStartPrice() {
+        return startPrice;
+    }
+
+    /**
+     * @return {@code null} when no price could be taken and the round is void
+     */
+    public BigDecimal getEndPrice() {
+        return endPrice;
+    }
+
+    public RoundOutcome getOutcome() {
+        return outcome;
+    }
+
+    public int getBetCount() {
+        return book.size();
+    }
+
+    public long getStakedCents() {
+        return book.getStakedCents();
+    }
+
+    public long getPaidOutCents() {
+        return book.getPaidOutCents();
+    }
+
+    public int getWinners() {
+        return book.getWinners();
+    }
+
+    /**
+     * @return time the settlement pass over the bets took
+     */
+    public long getSettleNanos() {
+        return settleNanos;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Upstream (Binance) and end-to-end latency histograms, globally and per symbol. Each histogram is a
+ * fixed {@link RollingHistogram}, so memory is bounded by the per-symbol cap; symbols beyond it share
+ * one {@code (other)} entry.
+ */
+public class LatencyMetrics {
+    public static final String OTHER_SYMBOLS = "(other)";
+
+    private final RollingHistogram upstream = new RollingHistogram();
+    private final RollingHistogram total = new RollingHistogram();
+    private final ConcurrentMap<String, SymbolLatency> bySymbol = new ConcurrentHashMap<>();
+    private final int maxSymbols;
+
+    public LatencyMetrics(int maxSymbols) {
+        this.maxSymbols = maxSymbols;
+    }
+
+    /**
+     * Records one Binance round trip. {@code symbol} may be {@code null} for multi-symbol calls, which are
+     * only counted globally.
+     */
+    public void recordUpstream(String symbol, long latencyMs) {
+        long now = System.currentTimeMillis();
+        upstream.record(latencyMs, now);
+        if (symbol != null) {
+            forSymbol(symbol).upstream.record(latencyMs, now);
+        }
+    }
+
+    /**
+     * Records the time spent serving one request, from receipt to response.
+     */
+    public void recordTotal(String symbol, long latencyMs) {
+        long now = System.currentTimeMillis();
+        total.record(latencyMs, now);
+        if (symbol != null) {
+            forSymbol(symbol).total.record(latencyMs, now);
+        }
+    }
+
+    public RollingHistogram getUpstream() {
+        return upstream;
+    }
+
+    public RollingHistogram getTotal() {
+        return total;
+    }
+
+    /**
+     * Per-symbol histograms sorted by symbol.
+     */
+    public Map<String, SymbolLatency> bySymbol() {
+        return Collections.unmodifiableMap(new TreeMap<>(bySymbol));
+    }
+
+    private SymbolLatency forSymbol(String symbol) {
+        SymbolLatency latency = bySymbol.get(symbol);
+        if (latency != null) {
+            return latency;
+        }
+        String key = bySymbol.size() >= maxSymbols ? OTHER_SYMBOLS : symbol;
+        return bySymbol.computeIfAbsent(key, ignored -> new SymbolLatency());
+    }
+
+    public static final class SymbolLatency {
+        private final RollingHistogram upstream = new RollingHistogram();
+        private final RollingHistogram total = new RollingHistogram();
+
+        public RollingHistogram getUpstream() {
+            return upstream;
+        }
+
+        public RollingHistogram getTotal() {
+            return total;
+        }
+    }
+}
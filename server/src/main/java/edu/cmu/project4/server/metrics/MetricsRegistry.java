@@ -0,0 +1,320 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Central set of instruments rendered in the Prometheus text exposition format. Updates only touch
+ * {@link LongAdder}s, so instruments can stay on under full load; all formatting happens at scrape time.
+ */
+public class MetricsRegistry {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    public static final String OTHER_LABEL = "(other)";
+
+    private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+    public Counter counter(String name, String help) {
+        Counter counter = new Counter(name, help);
+        collectors.add(counter);
+        return counter;
+    }
+
+    /**
+     * Counter split by label values. At most {@code maxSeries} distinct label combinations are kept;
+     * further ones are folded into a series whose labels are all {@value #OTHER_LABEL}.
+     */
+    public LabeledCounter labeledCounter(String name, String help, int maxSeries, String... labelNames) {
+        LabeledCounter counter = new LabeledCounter(name, help, maxSeries, labelNames);
+        collectors.add(counter);
+        return counter;
+    }
+
+    public Gauge gauge(String name, String help) {
+        Gauge gauge = new Gauge(name, help);
+        collectors.add(gauge);
+        return gauge;
+    }
+
+    /**
+     * Histogram over millisecond observations, exported in seconds with the given upper bounds.
+     */
+    public Histogram histogram(String name, String help, double... bucketsSeconds) {
+        Histogram histogram = new Histogram(name, help, bucketsSeconds);
+        collectors.add(histogram);
+        return histogram;
+    }
+
+    /**
+     * Exposes a monotonic count that is already maintained elsewhere, read at scrape time.
+     */
+    public void counterFunction(String name, String help, LongSupplier value) {
+        collectors.add(out -> {
+            header(out, name, help, "counter");
+            sample(out, name, "", value.getAsLong());
+        });
+    }
+
+    /**
+     * Exposes a value that is already maintained elsewhere, read at scrape time.
+     */
+    public void gaugeFunction(String name, String help, DoubleSupplier value) {
+        collectors.add(out -> {
+            header(out, name, help, "gauge");
+            sample(out, name, "", value.getAsDouble());
+        });
+    }
+
+    /**
+     * Labeled form of {@link #counterFunction}: one series per map entry, keyed by the value of {@code labelName}.
+     */
+    public void counterFunction(String name, String help, String labelName, Map<String, LongSupplier> series) {
+        String[] labelNames = {labelName};
+        collectors.add(out -> {
+            header(out, name, help, "counter");
+            for (Map.Entry<String, LongSupplier> entry : series.entrySet()) {
+                sample(out, name, labels(labelNames, List.of(entry.getKey())), entry.getValue().getAsLong());
+            }
+        });
+    }
+
+    /**
+     * Labeled form of {@link #gaugeFunction}: one series per map entry, keyed by the value of {@code labelName}.
+     */
+    public void gaugeFunction(String name, String help, String labelName, Map<String, DoubleSupplier> series) {
+        String[] labelNames = {labelName};
+        collectors.add(out -> {
+            header(out, name, help, "gauge");
+            for (Map.Entry<String, DoubleSupplier> entry : series.entrySet()) {
+                sample(out, name, labels(labelNames, List.of(entry.getKey())), entry.getValue().getAsDouble());
+            }
+        });
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Collector collector : collectors) {
+            collector.writeTo(out);
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String labels(String[] names, List<String> values) {
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(names[i]).append("=\"");
+            String value = values.get(i) == null ? "" : values.get(i);
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                if (ch == '\\' || ch == '"') {
+                    out.append('\\').append(ch);
+                } else if (ch == '\n') {
+                    out.append("\\n");
+                } else {
+                    out.append(ch);
+                }
+            }
+            out.append('"');
+        }
+        return out.append('}').toString();
+    }
+
+    private interface Collector {
+        void writeTo(StringBuilder out);
+    }
+
+    public static final class Counter implements Collector {
+        private final String name;
+        private final String help;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void inc(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        public void writeTo(StringBuilder out) {
+            header(out, name, help, "counter");
+            sample(out, name, "", value.sum());
+        }
+    }
+
+    public static final class LabeledCounter implements Collector {
+        private final String name;
+        private final String help;
+        private final int maxSeries;
+        private final String[] labelNames;
+        private final List<String> otherKey;
+        private final ConcurrentMap<List<String>, LongAdder> series = new ConcurrentHashMap<>();
+
+        private LabeledCounter(String name, String help, int maxSeries, String[] labelNames) {
+            this.name = name;
+            this.help = help;
+            this.maxSeries = maxSeries;
+            this.labelNames = labelNames.clone();
+            String[] other = new String[labelNames.length];
+            Arrays.fill(other, OTHER_LABEL);
+            this.otherKey = List.of(other);
+        }
+
+        /**
+         * Increments the series for {@code labelValues}, given in the order the label names were declared.
+         */
+        public void inc(String... labelValues) {
+            if (labelValues.length != labelNames.length) {
+                throw new IllegalArgumentException(name + " expects " + labelNames.length + " label values");
+            }
+            List<String> key = Arrays.asList(labelValues);
+            LongAdder counter = series.get(key);
+            if (counter == null) {
+                if (series.size() >= maxSeries) {
+                    key = otherKey;
+                }
+                counter = series.computeIfAbsent(key, ignored -> new LongAdder());
+            }
+            counter.increment();
+        }
+
+        @Override
+        public void writeTo(StringBuilder out) {
+            header(out, name, help, "counter");
+            Map<String, Long> sorted = new TreeMap<>();
+            for (Map.Entry<List<String>, LongAdder> entry : series.entrySet()) {
+                sorted.put(labels(labelNames, entry.getKey()), entry.getValue().sum());
+            }
+            for (Map.Entry<String, Long> entry : sorted.entrySet()) {
+                sample(out, name, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    public static final class Gauge implements Collector {
+        private final String name;
+        private final String help;
+        private final LongAdder value = new LongAdder();
+
+        private Gauge(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void dec() {
+            value.decrement();
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        public void writeTo(StringBuilder out) {
+            header(out, name, help, "gauge");
+            sample(out, name, "", value.sum());
+        }
+    }
+
+    public static final class Histogram implements Collector {
+        private final String name;
+        private final String help;
+        private final double[] boundsSeconds;
+        private final long[] boundsMs;
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumMs = new LongAdder();
+
+        private Histogram(String name, String help, double[] bucketsSeconds) {
+            this.name = name;
+            this.help = help;
+            this.boundsSeconds = bucketsSeconds.clone();
+            Arrays.sort(this.boundsSeconds);
+            this.boundsMs = new long[boundsSeconds.length];
+            this.buckets = new LongAdder[boundsSeconds.length];
+            for (int i = 0; i < boundsSeconds.length; i++) {
+                boundsMs[i] = Math.round(boundsSeconds[i] * 1000.0);
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observeMs(long valueMs) {
+            for (int i = 0; i < boundsMs.length; i++) {
+                if (valueMs <= boundsMs[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sumMs.add(valueMs);
+        }
+
+        @Override
+        public void writeTo(StringBuilder out) {
+            header(out, name, help, "histogram");
+            // Buckets are stored individually and made cumulative here, as the format requires.
+            long cumulative = 0;
+            List<String> le = new ArrayList<>(1);
+            le.add(null);
+            String[] leName = {"le"};
+            for (int i = 0; i < boundsSeconds.length; i++) {
+                cumulative += buckets[i].sum();
+                le.set(0, Double.toString(boundsSeconds[i]));
+                sample(out, name + "_bucket", labels(leName, le), cumulative);
+            }
+            long total = count.sum();
+            le.set(0, "+Inf");
+            sample(out, name + "_bucket", labels(leName, le), Math.max(total, cumulative));
+            sample(out, name + "_sum", "", sumMs.sum() / 1000.0);
+            sample(out, name + "_count", "", Math.max(total, cumulative));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory, lock-free latency histogram over rolling 1 minute, 5 minute and 1 hour windows.
+ * <p>
+ * Values are bucketed HDR-style: 0-15 ms exactly, then 8 sub-buckets per power of two (at most 12.5%
+ * relative error) up to {@link #MAX_TRACKABLE_MS}; larger values land in the last bucket. Each window is
+ * a ring of time slots, and recording touches only preallocated atomic arrays.
+ */
+public final class RollingHistogram {
+    public static final long MAX_TRACKABLE_MS = (1L << 20) - 1;
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_EXPONENT = 4;
+    static final int BUCKET_COUNT = LINEAR_BUCKETS + (20 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+    private final Window oneMinute = new Window(6, 10_000L);
+    private final Window fiveMinutes = new Window(5, 60_000L);
+    private final Window oneHour = new Window(12, 300_000L);
+
+    public void record(long valueMs) {
+        record(valueMs, System.currentTimeMillis());
+    }
+
+    public void record(long valueMs, long nowMs) {
+        int bucket = bucketIndex(valueMs);
+        long clamped = Math.min(Math.max(valueMs, 0), MAX_TRACKABLE_MS);
+        oneMinute.record(bucket, clamped, nowMs);
+        fiveMinutes.record(bucket, clamped, nowMs);
+        oneHour.record(bucket, clamped, nowMs);
+    }
+
+    public HistogramSnapshot snapshot(TimeWindow window) {
+        return windowFor(window).snapshot(System.currentTimeMillis());
+    }
+
+    private Window windowFor(TimeWindow window) {
+        switch (window) {
+            case ONE_MINUTE:
+                return oneMinute;
+            case FIVE_MINUTES:
+                return fiveMinutes;
+            case ONE_HOUR:
+            default:
+                return oneHour;
+        }
+    }
+
+    static int bucketIndex(long valueMs) {
+        long value = Math.min(Math.max(valueMs, 0), MAX_TRACKABLE_MS);
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Highest value that maps to the bucket; reported percentiles are conservative (never understated).
+     */
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int offset = index - LINEAR_BUCKETS;
+        int exponent = offset / SUB_BUCKETS + FIRST_EXPONENT;
+        int subBucket = offset % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Ring of {@code slotCount} slots, each {@code slotWidthMs} wide. A slot is lazily reset the first time
+     * it is touched in a new epoch; a record racing with that reset can be lost, which is acceptable for
+     * monitoring and keeps the path lock-free.
+     */
+    private static final class Window {
+        private final int slotCount;
+        private final long slotWidthMs;
+        private final AtomicLongArray counts;
+        private final AtomicLongArray slotEpochs;
+        private final AtomicLongArray slotMax;
+        private final AtomicLongArray slotSum;
+
+        private Window(int slotCount, long slotWidthMs) {
+            this.slotCount = slotCount;
+            this.slotWidthMs = slotWidthMs;
+            this.counts = new AtomicLongArray(slotCount * BUCKET_COUNT);
+            this.slotEpochs = new AtomicLongArray(slotCount);
+            this.slotMax = new AtomicLongArray(slotCount);
+            this.slotSum = new AtomicLongArray(slotCount);
+            for (int i = 0; i < slotCount; i++) {
+                slotEpochs.set(i, -1);
+            }
+        }
+
+        private void record(int bucket, long value, long nowMs) {
+            long epoch = nowMs / slotWidthMs;
+            int slot = (int) (epoch % slotCount);
+            long slotEpoch = slotEpochs.get(slot);
+            if (slotEpoch < epoch && slotEpochs.compareAndSet(slot, slotEpoch, epoch)) {
+                int base = slot * BUCKET_COUNT;
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    counts.set(base + i, 0);
+                }
+                slotMax.set(slot, 0);
+                slotSum.set(slot, 0);
+            }
+            counts.incrementAndGet(slot * BUCKET_COUNT + bucket);
+            slotSum.addAndGet(slot, value);
+            long max;
+            do {
+                max = slotMax.get(slot);
+            } while (value > max && !slotMax.compareAndSet(slot, max, value));
+        }
+
+        private HistogramSnapshot snapshot(long nowMs) {
+            long currentEpoch = nowMs / slotWidthMs;
+            long[] merged = new long[BUCKET_COUNT];
+            long total = 0;
+            long sum = 0;
+            long max = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                long epoch = slotEpochs.get(slot);
+                if (epoch < 0 || currentEpoch - epoch >= slotCount) {
+                    continue;
+                }
+                int base = slot * BUCKET_COUNT;
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    long count = counts.get(base + i);
+                    merged[i] += count;
+                    total += count;
+                }
+                sum += slotSum.get(slot);
+                max = Math.max(max, slotMax.get(slot));
+            }
+            return new HistogramSnapshot(total,
+                    total == 0 ? 0.0 : (double) sum / (double) total,
+                    Math.min(percentile(merged, total, 0.50), max),
+                    Math.min(percentile(merged, total, 0.95), max),
+                    Math.min(percentile(merged, total, 0.99), max),
+                    max);
+        }
+
+        private static long percentile(long[] buckets, long total, double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return bucketUpperBound(buckets.length - 1);
+        }
+    }
+}
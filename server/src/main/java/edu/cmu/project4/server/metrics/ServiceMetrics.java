@@ -0,0 +1,108 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.metrics;
+
+import edu.cmu.project4.server.metrics.MetricsRegistry.Counter;
+import edu.cmu.project4.server.metrics.MetricsRegistry.Gauge;
+import edu.cmu.project4.server.metrics.MetricsRegistry.Histogram;
+import edu.cmu.project4.server.metrics.MetricsRegistry.LabeledCounter;
+
+/**
+ * Hot-path instruments of the price service, registered once on a {@link MetricsRegistry}.
+ */
+public class ServiceMetrics {
+    public static final String ENDPOINT_PRICE = "price";
+    public static final String ENDPOINT_PRICES = "prices";
+
+    /**
+     * How a request ended, used as the {@code outcome} label.
+     */
+    public enum Outcome {
+        SUCCESS("success"),
+        NOT_MODIFIED("not_modified"),
+        UPSTREAM_ERROR("upstream_error"),
+        SERVER_ERROR("server_error");
+
+        private final String label;
+
+        Outcome(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final String IO_ERROR_STATUS = "io_error";
+    private static final String[] STATUS_LABELS = new String[600];
+
+    static {
+        for (int i = 0; i < STATUS_LABELS.length; i++) {
+            STATUS_LABELS[i] = Integer.toString(i);
+        }
+    }
+
+    private final LabeledCounter requests;
+    private final Gauge inFlight;
+    private final LabeledCounter upstreamResponses;
+    private final Counter mongoWriteFailures;
+    private final Histogram mongoWriteLatency;
+
+    public ServiceMetrics(MetricsRegistry registry, int maxSymbols) {
+        this.requests = registry.labeledCounter("crypto_requests_total",
+                "Price API requests by endpoint, symbol and outcome.", maxSymbols * 8, "endpoint", "symbol", "outcome");
+        this.inFlight = registry.gauge("crypto_requests_in_flight", "Price API requests currently being served.");
+        this.upstreamResponses = registry.labeledCounter("crypto_binance_responses_total",
+                "Binance REST responses by HTTP status; io_error when no response was received.", 64, "status");
+        this.mongoWriteFailures = registry.counter("crypto_mongo_write_failures_total",
+                "Request log batches that MongoDB rejected.");
+        this.mongoWriteLatency = registry.histogram("crypto_mongo_write_seconds",
+                "Duration of request log insertMany batches.",
+                0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10);
+    }
+
+    public void requestStarted() {
+        inFlight.inc();
+    }
+
+    /**
+     * Requests on {@code /api/price} and {@code /api/prices} currently being served.
+     */
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    public void requestFinished(String endpoint, String symbol, Outcome outcome) {
+        inFlight.dec();
+        requests.inc(endpoint, symbol, outcome.getLabel());
+    }
+
+    /**
+     * Ends a multi-symbol request, counting it once under each requested symbol.
+     */
+    public void requestFinished(String endpoint, Iterable<String> symbols, Outcome outcome) {
+        inFlight.dec();
+        for (String symbol : symbols) {
+            requests.inc(endpoint, symbol, outcome.getLabel());
+        }
+    }
+
+    public void upstreamResponse(int statusCode) {
+        upstreamResponses.inc(statusCode >= 0 && statusCode < STATUS_LABELS.length
+                ? STATUS_LABELS[statusCode] : Integer.toString(statusCode));
+    }
+
+    public void upstreamIoError() {
+        upstreamResponses.inc(IO_ERROR_STATUS);
+    }
+
+    public void mongoWrite(long latencyMs, boolean success) {
+        mongoWriteLatency.observeMs(latencyMs);
+        if (!success) {
+            mongoWriteFailures.inc();
+        }
+    }
+}
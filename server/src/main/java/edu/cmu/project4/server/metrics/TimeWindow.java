@@ -0,0 +1,24 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.metrics;
+
+/**
+ * Rolling windows reported by {@link RollingHistogram}.
+ */
+public enum TimeWindow {
+    ONE_MINUTE("1m"),
+    FIVE_MINUTES("5m"),
+    ONE_HOUR("1h");
+
+    private final String label;
+
+    TimeWindow(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.project4.server.biz.CandleInterval;
+import edu.cmu.project4.server.biz.TickHistory;
+import edu.cmu.project4.server.config.AppAttributes;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Recent price history kept in memory by {@link TickHistory}, oldest first:
+ * {@code /api/candles?symbol=BTCUSD&interval=1s|1m|5m&limit=100} for OHLC candles and
+ * {@code /api/ticks?symbol=BTCUSD&limit=100} for raw ticks.
+ */
+@WebServlet(name = "CandleServlet", urlPatterns = {"/api/candles", "/api/ticks"})
+public class CandleServlet extends HttpServlet {
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 10000;
+
+    private transient TickHistory history;
+    private transient ObjectMapper mapper;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        this.history = (TickHistory) config.getServletContext().getAttribute(AppAttributes.TICK_HISTORY);
+        this.mapper = (ObjectMapper) config.getServletContext().getAttribute(AppAttributes.OBJECT_MAPPER);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        addCorsHeaders(resp);
+        String symbol = req.getParameter("symbol");
+        if (symbol == null || symbol.isBlank()) {
+            symbol = "BTCUSD";
+        }
+        symbol = symbol.trim().toUpperCase();
+
+        int limit = DEFAULT_LIMIT;
+        String limitParam = req.getParameter("limit");
+        if (limitParam != null && !limitParam.isBlank()) {
+            try {
+                limit = Integer.parseInt(limitParam.trim());
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 1 || limit > MAX_LIMIT) {
+                respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter limit must be between 1 and " + MAX_LIMIT);
+                return;
+            }
+        }
+
+        if ("/api/ticks".equals(req.getServletPath())) {
+            respondWithTicks(resp, symbol, history.ticks(symbol, limit));
+            return;
+        }
+        String intervalParam = req.getParameter("interval");
+        CandleInterval interval = intervalParam == null || intervalParam.isBlank()
+                ? CandleInterval.MINUTE
+                : CandleInterval.parse(intervalParam.trim());
+        if (interval == null) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter interval must be 1s, 1m or 5m");
+            return;
+        }
+        respondWithCandles(resp, symbol, interval, history.candles(symbol, interval, limit));
+    }
+
+    @Override
+    protected void doOptions(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        addCorsHeaders(resp);
+        resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    private void respondWithCandles(HttpServletResponse resp, String symbol, CandleInterval interval,
+                                    TickHistory.Candles candles) throws IOException {
+        resp.setContentType("application/json");
+        resp.setHeader("Cache-Control", "no-cache");
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(resp.getOutputStream())) {
+            generator.writeStartObject();
+            generator.writeStringField("symbol", symbol);
+            generator.writeStringField("interval", interval.getLabel());
+            generator.writeArrayFieldStart("candles");
+            for (int i = 0; i < candles.size(); i++) {
+                generator.writeStartObject();
+                generator.writeStringField("start", Instant.ofEpochMilli(candles.getStart(i)).toString());
+                generator.writeFieldName("open");
+                QuoteJson.writePrice(generator, candles.getOpen(i));
+                generator.writeFieldName("high");
+                QuoteJson.writePrice(generator, candles.getHigh(i));
+                generator.writeFieldName("low");
+                QuoteJson.writePrice(generator, candles.getLow(i));
+                generator.writeFieldName("close");
+                QuoteJson.writePrice(generator, candles.getClose(i));
+                generator.writeNumberField("ticks", candles.getTickCount(i));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private void respondWithTicks(HttpServletResponse resp, String symbol, TickHistory.Ticks ticks) throws IOException {
+        resp.setContentType("application/json");
+        resp.setHeader("Cache-Control", "no-cache");
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(resp.getOutputStream())) {
+            generator.writeStartObject();
+            generator.writeStringField("symbol", symbol);
+            generator.writeArrayFieldStart("ticks");
+            for (int i = 0; i < ticks.size(); i++) {
+                generator.writeStartObject();
+                generator.writeStringField("time", Instant.ofEpochMilli(ticks.getTime(i)).toString());
+                generator.writeFieldName("price");
+                QuoteJson.writePrice(generator, ticks.getScaledPrice(i));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private void respondWithError(HttpServletResponse resp, int statusCode, String message) throws IOException {
+        resp.setStatus(statusCode);
+        resp.setContentType("application/json");
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", message);
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+
+    private void addCorsHeaders(HttpServletResponse resp) {
+        resp.setHeader("Access-Control-Allow-Origin", "*");
+        resp.setHeader("Access-Control-Allow-Methods", "GET,OPTIONS");
+        resp.setHeader("Access-Control-Allow-Headers", "Content-Type");
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Identifies the client behind a request for per-client rate limits: its address, and its {@code clientId}
+ * within that address.
+ */
+final class ClientKeys {
+    // Client ids come from the query string; capping them bounds the rate limiter's memory per client.
+    static final int MAX_CLIENT_ID_LENGTH = 64;
+
+    private ClientKeys() {
+    }
+
+    /**
+     * @return the trimmed {@code clientId} parameter cut to {@value #MAX_CLIENT_ID_LENGTH} characters, or
+     *         {@code null} when it is missing or blank
+     */
+    static String clientId(HttpServletRequest req) {
+        String clientId = req.getParameter("clientId");
+        if (clientId == null || clientId.isBlank()) {
+            return null;
+        }
+        clientId = clientId.trim();
+        return clientId.length() > MAX_CLIENT_ID_LENGTH ? clientId.substring(0, MAX_CLIENT_ID_LENGTH) : clientId;
+    }
+
+    /**
+     * The client's {@code clientId} qualified by its address, or the address alone without one, so made-up
+     * ids never escape their address.
+     */
+    static String clientKey(HttpServletRequest req, String address) {
+        String clientId = clientId(req);
+        return clientId == null ? address : address + " " + clientId;
+    }
+
+    /**
+     * The address of the client behind {@code trustedProxyHops} reverse proxies. Each proxy appends the
+     * address it received the request from to {@code X-Forwarded-For}, so only that many entries from the
+     * right are trustworthy; anything further left was sent by the client and may be forged.
+     */
+    static String clientAddress(HttpServletRequest req, int trustedProxyHops) {
+        String remote = req.getRemoteAddr();
+        if (trustedProxyHops == 0) {
+            return remote;
+        }
+        Enumeration<String> headers = req.getHeaders("X-Forwarded-For");
+        List<String> hops = new ArrayList<>();
+        while (headers != null && headers.hasMoreElements()) {
+            for (String hop : headers.nextElement().split(",")) {
+                if (!hop.isBlank()) {
+                    hops.add(hop.trim());
+                }
+            }
+        }
+        hops.add(remote);
+        return hops.get(Math.max(0, hops.size() - 1 - trustedProxyHops));
+    }
+}
@@ -4,10 +4,18 @@
 
 package edu.cmu.project4.server.web;
 
+import edu.cmu.project4.server.biz.PriceStreamer;
+import edu.cmu.project4.server.biz.QuoteCache;
+import edu.cmu.project4.server.biz.ResilientQuoteSource;
 import edu.cmu.project4.server.config.AppAttributes;
-import edu.cmu.project4.server.data.MongoLogRepository;
+import edu.cmu.project4.server.data.AsyncLogWriter;
+import edu.cmu.project4.server.data.DashboardAggregates;
 import edu.cmu.project4.server.data.RequestLog;
+import edu.cmu.project4.server.data.RollupBucket;
+import edu.cmu.project4.server.data.RollupGranularity;
+import edu.cmu.project4.server.data.RollupRepository;
 import edu.cmu.project4.server.data.SymbolStats;
+import edu.cmu.project4.server.metrics.LatencyMetrics;
 import jakarta.servlet.ServletConfig;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -16,6 +24,8 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
 /**
@@ -23,21 +33,35 @@ import java.util.List;
  */
 @WebServlet(name = "DashboardServlet", urlPatterns = "/dashboard")
 public class DashboardServlet extends HttpServlet {
-    private transient MongoLogRepository repository;
+    private transient DashboardAggregates aggregates;
+    private transient RollupRepository rollups;
+    private transient QuoteCache quoteCache;
+    private transient AsyncLogWriter logWriter;
+    private transient PriceStreamer priceStreamer;
+    private transient PriceBroadcaster priceBroadcaster;
+    private transient LatencyMetrics latencyMetrics;
+    private transient ResilientQuoteSource quoteSource;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
-        this.repository = (MongoLogRepository) config.getServletContext().getAttribute(AppAttributes.MONGO_REPOSITORY);
+        this.aggregates = (DashboardAggregates) config.getServletContext().getAttribute(AppAttributes.DASHBOARD_AGGREGATES);
+        this.rollups = (RollupRepository) config.getServletContext().getAttribute(AppAttributes.ROLLUP_REPOSITORY);
+        this.quoteCache = (QuoteCache) config.getServletContext().getAttribute(AppAttributes.QUOTE_CACHE);
+        this.logWriter = (AsyncLogWriter) config.getServletContext().getAttribute(AppAttributes.LOG_WRITER);
+        this.priceStreamer = (PriceStreamer) config.getServletContext().getAttribute(AppAttributes.PRICE_STREAMER);
+        this.priceBroadcaster = (PriceBroadcaster) config.getServletContext().getAttribute(AppAttributes.PRICE_BROADCASTER);
+        this.latencyMetrics = (LatencyMetrics) config.getServletContext().getAttribute(AppAttributes.LATENCY_METRICS);
+        this.quoteSource = (ResilientQuoteSource) config.getServletContext().getAttribute(AppAttributes.QUOTE_SOURCE);
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        long total = repository.totalCount();
-        long success = repository.successCount();
-        double avgLatency = repository.averageLatencyMs();
-        List<SymbolStats> topSymbols = repository.topSymbols(5);
-        List<RequestLog> recentLogs = repository.recentLogs(50);
+        long total = aggregates.totalCount();
+        long success = aggregates.successCount();
+        double avgLatency = aggregates.averageLatencyMs();
+        List<SymbolStats> topSymbols = aggregates.topSymbols(5);
+        List<RequestLog> recentLogs = aggregates.recentLogs(50);
 
         double successRate = total == 0 ? 0.0 : (double) success / (double) total * 100.0;
 
@@ -46,7 +70,30 @@ public class DashboardServlet extends HttpServlet {
         req.setAttribute("avgLatency", avgLatency);
         req.setAttribute("topSymbols", topSymbols);
         req.setAttribute("recentLogs", recentLogs);
+        req.setAttribute("bootstrapped", aggregates.isBootstrapped());
+        req.setAttribute("queryPlanProblem", aggregates.getQueryPlanProblem());
+        req.setAttribute("quoteCache", quoteCache);
+        req.setAttribute("logWriter", logWriter);
+        req.setAttribute("priceStreamer", priceStreamer);
+        req.setAttribute("priceBroadcaster", priceBroadcaster);
+        req.setAttribute("latencyMetrics", latencyMetrics);
+        req.setAttribute("quoteSource", quoteSource);
+        req.setAttribute("hourlyBuckets", lastDay());
 
         req.getRequestDispatcher("/WEB-INF/jsp/dashboard.jsp").forward(req, resp);
     }
+
+    /**
+     * Hourly buckets for the last 24 hours, at most 24 documents per symbol; {@code null} if MongoDB is unavailable.
+     */
+    private List<RollupBucket> lastDay() {
+        Instant now = Instant.now();
+        Instant from = RollupGranularity.HOUR.truncate(now.minus(Duration.ofHours(23)));
+        try {
+            return rollups.range(RollupGranularity.HOUR, null, from, now);
+        } catch (RuntimeException e) {
+            log("Hourly rollups unavailable", e);
+            return null;
+        }
+    }
 }
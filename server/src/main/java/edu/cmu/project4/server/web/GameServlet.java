@@ -0,0 +1,217 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.project4.server.biz.ClientRateLimiter;
+import edu.cmu.project4.server.config.AppAttributes;
+import edu.cmu.project4.server.config.AppConfig;
+import edu.cmu.project4.server.game.Bet;
+import edu.cmu.project4.server.game.RoundEngine;
+import edu.cmu.project4.server.game.SettledRound;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Server-side rounds of the bitcoin game:
+ * <ul>
+ *     <li>{@code POST /api/game/bets} with {@code clientId}, {@code direction=up|down} and {@code amount}
+ *     places a bet on the next round</li>
+ *     <li>{@code GET /api/game/bets/<id>} reports the bet, with its payout once the round is settled</li>
+ *     <li>{@code GET /api/game/round} describes the running and next rounds and the last settled one</li>
+ * </ul>
+ * Amounts are decimal with at most two places and at most the configured maximum stake. Bets are limited per
+ * client with a {@link ClientRateLimiter}, and per address when the price endpoint's address limit is set, so
+ * one client cannot fill a round's book and lock everyone else out of it.
+ */
+@WebServlet(name = "GameServlet", urlPatterns = {"/api/game/bets", "/api/game/bets/*", "/api/game/round"})
+public class GameServlet extends HttpServlet {
+    private transient RoundEngine engine;
+    private transient ObjectMapper mapper;
+    private transient ClientRateLimiter rateLimiter;
+    private transient ClientRateLimiter addressRateLimiter;
+    private long maxStakeCents;
+    private int trustedProxyHops;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        this.engine = (RoundEngine) config.getServletContext().getAttribute(AppAttributes.ROUND_ENGINE);
+        this.mapper = (ObjectMapper) config.getServletContext().getAttribute(AppAttributes.OBJECT_MAPPER);
+        this.rateLimiter = (ClientRateLimiter) config.getServletContext().getAttribute(AppAttributes.GAME_RATE_LIMITER);
+        this.addressRateLimiter = (ClientRateLimiter) config.getServletContext().getAttribute(AppAttributes.ADDRESS_RATE_LIMITER);
+        AppConfig appConfig = (AppConfig) config.getServletContext().getAttribute(AppAttributes.CONFIG);
+        this.maxStakeCents = appConfig == null ? Long.MAX_VALUE : appConfig.getGameMaxStakeCents();
+        this.trustedProxyHops = appConfig == null ? 0 : appConfig.getTrustedProxyHops();
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!"/api/game/bets".equals(req.getServletPath()) || req.getPathInfo() != null) {
+            respondWithError(resp, HttpServletResponse.SC_METHOD_NOT_ALLOWED, "Bets are placed with POST /api/game/bets");
+            return;
+        }
+        String clientId = ClientKeys.clientId(req);
+        if (clientId == null) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter clientId is required");
+            return;
+        }
+        Bet.Direction direction = Bet.Direction.parse(req.getParameter("direction"));
+        if (direction == null) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter direction must be up or down");
+            return;
+        }
+        long stakeCents;
+        try {
+            stakeCents = new BigDecimal(req.getParameter("amount")).movePointRight(2).longValueExact();
+        } catch (NullPointerException | ArithmeticException | NumberFormatException e) {
+            stakeCents = 0;
+        }
+        if (stakeCents <= 0) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST,
+                    "Parameter amount must be positive with at most two decimal places");
+            return;
+        }
+        if (stakeCents > maxStakeCents) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST,
+                    "Parameter amount must be at most " + BigDecimal.valueOf(maxStakeCents, 2).toPlainString());
+            return;
+        }
+        long waitMs = acquire(req);
+        if (waitMs > 0) {
+            resp.setHeader("Retry-After", Long.toString((waitMs + 999) / 1000));
+            respondWithError(resp, 429, "Too many bets");
+            return;
+        }
+
+        long betId = engine.placeBet(clientId, direction, stakeCents);
+        if (betId < 0) {
+            resp.setHeader("Retry-After", "1");
+            respondWithError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The next round is not taking bets; retry shortly");
+            return;
+        }
+        writeJson(resp, toJson(engine.findBet(betId)));
+    }
+
+    /**
+     * @return 0 when the client may bet, otherwise the milliseconds until it may
+     */
+    private long acquire(HttpServletRequest req) {
+        if (rateLimiter == null && addressRateLimiter == null) {
+            return 0;
+        }
+        String address = ClientKeys.clientAddress(req, trustedProxyHops);
+        long waitMs = rateLimiter == null ? 0 : rateLimiter.acquire(ClientKeys.clientKey(req, address));
+        if (waitMs == 0 && addressRateLimiter != null) {
+            waitMs = addressRateLimiter.acquire(address);
+        }
+        return waitMs;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if ("/api/game/round".equals(req.getServletPath())) {
+            writeJson(resp, roundsJson());
+            return;
+        }
+        String pathInfo = req.getPathInfo();
+        long betId;
+        try {
+            betId = Long.parseLong(pathInfo == null ? "" : pathInfo.substring(1));
+        } catch (NumberFormatException e) {
+            respondWithError(resp, HttpServletResponse.SC_NOT_FOUND, "Bets are looked up with GET /api/game/bets/<id>");
+            return;
+        }
+        Bet bet;
+        try {
+            bet = betId < 0 ? null : engine.findBet(betId);
+        } catch (RuntimeException e) {
+            log("Bet lookup failed", e);
+            respondWithError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Bets are unavailable");
+            return;
+        }
+        if (bet == null) {
+            respondWithError(resp, HttpServletResponse.SC_NOT_FOUND, "Unknown bet " + betId);
+            return;
+        }
+        writeJson(resp, toJson(bet));
+    }
+
+    private Map<String, Object> roundsJson() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("symbol", engine.getSymbol());
+        body.put("roundMs", engine.getRoundMs());
+        RoundEngine.Round running = engine.getRunningRound();
+        body.put("running", running == null ? null : toJson(running));
+        body.put("next", toJson(engine.getNextRound()));
+        SettledRound settled = engine.getLastSettled();
+        if (settled == null) {
+            body.put("lastSettled", null);
+        } else {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("roundId", settled.getRoundId());
+            item.put("startAt", settled.getStartAt().toString());
+            item.put("endAt", settled.getEndAt().toString());
+            item.put("startPrice", settled.getStartPrice());
+            item.put("endPrice", settled.getEndPrice());
+            item.put("outcome", settled.getOutcome().getLabel());
+            item.put("bets", settled.getBetCount());
+            item.put("winners", settled.getWinners());
+            item.put("settleMs", settled.getSettleNanos() / 1e6);
+            body.put("lastSettled", item);
+        }
+        return body;
+    }
+
+    private static Map<String, Object> toJson(RoundEngine.Round round) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("roundId", round.getId());
+        item.put("startAt", round.getStartAt().toString());
+        item.put("endAt", round.getEndAt().toString());
+        item.put("startPrice", round.getStartPrice());
+        item.put("bets", round.getBetCount());
+        return item;
+    }
+
+    private static Map<String, Object> toJson(Bet bet) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("betId", bet.getId());
+        item.put("roundId", bet.getRoundId());
+        item.put("clientId", bet.getClientId());
+        item.put("direction", bet.getDirection().getLabel());
+        item.put("amount", BigDecimal.valueOf(bet.getStakeCents(), 2));
+        item.put("status", bet.isSettled() ? "settled" : "open");
+        item.put("startPrice", bet.getStartPrice());
+        item.put("endPrice", bet.getEndPrice());
+        item.put("outcome", bet.getOutcome() == null ? null : bet.getOutcome().getLabel());
+        item.put("payout", bet.isSettled() ? BigDecimal.valueOf(bet.getPayoutCents(), 2) : null);
+        return item;
+    }
+
+    private void writeJson(HttpServletResponse resp, Map<String, Object> body) throws IOException {
+        resp.setContentType("application/json");
+        resp.setHeader("Cache-Control", "no-cache");
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+
+    private void respondWithError(HttpServletResponse resp, int statusCode, String message) throws IOException {
+        resp.setStatus(statusCode);
+        resp.setContentType("application/json");
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", message);
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.project4.server.config.AppAttributes;
+import edu.cmu.project4.server.metrics.HistogramSnapshot;
+import edu.cmu.project4.server.metrics.LatencyMetrics;
+import edu.cmu.project4.server.metrics.LatencyMetrics.SymbolLatency;
+import edu.cmu.project4.server.metrics.RollingHistogram;
+import edu.cmu.project4.server.metrics.TimeWindow;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Exports upstream and end-to-end latency percentiles as JSON, globally and per symbol.
+ */
+@WebServlet(name = "LatencyMetricsServlet", urlPatterns = "/api/metrics/latency")
+public class LatencyMetricsServlet extends HttpServlet {
+    private transient LatencyMetrics latencyMetrics;
+    private transient ObjectMapper mapper;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        this.latencyMetrics = (LatencyMetrics) config.getServletContext().getAttribute(AppAttributes.LATENCY_METRICS);
+        this.mapper = (ObjectMapper) config.getServletContext().getAttribute(AppAttributes.OBJECT_MAPPER);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("upstream", windows(latencyMetrics.getUpstream()));
+        body.put("total", windows(latencyMetrics.getTotal()));
+        Map<String, Object> symbols = new LinkedHashMap<>();
+        for (Map.Entry<String, SymbolLatency> entry : latencyMetrics.bySymbol().entrySet()) {
+            Map<String, Object> symbol = new LinkedHashMap<>();
+            symbol.put("upstream", windows(entry.getValue().getUpstream()));
+            symbol.put("total", windows(entry.getValue().getTotal()));
+            symbols.put(entry.getKey(), symbol);
+        }
+        body.put("symbols", symbols);
+
+        resp.setContentType("application/json");
+        resp.setHeader("Cache-Control", "no-cache");
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+
+    private static Map<String, HistogramSnapshot> windows(RollingHistogram histogram) {
+        Map<String, HistogramSnapshot> windows = new LinkedHashMap<>();
+        for (TimeWindow window : TimeWindow.values()) {
+            windows.put(window.getLabel(), histogram.snapshot(window));
+        }
+        return windows;
+    }
+}
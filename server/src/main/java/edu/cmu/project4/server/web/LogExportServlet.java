@@ -0,0 +1,230 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoCursor;
+
+import edu.cmu.project4.server.biz.FixedPrice;
+import edu.cmu.project4.server.config.AppAttributes;
+import edu.cmu.project4.server.data.MongoLogRepository;
+import edu.cmu.project4.server.data.RequestLog;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Bulk export of request logs for offline analysis:
+ * {@code /api/logs/export?from=<ISO instant>&to=<ISO instant>&symbol=BTCUSD&format=ndjson|csv&gzip=true}.
+ * Logs are written as they come off a MongoDB cursor, one cursor batch at a time, so memory use does not
+ * depend on how many logs the range holds. Without a range the last day is exported.
+ */
+@WebServlet(name = "LogExportServlet", urlPatterns = "/api/logs/export")
+public class LogExportServlet extends HttpServlet {
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    private static final int GZIP_BUFFER_BYTES = 1 << 16;
+    private static final String CSV_HEADER = "requestId,requestReceivedAt,responseSentAt,clientIp,clientId,symbol,"
+            + "success,errorMessage,price,binanceStatus,binanceLatencyMs,totalLatencyMs,binanceEndpoint,symbols\n";
+
+    private transient MongoLogRepository repository;
+    private transient ObjectMapper mapper;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        this.repository = (MongoLogRepository) config.getServletContext().getAttribute(AppAttributes.MONGO_REPOSITORY);
+        this.mapper = (ObjectMapper) config.getServletContext().getAttribute(AppAttributes.OBJECT_MAPPER);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String format = req.getParameter("format");
+        format = format == null || format.isBlank() ? "ndjson" : format.toLowerCase();
+        if (!"ndjson".equals(format) && !"csv".equals(format)) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter format must be ndjson or csv");
+            return;
+        }
+        boolean gzip = Boolean.parseBoolean(req.getParameter("gzip"));
+        String symbol = req.getParameter("symbol");
+        symbol = symbol == null || symbol.isBlank() ? null : symbol.toUpperCase();
+
+        Instant from;
+        Instant to;
+        try {
+            to = parseInstant(req.getParameter("to"), Instant.now());
+            from = parseInstant(req.getParameter("from"), to.minus(Duration.ofDays(1)));
+        } catch (DateTimeParseException e) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameters from and to must be ISO-8601 instants");
+            return;
+        }
+        if (!from.isBefore(to)) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter from must be before to");
+            return;
+        }
+
+        MongoCursor<RequestLog> cursor = null;
+        try {
+            cursor = repository.cursor(from, to, symbol, CURSOR_BATCH_SIZE);
+            // Runs the query, so a MongoDB failure can still be reported with a status code.
+            cursor.hasNext();
+        } catch (RuntimeException e) {
+            if (cursor != null) {
+                cursor.close();
+            }
+            log("Log export query failed", e);
+            respondWithError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Request logs are unavailable");
+            return;
+        }
+
+        String fileName = "request-logs-" + from.toEpochMilli() + "-" + to.toEpochMilli() + "." + format + (gzip ? ".gz" : "");
+        resp.setContentType(gzip ? "application/gzip" : "csv".equals(format) ? "text/csv" : "application/x-ndjson");
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resp.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        resp.setHeader("Cache-Control", "no-store");
+
+        long exported = 0;
+        try (MongoCursor<RequestLog> logs = cursor;
+             OutputStream out = gzip ? new GZIPOutputStream(resp.getOutputStream(), GZIP_BUFFER_BYTES) : resp.getOutputStream()) {
+            if ("csv".equals(format)) {
+                exported = writeCsv(logs, out);
+            } else {
+                exported = writeNdjson(logs, out);
+            }
+        } catch (RuntimeException e) {
+            // Headers are already sent; the truncated body is the only signal left.
+            log("Log export failed after " + exported + " logs", e);
+        }
+    }
+
+    private long writeNdjson(MongoCursor<RequestLog> logs, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (logs.hasNext()) {
+                RequestLog log = logs.next();
+                generator.writeStartObject();
+                generator.writeStringField("requestId", log.getRequestId());
+                generator.writeStringField("requestReceivedAt", log.getRequestReceivedAt().toString());
+                generator.writeStringField("responseSentAt", log.getResponseSentAt().toString());
+                generator.writeStringField("clientIp", log.getClientIp());
+                generator.writeStringField("clientId", log.getClientId());
+                generator.writeStringField("symbol", log.getSymbol());
+                if (log.getSymbols() != null) {
+                    generator.writeArrayFieldStart("symbols");
+                    for (String symbol : log.getSymbols()) {
+                        generator.writeString(symbol);
+                    }
+                    generator.writeEndArray();
+                }
+                generator.writeBooleanField("success", log.isSuccess());
+                generator.writeStringField("errorMessage", log.getErrorMessage());
+                generator.writeFieldName("price");
+                if (log.hasPrice()) {
+                    QuoteJson.writePrice(generator, log.getScaledPrice());
+                } else {
+                    generator.writeNull();
+                }
+                generator.writeNumberField("binanceStatus", log.getBinanceStatus());
+                generator.writeNumberField("binanceLatencyMs", log.getBinanceLatencyMs());
+                generator.writeNumberField("totalLatencyMs", log.getTotalLatencyMs());
+                generator.writeStringField("binanceEndpoint", log.getBinanceEndpoint());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long writeCsv(MongoCursor<RequestLog> logs, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write(CSV_HEADER);
+        StringBuilder line = new StringBuilder(256);
+        while (logs.hasNext()) {
+            RequestLog log = logs.next();
+            line.setLength(0);
+            appendCsv(line, log.getRequestId()).append(',');
+            line.append(log.getRequestReceivedAt()).append(',');
+            line.append(log.getResponseSentAt()).append(',');
+            appendCsv(line, log.getClientIp()).append(',');
+            appendCsv(line, log.getClientId()).append(',');
+            appendCsv(line, log.getSymbol()).append(',');
+            line.append(log.isSuccess()).append(',');
+            appendCsv(line, log.getErrorMessage()).append(',');
+            if (log.hasPrice()) {
+                FixedPrice.append(line, log.getScaledPrice());
+            }
+            line.append(',');
+            line.append(log.getBinanceStatus()).append(',');
+            line.append(log.getBinanceLatencyMs()).append(',');
+            line.append(log.getTotalLatencyMs()).append(',');
+            appendCsv(line, log.getBinanceEndpoint()).append(',');
+            if (log.getSymbols() != null) {
+                appendCsv(line, String.join(" ", log.getSymbols()));
+            }
+            line.append('\n');
+            writer.append(line);
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Appends {@code value} as an RFC 4180 field: quoted, with quotes doubled, when it contains a comma, quote
+     * or line break; empty for {@code null}.
+     */
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+
+    private static Instant parseInstant(String value, Instant fallback) {
+        return value == null || value.isBlank() ? fallback : Instant.parse(value);
+    }
+
+    private void respondWithError(HttpServletResponse resp, int statusCode, String message) throws IOException {
+        resp.setStatus(statusCode);
+        resp.setContentType("application/json");
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", message);
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.project4.server.config.AppAttributes;
+import edu.cmu.project4.server.data.LogPage;
+import edu.cmu.project4.server.data.LogQuery;
+import edu.cmu.project4.server.data.MongoLogRepository;
+import edu.cmu.project4.server.data.RequestLog;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Pages through request logs, newest first:
+ * {@code /api/logs?symbol=BTCUSD&clientId=&success=true|false&from=<ISO instant>&to=<ISO instant>&limit=50&cursor=}.
+ * Each response carries a {@code nextCursor} to pass back for the following page, {@code null} on the last one.
+ */
+@WebServlet(name = "LogsServlet", urlPatterns = "/api/logs")
+public class LogsServlet extends HttpServlet {
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+
+    private transient MongoLogRepository repository;
+    private transient ObjectMapper mapper;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        this.repository = (MongoLogRepository) config.getServletContext().getAttribute(AppAttributes.MONGO_REPOSITORY);
+        this.mapper = (ObjectMapper) config.getServletContext().getAttribute(AppAttributes.OBJECT_MAPPER);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String symbol = trimToNull(req.getParameter("symbol"));
+        symbol = symbol == null ? null : symbol.toUpperCase();
+        String clientId = trimToNull(req.getParameter("clientId"));
+        String successParam = trimToNull(req.getParameter("success"));
+        Boolean success = null;
+        if (successParam != null) {
+            if (!"true".equalsIgnoreCase(successParam) && !"false".equalsIgnoreCase(successParam)) {
+                respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter success must be true or false");
+                return;
+            }
+            success = Boolean.valueOf(successParam);
+        }
+
+        Instant from;
+        Instant to;
+        try {
+            from = parseInstant(req.getParameter("from"));
+            to = parseInstant(req.getParameter("to"));
+        } catch (DateTimeParseException e) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameters from and to must be ISO-8601 instants");
+            return;
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter from must be before to");
+            return;
+        }
+
+        int limit = DEFAULT_LIMIT;
+        String limitParam = trimToNull(req.getParameter("limit"));
+        if (limitParam != null) {
+            try {
+                limit = Integer.parseInt(limitParam);
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 1 || limit > MAX_LIMIT) {
+                respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter limit must be between 1 and " + MAX_LIMIT);
+                return;
+            }
+        }
+
+        LogPage.Key after = null;
+        String cursor = trimToNull(req.getParameter("cursor"));
+        if (cursor != null) {
+            try {
+                after = LogPage.Key.parse(cursor);
+            } catch (IllegalArgumentException e) {
+                respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter cursor is not a valid page cursor");
+                return;
+            }
+        }
+
+        LogPage page;
+        try {
+            page = repository.page(new LogQuery(symbol, clientId, success, from, to), after, limit);
+        } catch (RuntimeException e) {
+            log("Log page query failed", e);
+            respondWithError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Request logs are unavailable");
+            return;
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        List<Map<String, Object>> items = new ArrayList<>(page.getLogs().size());
+        for (RequestLog log : page.getLogs()) {
+            items.add(toJson(log));
+        }
+        body.put("logs", items);
+        body.put("nextCursor", page.getNext() == null ? null : page.getNext().toToken());
+
+        resp.setContentType("application/json");
+        resp.setHeader("Cache-Control", "no-cache");
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+
+    private static Map<String, Object> toJson(RequestLog log) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("requestReceivedAt", log.getRequestReceivedAt().toString());
+        item.put("requestId", log.getRequestId());
+        item.put("clientId", log.getClientId());
+        item.put("clientIp", log.getClientIp());
+        item.put("symbol", log.getSymbol());
+        if (log.getSymbols() != null) {
+            item.put("symbols", log.getSymbols());
+        }
+        item.put("price", log.getPrice());
+        item.put("binanceStatus", log.getBinanceStatus());
+        item.put("binanceLatencyMs", log.getBinanceLatencyMs());
+        item.put("totalLatencyMs", log.getTotalLatencyMs());
+        item.put("success", log.isSuccess());
+        item.put("errorMessage", log.getErrorMessage());
+        return item;
+    }
+
+    private static String trimToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static Instant parseInstant(String value) {
+        return value == null || value.isBlank() ? null : Instant.parse(value);
+    }
+
+    private void respondWithError(HttpServletResponse resp, int statusCode, String message) throws IOException {
+        resp.setStatus(statusCode);
+        resp.setContentType("application/json");
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", message);
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import edu.cmu.project4.server.config.AppAttributes;
+import edu.cmu.project4.server.metrics.MetricsRegistry;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Prometheus scrape endpoint. Reads in-memory instruments only and never touches MongoDB.
+ */
+@WebServlet(name = "MetricsServlet", urlPatterns = "/metrics")
+public class MetricsServlet extends HttpServlet {
+    private transient MetricsRegistry registry;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        this.registry = (MetricsRegistry) config.getServletContext().getAttribute(AppAttributes.METRICS_REGISTRY);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+        resp.setContentType(MetricsRegistry.CONTENT_TYPE);
+        resp.setHeader("Cache-Control", "no-cache");
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+    }
+}
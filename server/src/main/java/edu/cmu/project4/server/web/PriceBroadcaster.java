@@ -0,0 +1,246 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.cmu.project4.server.biz.BinanceClient;
+import edu.cmu.project4.server.biz.BinanceClient.BinanceClientException;
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+import edu.cmu.project4.server.biz.QuoteCache;
+import edu.cmu.project4.server.biz.QuoteTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fans price updates out to {@link SseSubscriber}s. Each quote is serialized once and shared by every
+ * subscriber of its symbol. Quotes come from the {@link QuoteTable} listener when streaming is enabled,
+ * otherwise from one {@link QuoteCache} lookup per subscribed symbol per interval. Lookups are asynchronous
+ * and publish on completion, so a slow Binance call never holds up heartbeats, eviction or other symbols; a
+ * symbol is not polled again while its previous lookup is pending, and not at all once Binance has rejected
+ * it, until its last subscriber leaves.
+ */
+public class PriceBroadcaster {
+    private static final Logger LOGGER = Logger.getLogger(PriceBroadcaster.class.getName());
+    private static final long HEARTBEAT_INTERVAL_MS = 15000;
+    private static final byte[] EVENT_PREFIX = "event: price\ndata: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EVENT_SUFFIX = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final QuoteCache quoteCache;
+    private final ObjectMapper mapper;
+    private final int maxSubscribers;
+    private final long slowConsumerTimeoutNanos;
+    private final ConcurrentMap<String, Set<SseSubscriber>> subscribersBySymbol = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Instant> lastPublished = new ConcurrentHashMap<>();
+    private final Set<SseSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<String> polling = ConcurrentHashMap.newKeySet();
+    private final Set<String> rejectedSymbols = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder slowConsumersDropped = new LongAdder();
+    private final ScheduledExecutorService scheduler;
+
+    public PriceBroadcaster(QuoteCache quoteCache, QuoteTable quoteTable, ObjectMapper mapper, long pollIntervalMs,
+                            int maxSubscribers, long slowConsumerTimeoutMs) {
+        this.quoteCache = quoteCache;
+        this.mapper = mapper;
+        this.maxSubscribers = maxSubscribers;
+        this.slowConsumerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(slowConsumerTimeoutMs);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (quoteTable != null) {
+            quoteTable.addListener(this::publish);
+        }
+        // Symbols outside the streamed set (or every symbol in REST mode) are polled through the cache.
+        scheduler.scheduleWithFixedDelay(this::pollSubscribedSymbols, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::sweep, HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the subscriber and immediately queues the latest known quote for each of its symbols.
+     *
+     * @return false when the subscriber limit has been reached
+     */
+    boolean subscribe(SseSubscriber subscriber) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return false;
+        }
+        subscribers.add(subscriber);
+        for (String symbol : subscriber.getSymbols()) {
+            subscribersBySymbol.compute(symbol, (ignored, set) -> {
+                Set<SseSubscriber> target = set != null ? set : ConcurrentHashMap.newKeySet();
+                target.add(subscriber);
+                return target;
+            });
+        }
+        scheduler.execute(() -> sendSnapshot(subscriber));
+        return true;
+    }
+
+    boolean isFull() {
+        return subscriberCount.get() >= maxSubscribers;
+    }
+
+    void unsubscribe(SseSubscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        for (String symbol : subscriber.getSymbols()) {
+            Set<SseSubscriber> remaining = subscribersBySymbol.computeIfPresent(symbol, (ignored, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+            if (remaining == null) {
+                rejectedSymbols.remove(symbol);
+            }
+        }
+    }
+
+    void recordConflated() {
+        conflated.increment();
+    }
+
+    /**
+     * Serializes the quote once and offers it to every subscriber of the symbol.
+     */
+    public void publish(PriceQuote quote) {
+        Set<SseSubscriber> targets = subscribersBySymbol.get(quote.getSymbol());
+        lastPublished.put(quote.getSymbol(), quote.getFetchedAt());
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        byte[] event = toEvent(quote);
+        if (event == null) {
+            return;
+        }
+        published.increment();
+        for (SseSubscriber subscriber : targets) {
+            subscriber.offer(quote.getSymbol(), quote.getFetchedAt(), event);
+        }
+    }
+
+    private void sendSnapshot(SseSubscriber subscriber) {
+        for (String symbol : subscriber.getSymbols()) {
+            if (rejectedSymbols.contains(symbol)) {
+                continue;
+            }
+            quoteCache.fetchPriceAsync(symbol).whenComplete((result, error) -> {
+                if (error != null) {
+                    onLookupFailed(symbol, error, "Initial quote for ");
+                    return;
+                }
+                PriceQuote quote = result.getQuote();
+                byte[] event = toEvent(quote);
+                if (event != null) {
+                    subscriber.offer(symbol, quote.getFetchedAt(), event);
+                }
+            });
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (SseSubscriber subscriber : subscribers) {
+            subscriber.close();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getConflatedCount() {
+        return conflated.sum();
+    }
+
+    public long getSlowConsumersDropped() {
+        return slowConsumersDropped.sum();
+    }
+
+    public int getRejectedSymbolCount() {
+        return rejectedSymbols.size();
+    }
+
+    private void pollSubscribedSymbols() {
+        for (Map.Entry<String, Set<SseSubscriber>> entry : subscribersBySymbol.entrySet()) {
+            String symbol = entry.getKey();
+            if (entry.getValue().isEmpty() || rejectedSymbols.contains(symbol) || !polling.add(symbol)) {
+                continue;
+            }
+            quoteCache.fetchPriceAsync(symbol).whenComplete((result, error) -> {
+                polling.remove(symbol);
+                if (error != null) {
+                    onLookupFailed(symbol, error, "Broadcast poll for ");
+                    return;
+                }
+                PriceQuote quote = result.getQuote();
+                Instant previous = lastPublished.get(quote.getSymbol());
+                if (previous == null || quote.getFetchedAt().isAfter(previous)) {
+                    publish(quote);
+                }
+            });
+        }
+    }
+
+    private void onLookupFailed(String symbol, Throwable error, String context) {
+        Throwable cause = BinanceClient.unwrap(error);
+        if (cause instanceof BinanceClientException && ((BinanceClientException) cause).isRejected()
+                && subscribersBySymbol.containsKey(symbol) && rejectedSymbols.add(symbol)) {
+            LOGGER.info("Binance rejected " + symbol + " (" + ((BinanceClientException) cause).getStatusCode()
+                    + "); no longer polling it for stream subscribers");
+            return;
+        }
+        LOGGER.log(Level.FINE, context + symbol + " failed", cause);
+    }
+
+    private void sweep() {
+        long now = System.nanoTime();
+        for (SseSubscriber subscriber : subscribers) {
+            if (subscriber.isStalled(now, slowConsumerTimeoutNanos)) {
+                slowConsumersDropped.increment();
+                subscriber.close();
+            } else {
+                subscriber.heartbeat();
+            }
+        }
+    }
+
+    private byte[] toEvent(PriceQuote quote) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        buffer.writeBytes(EVENT_PREFIX);
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(buffer)) {
+            QuoteJson.writeQuote(generator, quote);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not serialize quote for " + quote.getSymbol(), e);
+            return null;
+        }
+        buffer.writeBytes(EVENT_SUFFIX);
+        return buffer.toByteArray();
+    }
+}
@@ -5,22 +5,36 @@
 package edu.cmu.project4.server.web;
 
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import edu.cmu.project4.server.biz.BinanceClient;
 import edu.cmu.project4.server.biz.BinanceClient.BinanceClientException;
 import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
 import edu.cmu.project4.server.biz.BinanceClient.PriceResult;
+import edu.cmu.project4.server.biz.ClientRateLimiter;
+import edu.cmu.project4.server.biz.FixedPrice;
+import edu.cmu.project4.server.biz.LoadShedder;
+import edu.cmu.project4.server.biz.QuoteCache;
 import edu.cmu.project4.server.config.AppAttributes;
-import edu.cmu.project4.server.data.MongoLogRepository;
+import edu.cmu.project4.server.config.AppConfig;
+import edu.cmu.project4.server.data.AsyncLogWriter;
 import edu.cmu.project4.server.data.RequestLog;
+import edu.cmu.project4.server.metrics.LatencyMetrics;
+import edu.cmu.project4.server.metrics.ServiceMetrics;
+import edu.cmu.project4.server.metrics.ServiceMetrics.Outcome;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.ServletConfig;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -30,19 +44,55 @@ import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * REST endpoint consumed by the Android client. Returns latest price information for a symbol.
+ * <p>
+ * Quotes carry an {@code ETag} derived from their fetch time and price, a {@code Last-Modified} and a
+ * {@code Cache-Control} lifetime matching what is left of the quote's freshness at its source (the stream
+ * table's staleness window or the quote cache TTL), so browsers and edge caches can
+ * reuse or revalidate them. A request whose {@code If-None-Match} or {@code If-Modified-Since} still matches
+ * the current quote is answered {@code 304} without a body. Last good fallbacks and errors are not cacheable.
+ * <p>
+ * Requests are admitted before anything else happens: while the {@link LoadShedder} reports overload they are
+ * answered {@code 503}, and beyond a client's or its address's {@link ClientRateLimiter} budget {@code 429}, both
+ * with {@code Retry-After}. A client is a {@code clientId} at one address, so made-up ids never escape their
+ * address's budget. Rejected requests never reach Binance or the request log.
  */
-@WebServlet(name = "PriceServlet", urlPatterns = "/api/price")
+@WebServlet(name = "PriceServlet", urlPatterns = "/api/price", asyncSupported = true)
 public class PriceServlet extends HttpServlet {
+    // Longer than BinanceClient's connect plus request timeouts, so the client normally fails first.
+    private static final long ASYNC_TIMEOUT_MS = 30000;
+    private static final long SHED_RETRY_AFTER_SECONDS = 1;
+    private static final byte[] RATE_LIMITED_BODY = "{\"error\":\"Too many requests\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OVERLOADED_BODY = "{\"error\":\"Server overloaded\"}".getBytes(StandardCharsets.UTF_8);
+
     private transient BinanceClient binanceClient;
-    private transient MongoLogRepository repository;
+    private transient QuoteCache quoteCache;
+    private transient AsyncLogWriter logWriter;
     private transient ObjectMapper mapper;
+    private transient LatencyMetrics latencyMetrics;
+    private transient ServiceMetrics serviceMetrics;
+    private transient ClientRateLimiter rateLimiter;
+    private transient ClientRateLimiter addressRateLimiter;
+    private transient LoadShedder loadShedder;
+    private boolean asyncMode;
+    private long staleWhileRevalidateSeconds;
+    private int trustedProxyHops;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
         this.binanceClient = (BinanceClient) config.getServletContext().getAttribute(AppAttributes.BINANCE_CLIENT);
-        this.repository = (MongoLogRepository) config.getServletContext().getAttribute(AppAttributes.MONGO_REPOSITORY);
+        this.quoteCache = (QuoteCache) config.getServletContext().getAttribute(AppAttributes.QUOTE_CACHE);
+        this.logWriter = (AsyncLogWriter) config.getServletContext().getAttribute(AppAttributes.LOG_WRITER);
         this.mapper = (ObjectMapper) config.getServletContext().getAttribute(AppAttributes.OBJECT_MAPPER);
+        this.latencyMetrics = (LatencyMetrics) config.getServletContext().getAttribute(AppAttributes.LATENCY_METRICS);
+        this.serviceMetrics = (ServiceMetrics) config.getServletContext().getAttribute(AppAttributes.SERVICE_METRICS);
+        this.rateLimiter = (ClientRateLimiter) config.getServletContext().getAttribute(AppAttributes.RATE_LIMITER);
+        this.addressRateLimiter = (ClientRateLimiter) config.getServletContext().getAttribute(AppAttributes.ADDRESS_RATE_LIMITER);
+        this.loadShedder = (LoadShedder) config.getServletContext().getAttribute(AppAttributes.LOAD_SHEDDER);
+        AppConfig appConfig = (AppConfig) config.getServletContext().getAttribute(AppAttributes.CONFIG);
+        this.asyncMode = appConfig != null && appConfig.isAsyncPriceServlet();
+        this.staleWhileRevalidateSeconds = appConfig == null ? 0 : appConfig.getPriceStaleWhileRevalidateSeconds();
+        this.trustedProxyHops = appConfig == null ? 0 : appConfig.getTrustedProxyHops();
     }
 
     @Override
@@ -54,47 +104,166 @@ public class PriceServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         addCorsHeaders(resp);
-        String clientId = req.getParameter("clientId");
+        if (!admit(req, resp)) {
+            return;
+        }
         String symbol = req.getParameter("symbol");
         if (symbol == null || symbol.isBlank()) {
             symbol = "BTCUSD";
         }
         symbol = symbol.toUpperCase();
-
         Instant requestTime = Instant.now();
+        serviceMetrics.requestStarted();
+
+        if (asyncMode) {
+            serveAsync(req, resp, symbol, requestTime);
+            return;
+        }
+        PriceResult result = null;
+        Throwable error = null;
+        try {
+            result = quoteCache.fetchPrice(symbol);
+        } catch (Exception e) {
+            error = e;
+        }
+        finish(req, resp, symbol, requestTime, result, error);
+    }
+
+    /**
+     * Sheds load first, so an overloaded server does not spend tokens of requests it turns away anyway.
+     *
+     * @return whether the request may proceed; otherwise the rejection has been written
+     */
+    private boolean admit(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (loadShedder != null && loadShedder.shouldShed(serviceMetrics.getInFlight())) {
+            reject(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, SHED_RETRY_AFTER_SECONDS, OVERLOADED_BODY);
+            return false;
+        }
+        if (rateLimiter == null && addressRateLimiter == null) {
+            return true;
+        }
+        String address = ClientKeys.clientAddress(req, trustedProxyHops);
+        long waitMs = rateLimiter == null ? 0 : rateLimiter.acquire(ClientKeys.clientKey(req, address));
+        if (waitMs == 0 && addressRateLimiter != null) {
+            waitMs = addressRateLimiter.acquire(address);
+        }
+        if (waitMs > 0) {
+            reject(resp, 429, (waitMs + 999) / 1000, RATE_LIMITED_BODY);
+            return false;
+        }
+        return true;
+    }
+
+    private static void reject(HttpServletResponse resp, int statusCode, long retryAfterSeconds, byte[] body)
+            throws IOException {
+        resp.setStatus(statusCode);
+        resp.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        resp.setHeader("Cache-Control", "no-store");
+        resp.setContentType("application/json");
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+    }
+
+    /**
+     * Releases the container thread while Binance is called; the response is written from the HTTP client's
+     * completion thread. Only the first of completion and container timeout writes the response.
+     */
+    private void serveAsync(HttpServletRequest req, HttpServletResponse resp, String symbol, Instant requestTime) {
+        AsyncContext async = req.startAsync();
+        async.setTimeout(ASYNC_TIMEOUT_MS);
+        AtomicBoolean finished = new AtomicBoolean();
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (finished.compareAndSet(false, true)) {
+                    finish(req, resp, symbol, requestTime, null, new TimeoutException("Request timed out"));
+                    async.complete();
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                if (finished.compareAndSet(false, true)) {
+                    finish(req, resp, symbol, requestTime, null, event.getThrowable());
+                    async.complete();
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        quoteCache.fetchPriceAsync(symbol).whenComplete((result, error) -> {
+            if (finished.compareAndSet(false, true)) {
+                try {
+                    finish(req, resp, symbol, requestTime, result, BinanceClient.unwrap(error));
+                } finally {
+                    async.complete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the response for a fetched quote or failure, then records metrics and the request log. A
+     * {@code 304} is logged as a success without a price.
+     */
+    private void finish(HttpServletRequest req, HttpServletResponse resp, String symbol, Instant requestTime,
+                        PriceResult result, Throwable error) {
         String requestId = UUID.randomUUID().toString();
         int binanceStatus = 0;
         long binanceLatency = 0;
-        BigDecimal priceValue = null;
+        long priceValue = FixedPrice.NONE;
         boolean success = false;
         String errorMessage = null;
-        PriceQuote quote = null;
+        Outcome outcome = Outcome.SERVER_ERROR;
 
         try {
-            PriceResult result = binanceClient.fetchPrice(symbol);
-            binanceStatus = result.getStatusCode();
-            binanceLatency = result.getLatencyMs();
-            quote = result.getQuote();
-            priceValue = quote.getPrice();
-            respondWithQuote(resp, result.getQuote());
-            success = true;
-        } catch (BinanceClientException e) {
-            binanceStatus = e.getStatusCode();
-            binanceLatency = e.getLatencyMs();
-            errorMessage = "Binance error: " + e.getMessage();
-            respondWithError(resp, HttpServletResponse.SC_BAD_GATEWAY, errorMessage);
-        } catch (Exception e) {
+            if (error == null) {
+                binanceStatus = result.getStatusCode();
+                binanceLatency = result.getLatencyMs();
+                PriceQuote quote = result.getQuote();
+                success = true;
+                String entityTag = addCacheHeaders(resp, result);
+                if (entityTag != null && isNotModified(req, quote, entityTag)) {
+                    resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    outcome = Outcome.NOT_MODIFIED;
+                } else {
+                    priceValue = quote.getScaledPrice();
+                    respondWithQuote(resp, quote);
+                    outcome = Outcome.SUCCESS;
+                }
+            } else if (error instanceof BinanceClientException) {
+                BinanceClientException e = (BinanceClientException) error;
+                binanceStatus = e.getStatusCode();
+                binanceLatency = e.getLatencyMs();
+                errorMessage = "Binance error: " + e.getMessage();
+                outcome = Outcome.UPSTREAM_ERROR;
+                respondWithError(resp, HttpServletResponse.SC_BAD_GATEWAY, errorMessage);
+            } else {
+                errorMessage = "Server error: " + error.getMessage();
+                respondWithError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, errorMessage);
+            }
+        } catch (IOException e) {
+            // The client went away mid-response; nothing more can be sent.
+            success = false;
+            outcome = Outcome.SERVER_ERROR;
             errorMessage = "Server error: " + e.getMessage();
-            respondWithError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, errorMessage);
         } finally {
             Instant responseTime = Instant.now();
             long totalLatency = Duration.between(requestTime, responseTime).toMillis();
+            serviceMetrics.requestFinished(ServiceMetrics.ENDPOINT_PRICE, symbol, outcome);
+            latencyMetrics.recordTotal(symbol, totalLatency);
             RequestLog log = new RequestLog(
                     requestId,
                     requestTime,
                     responseTime,
                     req.getRemoteAddr(),
-                    clientId,
+                    req.getParameter("clientId"),
                     symbol,
                     success,
                     errorMessage,
@@ -104,21 +273,71 @@ public class PriceServlet extends HttpServlet {
                     totalLatency,
                     binanceClient.getBaseUrl()
             );
-            repository.insert(log);
+            logWriter.submit(log);
         }
     }
 
-    private void respondWithQuote(HttpServletResponse resp, PriceQuote quote) throws IOException {
+    /**
+     * Sets the validators for the quote and a lifetime of what is left of its freshness at its source, the
+     * stream table or the quote cache, rounded down so no cache keeps it longer than this server would. Last
+     * good fallbacks change with every response ({@code ageMs}) and must always be revalidated.
+     *
+     * @return the entity tag, or {@code null} when the quote is not cacheable
+     */
+    private String addCacheHeaders(HttpServletResponse resp, PriceResult result) {
+        PriceQuote quote = result.getQuote();
+        if (quote.isLastGood()) {
+            resp.setHeader("Cache-Control", "no-cache");
+            return null;
+        }
+        String entityTag = entityTag(quote);
+        long ageMs = System.currentTimeMillis() - quote.getFetchedAt().toEpochMilli();
+        long remainingMs = Math.max(0, quoteCache.getFreshForMs(result) - ageMs);
+        resp.setHeader("ETag", entityTag);
+        resp.setDateHeader("Last-Modified", quote.getFetchedAt().getEpochSecond() * 1000);
+        resp.setHeader("Cache-Control", "public, max-age=" + remainingMs / 1000
+                + ", stale-while-revalidate=" + staleWhileRevalidateSeconds);
+        return entityTag;
+    }
+
+    /**
+     * Checks the request's validators against {@code quote}, giving {@code If-None-Match} precedence as HTTP
+     * requires. {@code Last-Modified} has one-second resolution, so a client validating by date alone can
+     * miss a second quote fetched within the same second.
+     */
+    private static boolean isNotModified(HttpServletRequest req, PriceQuote quote, String entityTag) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            // Tags cannot contain quotes, so the quoted tag only occurs in the list as a whole (or weak) tag.
+            return ifNoneMatch.contains(entityTag) || "*".equals(ifNoneMatch.trim());
+        }
+        try {
+            long ifModifiedSince = req.getDateHeader("If-Modified-Since");
+            return ifModifiedSince >= quote.getFetchedAt().getEpochSecond() * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A strong validator: the body only changes with the quote's fetch time and price.
+     */
+    private static String entityTag(PriceQuote quote) {
+        Instant fetchedAt = quote.getFetchedAt();
+        return "\"" + Long.toHexString(fetchedAt.getEpochSecond()) + "." + Integer.toHexString(fetchedAt.getNano())
+                + "-" + Long.toHexString(quote.getScaledPrice()) + "\"";
+    }
+
+    void respondWithQuote(HttpServletResponse resp, PriceQuote quote) throws IOException {
         resp.setContentType("application/json");
-        Map<String, Object> body = new HashMap<>();
-        body.put("symbol", quote.getSymbol());
-        body.put("price", quote.getPrice());
-        body.put("fetchedAt", quote.getFetchedAt().toString());
-        mapper.writeValue(resp.getOutputStream(), body);
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(resp.getOutputStream())) {
+            QuoteJson.writeQuote(generator, quote);
+        }
     }
 
     private void respondWithError(HttpServletResponse resp, int statusCode, String message) throws IOException {
         resp.setStatus(statusCode);
+        resp.setHeader("Cache-Control", "no-store");
         resp.setContentType("application/json");
         Map<String, Object> body = new HashMap<>();
         body.put("error", message);
@@ -128,6 +347,7 @@ public class PriceServlet extends HttpServlet {
     private void addCorsHeaders(HttpServletResponse resp) {
         resp.setHeader("Access-Control-Allow-Origin", "*");
         resp.setHeader("Access-Control-Allow-Methods", "GET,OPTIONS");
-        resp.setHeader("Access-Control-Allow-Headers", "Content-Type");
+        resp.setHeader("Access-Control-Allow-Headers", "Content-Type, If-None-Match, If-Modified-Since");
+        resp.setHeader("Access-Control-Expose-Headers", "ETag, Retry-After");
     }
 }
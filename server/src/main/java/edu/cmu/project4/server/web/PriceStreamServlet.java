@@ -0,0 +1,158 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.project4.server.biz.BinanceClient;
+import edu.cmu.project4.server.biz.FixedPrice;
+import edu.cmu.project4.server.config.AppAttributes;
+import edu.cmu.project4.server.config.AppConfig;
+import edu.cmu.project4.server.data.AsyncLogWriter;
+import edu.cmu.project4.server.data.RequestLog;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Server-Sent Events endpoint that pushes price updates instead of having clients poll {@code /api/price}.
+ * Connections are held with async I/O so idle subscribers do not occupy container threads.
+ */
+@WebServlet(name = "PriceStreamServlet", urlPatterns = "/api/price/stream", asyncSupported = true)
+public class PriceStreamServlet extends HttpServlet {
+    private static final int MAX_SYMBOLS_PER_CONNECTION = 20;
+    // Binance symbols are upper-case letters and digits; anything else could only ever fail upstream.
+    private static final Pattern SYMBOL_PATTERN = Pattern.compile("[A-Z0-9]{2,20}");
+    private static final byte[] RETRY_HINT = "retry: 3000\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private transient PriceBroadcaster broadcaster;
+    private transient BinanceClient binanceClient;
+    private transient AsyncLogWriter logWriter;
+    private transient ObjectMapper mapper;
+    private long connectionTimeoutMs;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        this.broadcaster = (PriceBroadcaster) config.getServletContext().getAttribute(AppAttributes.PRICE_BROADCASTER);
+        this.binanceClient = (BinanceClient) config.getServletContext().getAttribute(AppAttributes.BINANCE_CLIENT);
+        this.logWriter = (AsyncLogWriter) config.getServletContext().getAttribute(AppAttributes.LOG_WRITER);
+        this.mapper = (ObjectMapper) config.getServletContext().getAttribute(AppAttributes.OBJECT_MAPPER);
+        AppConfig appConfig = (AppConfig) config.getServletContext().getAttribute(AppAttributes.CONFIG);
+        this.connectionTimeoutMs = appConfig.getSseConnectionTimeoutMs();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        addCorsHeaders(resp);
+        Instant requestTime = Instant.now();
+        Set<String> symbols = parseSymbols(req.getParameter("symbols"));
+        if (symbols.size() > MAX_SYMBOLS_PER_CONNECTION) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST,
+                    "At most " + MAX_SYMBOLS_PER_CONNECTION + " symbols per stream");
+            return;
+        }
+        for (String symbol : symbols) {
+            if (!SYMBOL_PATTERN.matcher(symbol).matches()) {
+                respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid symbol: " + symbol);
+                return;
+            }
+        }
+
+        if (broadcaster.isFull()) {
+            resp.setHeader("Retry-After", "5");
+            respondWithError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Stream subscriber limit reached");
+            return;
+        }
+
+        resp.setContentType("text/event-stream");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        resp.setHeader("X-Accel-Buffering", "no");
+        AsyncContext asyncContext = req.startAsync();
+        asyncContext.setTimeout(connectionTimeoutMs);
+        ServletOutputStream out = resp.getOutputStream();
+        out.write(RETRY_HINT);
+
+        SseSubscriber subscriber = new SseSubscriber(asyncContext, out, symbols, broadcaster);
+        asyncContext.addListener(subscriber);
+        out.setWriteListener(subscriber);
+        boolean accepted = broadcaster.subscribe(subscriber);
+        if (!accepted) {
+            subscriber.close();
+        }
+
+        // One log entry per subscription rather than per pushed tick.
+        Instant responseTime = Instant.now();
+        logWriter.submit(new RequestLog(
+                UUID.randomUUID().toString(),
+                requestTime,
+                responseTime,
+                req.getRemoteAddr(),
+                req.getParameter("clientId"),
+                RequestLog.symbolOf(symbols),
+                RequestLog.symbolsOf(symbols),
+                accepted,
+                accepted ? null : "Stream subscriber limit reached",
+                FixedPrice.NONE,
+                0,
+                0,
+                Duration.between(requestTime, responseTime).toMillis(),
+                binanceClient.getBaseUrl()
+        ));
+    }
+
+    @Override
+    protected void doOptions(HttpServletRequest req, HttpServletResponse resp) {
+        addCorsHeaders(resp);
+        resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    private static Set<String> parseSymbols(String raw) {
+        Set<String> symbols = new LinkedHashSet<>();
+        if (raw != null) {
+            for (String symbol : raw.split(",")) {
+                if (!symbol.isBlank()) {
+                    symbols.add(symbol.trim().toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        if (symbols.isEmpty()) {
+            symbols.add("BTCUSD");
+        }
+        return symbols;
+    }
+
+    private void respondWithError(HttpServletResponse resp, int statusCode, String message) throws IOException {
+        resp.setStatus(statusCode);
+        resp.setContentType("application/json");
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", message);
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+
+    private void addCorsHeaders(HttpServletResponse resp) {
+        resp.setHeader("Access-Control-Allow-Origin", "*");
+        resp.setHeader("Access-Control-Allow-Methods", "GET,OPTIONS");
+        resp.setHeader("Access-Control-Allow-Headers", "Content-Type");
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.project4.server.biz.BinanceClient;
+import edu.cmu.project4.server.biz.BinanceClient.BatchPriceResult;
+import edu.cmu.project4.server.biz.BinanceClient.BinanceClientException;
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+import edu.cmu.project4.server.biz.FixedPrice;
+import edu.cmu.project4.server.biz.QuoteCache;
+import edu.cmu.project4.server.config.AppAttributes;
+import edu.cmu.project4.server.data.AsyncLogWriter;
+import edu.cmu.project4.server.data.RequestLog;
+import edu.cmu.project4.server.metrics.LatencyMetrics;
+import edu.cmu.project4.server.metrics.ServiceMetrics;
+import edu.cmu.project4.server.metrics.ServiceMetrics.Outcome;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Batch variant of {@link PriceServlet}: returns quotes for several symbols using at most one Binance call.
+ */
+@WebServlet(name = "PricesServlet", urlPatterns = "/api/prices")
+public class PricesServlet extends HttpServlet {
+    private static final int MAX_SYMBOLS = 100;
+
+    private transient BinanceClient binanceClient;
+    private transient QuoteCache quoteCache;
+    private transient AsyncLogWriter logWriter;
+    private transient ObjectMapper mapper;
+    private transient LatencyMetrics latencyMetrics;
+    private transient ServiceMetrics serviceMetrics;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        this.binanceClient = (BinanceClient) config.getServletContext().getAttribute(AppAttributes.BINANCE_CLIENT);
+        this.quoteCache = (QuoteCache) config.getServletContext().getAttribute(AppAttributes.QUOTE_CACHE);
+        this.logWriter = (AsyncLogWriter) config.getServletContext().getAttribute(AppAttributes.LOG_WRITER);
+        this.mapper = (ObjectMapper) config.getServletContext().getAttribute(AppAttributes.OBJECT_MAPPER);
+        this.latencyMetrics = (LatencyMetrics) config.getServletContext().getAttribute(AppAttributes.LATENCY_METRICS);
+        this.serviceMetrics = (ServiceMetrics) config.getServletContext().getAttribute(AppAttributes.SERVICE_METRICS);
+    }
+
+    @Override
+    protected void doOptions(HttpServletRequest req, HttpServletResponse resp) {
+        addCorsHeaders(resp);
+        resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        addCorsHeaders(resp);
+        Set<String> symbols = parseSymbols(req.getParameter("symbols"));
+        if (symbols.isEmpty()) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter symbols is required");
+            return;
+        }
+        if (symbols.size() > MAX_SYMBOLS) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "At most " + MAX_SYMBOLS + " symbols per request");
+            return;
+        }
+
+        Instant requestTime = Instant.now();
+        String requestId = UUID.randomUUID().toString();
+        int binanceStatus = 0;
+        long binanceLatency = 0;
+        boolean success = false;
+        String errorMessage = null;
+        Outcome outcome = Outcome.SERVER_ERROR;
+
+        serviceMetrics.requestStarted();
+        try {
+            BatchPriceResult result = quoteCache.fetchPrices(symbols);
+            binanceStatus = result.getStatusCode();
+            binanceLatency = result.getLatencyMs();
+            respondWithQuotes(resp, result.getQuotes());
+            success = true;
+            outcome = Outcome.SUCCESS;
+        } catch (BinanceClientException e) {
+            binanceStatus = e.getStatusCode();
+            binanceLatency = e.getLatencyMs();
+            errorMessage = "Binance error: " + e.getMessage();
+            outcome = Outcome.UPSTREAM_ERROR;
+            respondWithError(resp, HttpServletResponse.SC_BAD_GATEWAY, errorMessage);
+        } catch (Exception e) {
+            errorMessage = "Server error: " + e.getMessage();
+            respondWithError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, errorMessage);
+        } finally {
+            // One log entry per batch, under the batch marker unless a single symbol was asked for.
+            Instant responseTime = Instant.now();
+            long totalLatency = Duration.between(requestTime, responseTime).toMillis();
+            serviceMetrics.requestFinished(ServiceMetrics.ENDPOINT_PRICES, symbols, outcome);
+            latencyMetrics.recordTotal(null, totalLatency);
+            RequestLog log = new RequestLog(
+                    requestId,
+                    requestTime,
+                    responseTime,
+                    req.getRemoteAddr(),
+                    req.getParameter("clientId"),
+                    RequestLog.symbolOf(symbols),
+                    RequestLog.symbolsOf(symbols),
+                    success,
+                    errorMessage,
+                    FixedPrice.NONE,
+                    binanceStatus,
+                    binanceLatency,
+                    totalLatency,
+                    binanceClient.getBaseUrl()
+            );
+            logWriter.submit(log);
+        }
+    }
+
+    private static Set<String> parseSymbols(String raw) {
+        Set<String> symbols = new LinkedHashSet<>();
+        if (raw != null) {
+            for (String symbol : raw.split(",")) {
+                if (!symbol.isBlank()) {
+                    symbols.add(symbol.trim().toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        return symbols;
+    }
+
+    private void respondWithQuotes(HttpServletResponse resp, List<PriceQuote> quotes) throws IOException {
+        resp.setContentType("application/json");
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(resp.getOutputStream())) {
+            generator.writeStartArray();
+            for (PriceQuote quote : quotes) {
+                QuoteJson.writeQuote(generator, quote);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void respondWithError(HttpServletResponse resp, int statusCode, String message) throws IOException {
+        resp.setStatus(statusCode);
+        resp.setContentType("application/json");
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", message);
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+
+    private void addCorsHeaders(HttpServletResponse resp) {
+        resp.setHeader("Access-Control-Allow-Origin", "*");
+        resp.setHeader("Access-Control-Allow-Methods", "GET,OPTIONS");
+        resp.setHeader("Access-Control-Allow-Headers", "Content-Type");
+    }
+}
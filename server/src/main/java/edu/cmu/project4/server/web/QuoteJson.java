@@ -0,0 +1,43 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import edu.cmu.project4.server.biz.BinanceClient.PriceQuote;
+import edu.cmu.project4.server.biz.FixedPrice;
+
+/**
+ * Streams the public quote representation {@code {"symbol":..,"price":..,"fetchedAt":..}} straight to a
+ * {@link JsonGenerator}, avoiding the per-request map and reflective serialization. Last good quotes served
+ * while Binance is unavailable also carry {@code "stale":true} and their age in {@code "ageMs"}.
+ */
+final class QuoteJson {
+    private QuoteJson() {
+    }
+
+    static void writeQuote(JsonGenerator generator, PriceQuote quote) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("symbol", quote.getSymbol());
+        generator.writeFieldName("price");
+        writePrice(generator, quote.getScaledPrice());
+        generator.writeStringField("fetchedAt", quote.getFetchedAt().toString());
+        if (quote.isLastGood()) {
+            generator.writeBooleanField("stale", true);
+            generator.writeNumberField("ageMs", Math.max(0, System.currentTimeMillis() - quote.getFetchedAt().toEpochMilli()));
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes a {@link FixedPrice} as a JSON number, formatted straight into the generator's buffer.
+     */
+    static void writePrice(JsonGenerator generator, long scaled) throws IOException {
+        char[] digits = new char[FixedPrice.MAX_CHARS];
+        generator.writeNumber(digits, 0, FixedPrice.format(scaled, digits, 0));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cmu.project4.server.config.AppAttributes;
+import edu.cmu.project4.server.data.RollupBucket;
+import edu.cmu.project4.server.data.RollupGranularity;
+import edu.cmu.project4.server.data.RollupRepository;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Time-range request analytics read from the rollup buckets:
+ * {@code /api/analytics/rollups?granularity=minute|hour&symbol=BTCUSD&from=<ISO instant>&to=<ISO instant>}.
+ * Without {@code symbol} the buckets cover all symbols; without a range the last hour of minutes or the
+ * last day of hours is returned.
+ */
+@WebServlet(name = "RollupServlet", urlPatterns = "/api/analytics/rollups")
+public class RollupServlet extends HttpServlet {
+    private static final int MAX_BUCKETS = 1440;
+
+    private transient RollupRepository rollups;
+    private transient ObjectMapper mapper;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        this.rollups = (RollupRepository) config.getServletContext().getAttribute(AppAttributes.ROLLUP_REPOSITORY);
+        this.mapper = (ObjectMapper) config.getServletContext().getAttribute(AppAttributes.OBJECT_MAPPER);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String granularityParam = req.getParameter("granularity");
+        RollupGranularity granularity = granularityParam == null || granularityParam.isBlank()
+                ? RollupGranularity.MINUTE
+                : RollupGranularity.parse(granularityParam);
+        if (granularity == null) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter granularity must be minute or hour");
+            return;
+        }
+        String symbol = req.getParameter("symbol");
+        symbol = symbol == null || symbol.isBlank() ? null : symbol.toUpperCase();
+
+        Instant from;
+        Instant to;
+        try {
+            to = parseInstant(req.getParameter("to"), Instant.now());
+            Duration defaultRange = granularity == RollupGranularity.MINUTE ? Duration.ofHours(1) : Duration.ofDays(1);
+            from = parseInstant(req.getParameter("from"), to.minus(defaultRange));
+        } catch (DateTimeParseException e) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameters from and to must be ISO-8601 instants");
+            return;
+        }
+        if (!from.isBefore(to)) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST, "Parameter from must be before to");
+            return;
+        }
+        if (Duration.between(from, to).toMillis() / granularity.getWidthMs() > MAX_BUCKETS) {
+            respondWithError(resp, HttpServletResponse.SC_BAD_REQUEST,
+                    "At most " + MAX_BUCKETS + " " + granularity.getLabel() + " buckets per request");
+            return;
+        }
+
+        List<RollupBucket> buckets;
+        try {
+            buckets = rollups.range(granularity, symbol, granularity.truncate(from), to);
+        } catch (RuntimeException e) {
+            log("Rollup query failed", e);
+            respondWithError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Rollups are unavailable");
+            return;
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("granularity", granularity.getLabel());
+        body.put("symbol", symbol);
+        body.put("from", from.toString());
+        body.put("to", to.toString());
+        List<Map<String, Object>> items = new ArrayList<>(buckets.size());
+        for (RollupBucket bucket : buckets) {
+            items.add(toJson(bucket));
+        }
+        body.put("buckets", items);
+
+        resp.setContentType("application/json");
+        resp.setHeader("Cache-Control", "no-cache");
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+
+    private static Map<String, Object> toJson(RollupBucket bucket) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("start", bucket.getStart().toString());
+        item.put("count", bucket.getCount());
+        item.put("successCount", bucket.getSuccessCount());
+        item.put("avgLatencyMs", bucket.getAverageLatencyMs());
+        item.put("minLatencyMs", bucket.getLatencyMinMs());
+        item.put("maxLatencyMs", bucket.getLatencyMaxMs());
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        long[] counts = bucket.getLatencyHistogram();
+        for (int i = 0; i < counts.length; i++) {
+            histogram.put(RollupBucket.histogramLabel(i), counts[i]);
+        }
+        item.put("latencyHistogram", histogram);
+        return item;
+    }
+
+    private static Instant parseInstant(String value, Instant fallback) {
+        return value == null || value.isBlank() ? fallback : Instant.parse(value);
+    }
+
+    private void respondWithError(HttpServletResponse resp, int statusCode, String message) throws IOException {
+        resp.setStatus(statusCode);
+        resp.setContentType("application/json");
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", message);
+        mapper.writeValue(resp.getOutputStream(), body);
+    }
+}
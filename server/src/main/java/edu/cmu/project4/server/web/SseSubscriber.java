@@ -0,0 +1,179 @@
+/*
+ * Author: Siyuan Liu (sliu5)
+ */
+
+package edu.cmu.project4.server.web;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One Server-Sent Events connection. Writes are non-blocking: if the client is not draining its socket,
+ * newer quotes replace older unsent ones for the same symbol, so each connection holds at most one
+ * pending event per subscribed symbol no matter how far behind it falls.
+ */
+final class SseSubscriber implements WriteListener, AsyncListener {
+    private static final String HEARTBEAT_KEY = "";
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final Set<String> symbols;
+    private final PriceBroadcaster broadcaster;
+    private final Map<String, byte[]> pending = new LinkedHashMap<>();
+    private final Map<String, Instant> lastOffered = new HashMap<>();
+    private boolean closed;
+    private long blockedSinceNanos;
+    private long conflated;
+
+    SseSubscriber(AsyncContext asyncContext, ServletOutputStream out, Set<String> symbols, PriceBroadcaster broadcaster) {
+        this.asyncContext = asyncContext;
+        this.out = out;
+        this.symbols = symbols;
+        this.broadcaster = broadcaster;
+    }
+
+    Set<String> getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Queues an event for the symbol, replacing any unsent one, and writes as much as the socket accepts.
+     * Quotes that are not newer than the last one offered for the symbol are ignored.
+     */
+    synchronized void offer(String symbol, Instant fetchedAt, byte[] event) {
+        if (closed) {
+            return;
+        }
+        Instant previous = lastOffered.get(symbol);
+        if (previous != null && !fetchedAt.isAfter(previous)) {
+            return;
+        }
+        lastOffered.put(symbol, fetchedAt);
+        if (pending.put(symbol, event) != null) {
+            conflated++;
+            broadcaster.recordConflated();
+        }
+        drain();
+    }
+
+    synchronized void heartbeat() {
+        if (!closed && pending.isEmpty()) {
+            pending.put(HEARTBEAT_KEY, HEARTBEAT);
+            drain();
+        }
+    }
+
+    /**
+     * True when the socket has refused writes for longer than {@code timeoutNanos}.
+     */
+    synchronized boolean isStalled(long nowNanos, long timeoutNanos) {
+        return blockedSinceNanos != 0 && nowNanos - blockedSinceNanos > timeoutNanos;
+    }
+
+    synchronized long getConflatedCount() {
+        return conflated;
+    }
+
+    @Override
+    public synchronized void onWritePossible() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        markClosed();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // Not re-dispatched.
+    }
+
+    void close() {
+        if (markClosed()) {
+            completeQuietly();
+        }
+    }
+
+    private synchronized boolean markClosed() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        pending.clear();
+        broadcaster.unsubscribe(this);
+        return true;
+    }
+
+    private void drain() {
+        if (closed) {
+            return;
+        }
+        try {
+            Iterator<byte[]> iterator = pending.values().iterator();
+            while (iterator.hasNext()) {
+                if (!out.isReady()) {
+                    markBlocked();
+                    return;
+                }
+                byte[] event = iterator.next();
+                iterator.remove();
+                out.write(event);
+            }
+            if (out.isReady()) {
+                out.flush();
+            }
+            if (out.isReady()) {
+                blockedSinceNanos = 0;
+            } else {
+                markBlocked();
+            }
+        } catch (IOException | IllegalStateException e) {
+            if (markClosed()) {
+                completeQuietly();
+            }
+        }
+    }
+
+    private void completeQuietly() {
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // Already completed by the container.
+        }
+    }
+
+    private void markBlocked() {
+        if (blockedSinceNanos == 0) {
+            blockedSinceNanos = System.nanoTime();
+        }
+    }
+}
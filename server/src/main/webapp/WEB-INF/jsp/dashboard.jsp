@@ -1,13 +1,42 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ page import="java.util.List" %>
+<%@ page import="edu.cmu.project4.server.biz.CircuitBreaker" %>
+<%@ page import="edu.cmu.project4.server.biz.PriceStreamer" %>
+<%@ page import="edu.cmu.project4.server.biz.QuoteCache" %>
+<%@ page import="edu.cmu.project4.server.biz.ResilientQuoteSource" %>
+<%@ page import="edu.cmu.project4.server.data.AsyncLogWriter" %>
 <%@ page import="edu.cmu.project4.server.data.RequestLog" %>
+<%@ page import="edu.cmu.project4.server.data.RollupBucket" %>
 <%@ page import="edu.cmu.project4.server.data.SymbolStats" %>
+<%@ page import="edu.cmu.project4.server.metrics.HistogramSnapshot" %>
+<%@ page import="edu.cmu.project4.server.metrics.LatencyMetrics" %>
+<%@ page import="edu.cmu.project4.server.metrics.RollingHistogram" %>
+<%@ page import="edu.cmu.project4.server.metrics.TimeWindow" %>
+<%@ page import="edu.cmu.project4.server.web.PriceBroadcaster" %>
 <%
     long totalRequests = (long) request.getAttribute("totalRequests");
     double successRate = (double) request.getAttribute("successRate");
     double avgLatency = (double) request.getAttribute("avgLatency");
     List<SymbolStats> topSymbols = (List<SymbolStats>) request.getAttribute("topSymbols");
     List<RequestLog> recentLogs = (List<RequestLog>) request.getAttribute("recentLogs");
+    boolean bootstrapped = (boolean) request.getAttribute("bootstrapped");
+    String queryPlanProblem = (String) request.getAttribute("queryPlanProblem");
+    QuoteCache quoteCache = (QuoteCache) request.getAttribute("quoteCache");
+    AsyncLogWriter logWriter = (AsyncLogWriter) request.getAttribute("logWriter");
+    PriceStreamer priceStreamer = (PriceStreamer) request.getAttribute("priceStreamer");
+    PriceBroadcaster priceBroadcaster = (PriceBroadcaster) request.getAttribute("priceBroadcaster");
+    LatencyMetrics latencyMetrics = (LatencyMetrics) request.getAttribute("latencyMetrics");
+    ResilientQuoteSource quoteSource = (ResilientQuoteSource) request.getAttribute("quoteSource");
+    List<RollupBucket> hourlyBuckets = (List<RollupBucket>) request.getAttribute("hourlyBuckets");
+    long hourlyMax = 1;
+    if (hourlyBuckets != null) {
+        for (RollupBucket bucket : hourlyBuckets) {
+            hourlyMax = Math.max(hourlyMax, bucket.getCount());
+        }
+    }
+    CircuitBreaker[] breakers = {quoteSource.getPrimaryBreaker(), quoteSource.getSecondaryBreaker()};
+    String[] latencyNames = {"Binance (upstream)", "End-to-end"};
+    RollingHistogram[] latencyHistograms = {latencyMetrics.getUpstream(), latencyMetrics.getTotal()};
 %>
 <!DOCTYPE html>
 <html>
@@ -22,10 +51,17 @@
         th, td { border: 1px solid #ddd; padding: 8px; text-align: left; }
         th { background: #fafafa; }
         .section { margin-top: 32px; }
+        .bar { background: #4a90d9; height: 12px; }
     </style>
 </head>
 <body>
 <h1>Crypto Monitor Operations Dashboard</h1>
+<% if (queryPlanProblem != null) { %>
+<p style="color: #b00020;"><strong>Index problem:</strong> <%= queryPlanProblem %></p>
+<% } %>
+<% if (!bootstrapped) { %>
+<p><em>Historical totals are still loading from MongoDB; figures below cover live traffic only.</em></p>
+<% } %>
 <div class="metrics">
     <div class="card">
         <div>Total Requests</div>
@@ -41,6 +77,192 @@
     </div>
 </div>
 
+<div class="section">
+    <h2>Requests per Hour (last 24 hours)</h2>
+    <% if (hourlyBuckets == null) { %>
+    <p><em>Hourly rollups could not be read from MongoDB.</em></p>
+    <% } else { %>
+    <table>
+        <tr>
+            <th>Hour (UTC)</th>
+            <th>Requests</th>
+            <th>Success Rate</th>
+            <th>Avg Latency (ms)</th>
+            <th>Max Latency (ms)</th>
+            <th style="width: 40%;"></th>
+        </tr>
+        <%
+            for (RollupBucket bucket : hourlyBuckets) {
+        %>
+        <tr>
+            <td><%= bucket.getStart() %></td>
+            <td><%= bucket.getCount() %></td>
+            <td><%= String.format("%.1f%%", bucket.getCount() == 0 ? 0.0 : bucket.getSuccessCount() * 100.0 / bucket.getCount()) %></td>
+            <td><%= String.format("%.0f", bucket.getAverageLatencyMs()) %></td>
+            <td><%= bucket.getLatencyMaxMs() %></td>
+            <td><div class="bar" style="width: <%= bucket.getCount() * 100 / hourlyMax %>%;"></div></td>
+        </tr>
+        <%
+            }
+        %>
+    </table>
+    <% } %>
+</div>
+
+<div class="section">
+    <h2>Latency Percentiles</h2>
+    <table>
+        <tr>
+            <th>Timing</th>
+            <th>Window</th>
+            <th>Count</th>
+            <th>p50 (ms)</th>
+            <th>p95 (ms)</th>
+            <th>p99 (ms)</th>
+            <th>Max (ms)</th>
+        </tr>
+        <%
+            for (int i = 0; i < latencyHistograms.length; i++) {
+                for (TimeWindow window : TimeWindow.values()) {
+                    HistogramSnapshot snapshot = latencyHistograms[i].snapshot(window);
+        %>
+        <tr>
+            <td><%= latencyNames[i] %></td>
+            <td><%= window.getLabel() %></td>
+            <td><%= snapshot.getCount() %></td>
+            <td><%= snapshot.getP50() %></td>
+            <td><%= snapshot.getP95() %></td>
+            <td><%= snapshot.getP99() %></td>
+            <td><%= snapshot.getMax() %></td>
+        </tr>
+        <%
+                }
+            }
+        %>
+    </table>
+</div>
+
+<div class="section">
+    <h2>Upstream Resilience</h2>
+    <table>
+        <tr>
+            <th>Endpoint</th>
+            <th>Circuit</th>
+            <th>Times Opened</th>
+            <th>Rejected Calls</th>
+        </tr>
+        <%
+            for (CircuitBreaker breaker : breakers) {
+                if (breaker == null) {
+                    continue;
+                }
+        %>
+        <tr>
+            <td><%= breaker.getName() %></td>
+            <td><%= breaker.getState() %></td>
+            <td><%= breaker.getOpenedCount() %></td>
+            <td><%= breaker.getRejectedCount() %></td>
+        </tr>
+        <%
+            }
+        %>
+    </table>
+    <div class="metrics">
+        <div class="card">
+            <div>Hedged Requests<%= quoteSource.isHedging() ? " (after " + quoteSource.getHedgeDelayMs() + " ms)" : " (off)" %></div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= quoteSource.getHedgeCount() %></div>
+        </div>
+        <div class="card">
+            <div>Hedges Won</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= quoteSource.getHedgeWinCount() %></div>
+        </div>
+        <div class="card">
+            <div>Last Good Quotes Served</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= quoteSource.getLastGoodServedCount() %></div>
+        </div>
+    </div>
+</div>
+
+<div class="section">
+    <h2>Quote Cache (TTL <%= quoteCache.getTtlMs() %> ms)</h2>
+    <div class="metrics">
+        <div class="card">
+            <div>Hits</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= quoteCache.getHitCount() %></div>
+        </div>
+        <div class="card">
+            <div>Misses (Binance calls)</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= quoteCache.getMissCount() %></div>
+        </div>
+        <div class="card">
+            <div>Coalesced Waiters</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= quoteCache.getCoalescedCount() %></div>
+        </div>
+    </div>
+</div>
+
+<% if (priceStreamer != null) { %>
+<div class="section">
+    <h2>Price Stream (<%= String.join(", ", priceStreamer.getSymbols()) %>)</h2>
+    <div class="metrics">
+        <div class="card">
+            <div>WebSocket</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= priceStreamer.isConnected() ? "Connected" : "Fallback polling" %></div>
+        </div>
+        <div class="card">
+            <div>Served From Stream</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= quoteCache.getStreamHitCount() %></div>
+        </div>
+        <div class="card">
+            <div>Messages / Reconnects / Polls</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= priceStreamer.getMessageCount() %> / <%= priceStreamer.getReconnectCount() %> / <%= priceStreamer.getFallbackPollCount() %></div>
+        </div>
+    </div>
+</div>
+<% } %>
+
+<div class="section">
+    <h2>Push Subscribers</h2>
+    <div class="metrics">
+        <div class="card">
+            <div>Connected</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= priceBroadcaster.getSubscriberCount() %></div>
+        </div>
+        <div class="card">
+            <div>Quotes Published</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= priceBroadcaster.getPublishedCount() %></div>
+        </div>
+        <div class="card">
+            <div>Conflated / Slow Dropped</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= priceBroadcaster.getConflatedCount() %> / <%= priceBroadcaster.getSlowConsumersDropped() %></div>
+        </div>
+    </div>
+</div>
+
+<div class="section">
+    <h2>Log Writer (<%= logWriter.getOverflowPolicy() %>)</h2>
+    <div class="metrics">
+        <div class="card">
+            <div>Queue Depth</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= logWriter.getQueueDepth() %> / <%= logWriter.getQueueCapacity() %></div>
+        </div>
+        <div class="card">
+            <div>Written / Dropped / Failed</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= logWriter.getWrittenCount() %> / <%= logWriter.getDroppedCount() %> / <%= logWriter.getFailedCount() %></div>
+        </div>
+        <div class="card">
+            <div>Flush Latency (avg / last / max)</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= String.format("%.0f / %d / %d ms", logWriter.getAverageFlushLatencyMs(), logWriter.getLastFlushLatencyMs(), logWriter.getMaxFlushLatencyMs()) %></div>
+        </div>
+        <% if (logWriter.isSpoolEnabled()) { %>
+        <div class="card">
+            <div>Spool Backlog / Replayed</div>
+            <div style="font-size: 1.5em; font-weight: bold;"><%= logWriter.getSpoolBacklog() %> / <%= logWriter.getReplayedCount() %></div>
+        </div>
+        <% } %>
+    </div>
+</div>
+
 <div class="section">
     <h2>Top Requested Symbols</h2>
     <table>